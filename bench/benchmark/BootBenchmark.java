@@ -0,0 +1,138 @@
+package benchmark;
+
+import core.domain.api.datastructures.*;
+import core.domain.inventory.datastructures.*;
+import core.domain.inventory.manager.*;
+import core.domain.inventory.model.*;
+import core.domain.sales.datastructures.*;
+import core.domain.sales.manager.*;
+import core.domain.sales.model.*;
+import core.shared.journal.*;
+
+import java.io.*;
+import java.nio.file.*;
+
+/**
+ * Measures how long the program takes to rebuild its state when it starts.
+ * Run once to prepare a snapshot and journal, then again, in a new JVM,
+ * to time the start:
+ *
+ * e.g. java -Xmx4g -cp out benchmark.BootBenchmark -prepare data -products 1000000 -lines 10000000
+ *      java -Xmx4g -cp out benchmark.BootBenchmark -boot data
+ *
+ * Preparing saves every sale through the managers with the journal synced
+ * by the operating system, takes a snapshot, then saves -tail more sales
+ * that only the journal holds. Booting with -full also ignores the
+ * snapshot, replaying the whole journal instead
+ *
+ * @version 1.0
+ */
+public final class BootBenchmark {
+    private static final int LINES_PER_SALE = 5;
+
+    private BootBenchmark() {}
+
+    public static void main(String[] args) throws IOException {
+        Path directory = null;
+        boolean isPreparing = false;
+        boolean isFull = false;
+        int products = 1_000_000;
+        long lines = 10_000_000;
+        int tail = 10_000;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-prepare" -> {
+                    isPreparing = true;
+                    directory = Path.of(args[++i]);
+                }
+                case "-boot" -> directory = Path.of(args[++i]);
+                case "-full" -> isFull = true;
+                case "-products" -> products = Integer.parseInt(args[++i]);
+                case "-lines" -> lines = Long.parseLong(args[++i]);
+                case "-tail" -> tail = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (directory == null) throw new IllegalArgumentException("Either -prepare <dir> or -boot <dir> is needed");
+
+        if (isPreparing) prepare(directory, products, lines, tail);
+        else boot(directory, isFull);
+    }
+
+    private static void prepare(Path directory, int products, long lines, int tail) throws IOException {
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve("umisea.journal"));
+        Files.deleteIfExists(directory.resolve("umisea.snapshot"));
+
+        long start = System.nanoTime();
+        try (Journal journal = Journal.open(directory.resolve("umisea.journal"), Journal.FsyncPolicy.OS, 0)) {
+            Modules modules = new Modules(directory, journal);
+            for (int i = 0; i < products; i++) {
+                modules.inventory.addProduct(new Product(
+                        "PRD-" + i,
+                        new Product.ProductInfo("Product " + i, "Asacoco", 1 + i % 100),
+                        new Product.StockInfo(1_000_000, 10)));
+            }
+
+            long sales = lines / LINES_PER_SALE;
+            long line = 0;
+            for (long sale = 0; sale < sales + tail; sale++) {
+                if (sale == sales) {
+                    modules.snapshotter.close();
+                    System.err.printf("Prepared %,d products and %,d sales lines in %,d ms%n",
+                            products, lines, (System.nanoTime() - start) / 1_000_000);
+                }
+                SalesRecord salesRecord = new SalesRecord("SAL-" + sale, new RecordList<>());
+                for (int j = 0; j < LINES_PER_SALE; j++) {
+                    ProductTotals totals = modules.sales.findProductByID("PRD-" + (line++ * 7919 % products));
+                    salesRecord.recordSale(new SalesItem(totals.getId(), totals.getName(), totals.getPrice(), 1, totals.getPrice()));
+                    totals.recordPurchase(1);
+                    modules.sales.queueStockReduction(totals, 1);
+                }
+                modules.sales.addSalesRecord(salesRecord);
+            }
+        }
+        System.err.printf("Journal: %,d bytes, snapshot: %,d bytes%n",
+                Files.size(directory.resolve("umisea.journal")),
+                Files.size(directory.resolve("umisea.snapshot")));
+    }
+
+    private static void boot(Path directory, boolean isFull) throws IOException {
+        Path snapshot = directory.resolve("umisea.snapshot");
+        Path hidden = directory.resolve("umisea.snapshot.hidden");
+        if (isFull) Files.move(snapshot, hidden);
+        try {
+            long start = System.nanoTime();
+            try (Journal journal = Journal.open(directory.resolve("umisea.journal"), Journal.FsyncPolicy.OS, 0)) {
+                Modules modules = new Modules(directory, journal);
+                modules.snapshotter.recover(
+                        modules.inventory.getReplayHandler(),
+                        modules.sales.getReplayHandler());
+                long elapsed = System.nanoTime() - start;
+                System.err.printf("Booted %s with %,d products and %,d sales records in %,d ms%n",
+                        isFull ? "from the journal alone" : "from the snapshot and journal tail",
+                        modules.inventory.getInventory().size(),
+                        modules.sales.getRecordsList().size(),
+                        elapsed / 1_000_000);
+            }
+        } finally {
+            if (isFull) Files.move(hidden, snapshot);
+        }
+    }
+
+    /**
+     * The inventory and sales managers, wired like the program wires them
+     */
+    private static final class Modules {
+        private final SalesManager sales;
+        private final InventoryManager inventory;
+        private final Snapshotter snapshotter;
+
+        private Modules(Path directory, Journal journal) {
+            sales = new SalesManager(new ColumnarSalesList(), new ChunkedRecordList<>(), journal);
+            inventory = new InventoryManager(new InventoryList<>(), new ProductNameIndex<>(), journal);
+            snapshotter = new Snapshotter(directory.resolve("umisea.snapshot"), journal, Long.MAX_VALUE / 1_000_000,
+                    inventory.getSnapshotPart(), sales.getSnapshotPart());
+        }
+    }
+}
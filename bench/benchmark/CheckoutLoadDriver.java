@@ -0,0 +1,286 @@
+package benchmark;
+
+import config.*;
+import core.domain.api.datastructures.*;
+import core.domain.inventory.datastructures.*;
+import core.domain.inventory.manager.*;
+import core.domain.inventory.model.*;
+import core.domain.sales.datastructures.*;
+import core.domain.sales.manager.*;
+import core.shared.journal.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * Drives the sales module with many checkout terminals at once, each one
+ * a virtual thread recording random baskets through {@link Checkout}, and
+ * reports the sales per second and the latency percentiles of a sale:
+ *
+ * e.g. java -cp out benchmark.CheckoutLoadDriver -terminals 5000 -rate 5000 -seconds 30
+ *
+ * The inventory and sales managers are wired like the program wires them,
+ * with a journal in a temporary folder. Every terminal starts its sales on
+ * a fixed schedule, so together they aim at -rate sales per second. A sale
+ * adds 1 to -items random products, and -cancel percent of them are
+ * cancelled instead of saved. The first -warmup seconds are not measured
+ *
+ * Two latencies are reported:
+ * - service time: from when a sale actually started to when it was saved
+ * - response time: from when the sale was due to start on the schedule.
+ *   A terminal held up by a slow sale starts its next ones late, and would
+ *   otherwise leave out the waiting its customers did (coordinated omission)
+ *
+ * Other options are -products, -stock and -fsync (OS, INTERVAL or EVERY_RECORD)
+ *
+ * @version 1.0
+ */
+public final class CheckoutLoadDriver {
+    private CheckoutLoadDriver() {}
+
+    public static void main(String[] args) throws Exception {
+        int terminals = 2_000;
+        double rate = 2_000;
+        long seconds = 10;
+        long warmup = 2;
+        int products = 10_000;
+        int stock = 1_000_000;
+        int items = 5;
+        int cancelPercent = 5;
+        Journal.FsyncPolicy fsync = Journal.FsyncPolicy.OS;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-terminals" -> terminals = Integer.parseInt(args[++i]);
+                case "-rate" -> rate = Double.parseDouble(args[++i]);
+                case "-seconds" -> seconds = Long.parseLong(args[++i]);
+                case "-warmup" -> warmup = Long.parseLong(args[++i]);
+                case "-products" -> products = Integer.parseInt(args[++i]);
+                case "-stock" -> stock = Integer.parseInt(args[++i]);
+                case "-items" -> items = Integer.parseInt(args[++i]);
+                case "-cancel" -> cancelPercent = Integer.parseInt(args[++i]);
+                case "-fsync" -> fsync = Journal.FsyncPolicy.valueOf(args[++i].toUpperCase());
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (terminals < 1 || rate <= 0 || items < 1)
+            throw new IllegalArgumentException("-terminals, -rate and -items must be above 0");
+
+        Path directory = Files.createTempDirectory("checkout-load");
+        try (Journal journal = Journal.open(directory.resolve("umisea.journal"), fsync, AppConfig.JOURNAL_FSYNC_INTERVAL_MILLIS);
+             StockReservations reservations = new StockReservations(
+                     AppConfig.STOCK_HOLD_MILLIS, AppConfig.STOCK_HOLD_TICK_MILLIS, AppConfig.STOCK_HOLD_WHEEL_SLOTS)) {
+            SalesManager sales = new SalesManager(new ColumnarSalesList(), new ChunkedRecordList<>(), journal);
+            InventoryManager inventory = new InventoryManager(new InventoryList<>(), new ProductNameIndex<>(), journal);
+            for (int i = 0; i < products; i++) {
+                inventory.addProduct(new Product(
+                        "PRD-" + i,
+                        new Product.ProductInfo("Product " + i, "Asacoco", 1 + i % 100),
+                        new Product.StockInfo(stock, 10)));
+            }
+
+            Run run = new Run(terminals, rate, seconds, warmup, products, items, cancelPercent);
+            System.err.printf("Driving %,d terminals at %,.0f sales/s for %d s (%d s warmup), journal synced by %s%n",
+                    terminals, rate, seconds, warmup, fsync);
+            run.drive(sales, reservations);
+            run.report();
+
+            check(sales.getRecordsList().size() == run.saved.get(),
+                    "The records list holds " + sales.getRecordsList().size() + " sales, " + run.saved.get() + " were saved");
+        } finally {
+            try (var files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) Files.delete(file);
+            }
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * The schedule of a run, and what its terminals measured
+     */
+    private static final class Run {
+        private final int terminals;
+        private final long intervalNanos;
+        private final long seconds;
+        private final long warmup;
+        private final int products;
+        private final int items;
+        private final int cancelPercent;
+        private final AtomicLong nextId = new AtomicLong();
+        private final AtomicLong saved = new AtomicLong();
+        private final AtomicLong cancelled = new AtomicLong();
+        private final AtomicLong lost = new AtomicLong();
+        private final AtomicLong shortItems = new AtomicLong();
+        private final AtomicLong measured = new AtomicLong();
+        private final LatencyHistogram service = new LatencyHistogram();
+        private final LatencyHistogram response = new LatencyHistogram();
+        private final LongAccumulator lastDone = new LongAccumulator(Math::max, Long.MIN_VALUE);
+        private long measureStart;
+
+        private Run(int terminals, double rate, long seconds, long warmup, int products, int items, int cancelPercent) {
+            this.terminals = terminals;
+            // Every terminal starts one sale per interval
+            this.intervalNanos = (long) (terminals * 1e9 / rate);
+            this.seconds = seconds;
+            this.warmup = warmup;
+            this.products = products;
+            this.items = items;
+            this.cancelPercent = cancelPercent;
+        }
+
+        private void drive(SalesManager sales, StockReservations reservations) throws Exception {
+            long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+            measureStart = start + TimeUnit.SECONDS.toNanos(warmup);
+            long end = measureStart + TimeUnit.SECONDS.toNanos(seconds);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int terminal = 0; terminal < terminals; terminal++) {
+                    int number = terminal;
+                    executor.execute(() -> {
+                        try {
+                            runTerminal(number, sales, reservations, start, end);
+                        } catch (Throwable e) {
+                            failure.compareAndSet(null, e);
+                        }
+                    });
+                }
+            }
+            if (failure.get() instanceof AssertionError e) throw e;
+            if (failure.get() != null) throw new IllegalStateException(failure.get());
+        }
+
+        private void runTerminal(int terminal, SalesManager sales, StockReservations reservations,
+                                 long start, long end) {
+            SplittableRandom random = new SplittableRandom(terminal);
+            // Terminals are spread over the interval, so they do not all start at once
+            long due = start + random.nextLong(intervalNanos);
+            while (due < end) {
+                long wait = due - System.nanoTime();
+                while (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                    wait = due - System.nanoTime();
+                }
+
+                long begin = System.nanoTime();
+                Checkout checkout = sales.openCheckout("SAL-" + nextId.getAndIncrement(), reservations);
+                for (int item = random.nextInt(1, items + 1); item > 0; item--) {
+                    if (!checkout.addItem("PRD-" + random.nextInt(products), random.nextInt(1, 4))) shortItems.incrementAndGet();
+                }
+                if (checkout.isEmpty() || random.nextInt(100) < cancelPercent) {
+                    checkout.cancel();
+                    cancelled.incrementAndGet();
+                } else if (checkout.commit()) {
+                    saved.incrementAndGet();
+                } else {
+                    lost.incrementAndGet();
+                }
+                long done = System.nanoTime();
+
+                if (due >= measureStart) {
+                    service.record(done - begin);
+                    response.record(done - due);
+                    measured.incrementAndGet();
+                    lastDone.accumulate(done);
+                }
+                // Late sales are not skipped, so the next one is due even if it already passed
+                due += intervalNanos;
+            }
+        }
+
+        private void report() {
+            // Over the time the measured sales took to finish, which runs past
+            // the schedule when the terminals fall behind it
+            double perSecond = measured.get() == 0 ? 0 : measured.get() / ((lastDone.get() - measureStart) / 1e9);
+            System.out.printf("Sales measured %,d (%,.1f/s); overall saved %,d, cancelled %,d, lost to expired holds %,d, items short of stock %,d%n",
+                    measured.get(), perSecond, saved.get(), cancelled.get(), lost.get(), shortItems.get());
+            System.out.printf("%-14s %10s %10s %10s %10s %10s %10s %10s%n",
+                    "latency (ms)", "mean", "p50", "p90", "p99", "p99.9", "p99.99", "max");
+            print("service time", service);
+            print("response time", response);
+        }
+
+        private static void print(String name, LatencyHistogram histogram) {
+            System.out.printf("%-14s %10.3f %10.3f %10.3f %10.3f %10.3f %10.3f %10.3f%n",
+                    name,
+                    histogram.getMean() / 1e6,
+                    histogram.getPercentile(50) / 1e6,
+                    histogram.getPercentile(90) / 1e6,
+                    histogram.getPercentile(99) / 1e6,
+                    histogram.getPercentile(99.9) / 1e6,
+                    histogram.getPercentile(99.99) / 1e6,
+                    histogram.getMax() / 1e6);
+        }
+    }
+
+    /**
+     * Counts latencies in buckets whose width grows with the value, so
+     * each one is kept within about 3% whether it is nanoseconds or
+     * seconds long. Every power of two is cut into 32 buckets. Values
+     * can be recorded from any thread
+     */
+    private static final class LatencyHistogram {
+        private static final int SUB_BITS = 5;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_COUNT);
+        private final LongAdder total = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        private void record(long nanos) {
+            long value = Math.max(0, nanos);
+            counts.incrementAndGet(indexOf(value));
+            total.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        private double getMean() {
+            long count = total.sum();
+            return count == 0 ? 0 : (double) sum.sum() / count;
+        }
+
+        private long getMax() {
+            return max.get();
+        }
+
+        /**
+         * @return the highest value of the bucket holding the percentile
+         */
+        private long getPercentile(double percentile) {
+            long count = total.sum();
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                seen += counts.get(i);
+                if (seen >= rank) return Math.min(highestOf(i), getMax());
+            }
+            return getMax();
+        }
+
+        /**
+         * Values below 64 get a bucket each. Above, the bucket is the
+         * power of two times 32 plus the top 6 bits of the value
+         */
+        private static int indexOf(long value) {
+            if (value < 2 * SUB_COUNT) return (int) value;
+            int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+            return (shift << SUB_BITS) + (int) (value >>> shift);
+        }
+
+        private static long highestOf(int index) {
+            if (index < 2 * SUB_COUNT) return index;
+            int shift = (index >>> SUB_BITS) - 1;
+            long mantissa = index - ((long) shift << SUB_BITS);
+            return ((mantissa + 1) << shift) - 1;
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+}
@@ -0,0 +1,376 @@
+package benchmark;
+
+import core.domain.api.datastructures.*;
+import core.domain.api.model.Record;
+import core.domain.sales.datastructures.*;
+import core.domain.sales.manager.*;
+import core.domain.sales.model.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * Checks and measures {@link ConcurrentRecordList} and the stock of
+ * {@link ProductTotals} under contention, with several threads changing
+ * them at once:
+ *
+ * e.g. java -cp out benchmark.ContentionBenchmark -threads 1,4,16 -seconds 2
+ *
+ * The checks fail the run with an {@link AssertionError}:
+ * - races: every thread adds the same id at once, and exactly one must win,
+ *   then every thread removes it, and exactly one must win
+ * - snapshots: writers add a record then remove their oldest one, keeping
+ *   a window of live records, while a reader takes snapshots. Each snapshot
+ *   must hold a window or a window plus one of every writer's records, in
+ *   the order they were added and without gaps
+ * - mixed: threads get, add and remove records of their own ids while
+ *   getting ids of the others. Afterwards, the list must hold exactly the
+ *   records each thread last saw as live, in the order they were added
+ * - hot product: every thread holds stock of one product, then sells or
+ *   lets go of it, until it runs out. The sold stock must add up to exactly
+ *   the starting stock, and the stock must never go below zero
+ * - baskets: threads open baskets on a few products and save, cancel or
+ *   abandon them, while holds expire every few milliseconds. Once every
+ *   hold expired, no stock may be held, and the unsold stock must be the
+ *   starting stock minus what the saved baskets sold
+ *
+ * The mixed workload is timed for the list and for an indexed list
+ * behind a single lock, and the operations per second of both printed.
+ * So are the holds per second on the hot product
+ *
+ * @version 1.0
+ */
+public final class ContentionBenchmark {
+    private static final int RACE_ROUNDS = 2_000;
+    private static final int WINDOW = 64;
+
+    private ContentionBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        int[] threadCounts = {1, 2, 4, 8};
+        long seconds = 2;
+        int ids = 100_000;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-threads" -> threadCounts = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+                case "-seconds" -> seconds = Long.parseLong(args[++i]);
+                case "-ids" -> ids = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        for (int threads : threadCounts) {
+            checkRaces(threads);
+            checkSnapshots(threads, seconds);
+            double striped = runMixed(new ConcurrentRecordList<>(), threads, ids, seconds);
+            double locked = runMixed(new LockedRecordList<>(), threads, ids, seconds);
+            System.out.printf("%-3d threads  striped %,14.0f ops/s  single lock %,14.0f ops/s%n", threads, striped, locked);
+            for (SalesList<ProductTotals> totals : List.of(new SalesList<>(), new ColumnarSalesList())) {
+                double holds = checkHotProduct(totals, threads);
+                System.out.printf("%-3d threads  %-17s %,14.0f holds/s%n",
+                        threads, totals.getClass().getSimpleName(), holds);
+            }
+            checkBaskets(threads, seconds);
+        }
+        System.out.println("Every check passed");
+    }
+
+    private static void checkRaces(int threads) throws Exception {
+        ConcurrentRecordList<Entry> list = new ConcurrentRecordList<>();
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        AtomicInteger[] adds = new AtomicInteger[RACE_ROUNDS];
+        AtomicInteger[] removes = new AtomicInteger[RACE_ROUNDS];
+        for (int i = 0; i < RACE_ROUNDS; i++) {
+            adds[i] = new AtomicInteger();
+            removes[i] = new AtomicInteger();
+        }
+        run(threads, thread -> {
+            for (int round = 0; round < RACE_ROUNDS; round++) {
+                String id = "RACE-" + round;
+                barrier.await();
+                try {
+                    list.add(new Entry(id, thread, round));
+                    adds[round].incrementAndGet();
+                } catch (RecordList.ListException ignored) {
+                }
+                barrier.await();
+                try {
+                    list.remove(id);
+                    removes[round].incrementAndGet();
+                } catch (RecordList.ListException ignored) {
+                }
+            }
+        });
+        for (int round = 0; round < RACE_ROUNDS; round++) {
+            check(adds[round].get() == 1, "Round " + round + " was added " + adds[round].get() + " times");
+            check(removes[round].get() == 1, "Round " + round + " was removed " + removes[round].get() + " times");
+        }
+        check(list.isEmpty() && list.snapshot().length == 0, "The list is not empty after the races");
+    }
+
+    private static void checkSnapshots(int writers, long seconds) throws Exception {
+        ConcurrentRecordList<Entry> list = new ConcurrentRecordList<>();
+        for (int writer = 0; writer < writers; writer++) {
+            for (int i = 0; i < WINDOW; i++) list.add(new Entry(writer + "-" + i, writer, i));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        AtomicBoolean isDone = new AtomicBoolean();
+        AtomicLong snapshots = new AtomicLong();
+        run(writers + 1, thread -> {
+            if (thread == writers) {
+                while (System.nanoTime() < deadline) {
+                    checkSnapshot(list.snapshot(), writers);
+                    snapshots.incrementAndGet();
+                }
+                isDone.set(true);
+                return;
+            }
+            for (long next = WINDOW; !isDone.get(); next++) {
+                list.add(new Entry(thread + "-" + next, thread, next));
+                list.remove(thread + "-" + (next - WINDOW));
+            }
+        });
+        check(snapshots.get() > 0, "No snapshot was taken");
+        checkSnapshot(list.snapshot(), writers);
+    }
+
+    private static void checkSnapshot(Object[] records, int writers) {
+        long[] previous = new long[writers];
+        int[] counts = new int[writers];
+        Arrays.fill(previous, -1);
+        for (Object record : records) {
+            Entry entry = (Entry) record;
+            int writer = entry.thread;
+            check(previous[writer] < 0 || entry.sequence == previous[writer] + 1,
+                    "Writer " + writer + " has a gap or is out of order at " + entry.sequence);
+            previous[writer] = entry.sequence;
+            counts[writer]++;
+        }
+        for (int writer = 0; writer < writers; writer++) {
+            check(counts[writer] == WINDOW || counts[writer] == WINDOW + 1,
+                    "Writer " + writer + " has " + counts[writer] + " live records in a snapshot");
+        }
+    }
+
+    private static double runMixed(RecordList<Entry> list, int threads, int ids, long seconds) throws Exception {
+        int share = Math.max(1, ids / threads);
+        for (int thread = 0; thread < threads; thread++) {
+            for (int i = 0; i < share; i += 2) list.add(new Entry(thread + "-" + i, thread, i));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        AtomicLong operations = new AtomicLong();
+        @SuppressWarnings("unchecked")
+        Map<String, Long>[] live = (Map<String, Long>[]) new Map<?, ?>[threads];
+        long start = System.nanoTime();
+        run(threads, thread -> {
+            SplittableRandom random = new SplittableRandom(thread);
+            // Ids of this thread that are live, mapped to the sequence of their add
+            Map<String, Long> owned = new HashMap<>();
+            for (int i = 0; i < share; i += 2) owned.put(thread + "-" + i, (long) i);
+            long sequence = share;
+            long done = 0;
+            // Reads the clock once every 256 operations
+            while ((done & 255) != 0 || System.nanoTime() < deadline) {
+                int choice = random.nextInt(10);
+                if (choice < 8) {
+                    int other = random.nextInt(threads);
+                    String id = other + "-" + random.nextInt(share);
+                    boolean isLive = list.contains(id);
+                    if (other == thread)
+                        check(isLive == owned.containsKey(id), "Thread " + thread + " sees the wrong state of " + id);
+                } else {
+                    String id = thread + "-" + random.nextInt(share);
+                    if (owned.containsKey(id)) {
+                        check(list.remove(id).id.equals(id), "Removed the wrong record for " + id);
+                        owned.remove(id);
+                    } else {
+                        list.add(new Entry(id, thread, sequence));
+                        owned.put(id, sequence++);
+                    }
+                }
+                done++;
+            }
+            operations.addAndGet(done);
+            live[thread] = owned;
+        });
+        double rate = operations.get() / ((System.nanoTime() - start) / 1e9);
+
+        int expected = 0;
+        for (Map<String, Long> owned : live) expected += owned.size();
+        check(list.size() == expected, "The list holds " + list.size() + " records, " + expected + " expected");
+        long[] previous = new long[threads];
+        Arrays.fill(previous, -1);
+        int seen = 0;
+        for (Entry entry : list) {
+            Long sequence = live[entry.thread].get(entry.id);
+            check(sequence != null && sequence == entry.sequence, "The list holds a stale record " + entry.id);
+            check(entry.sequence > previous[entry.thread], "Thread " + entry.thread + " records are out of order");
+            previous[entry.thread] = entry.sequence;
+            seen++;
+        }
+        check(seen == expected, "Walking the list found " + seen + " records, " + expected + " expected");
+        return rate;
+    }
+
+    private static double checkHotProduct(SalesList<ProductTotals> list, int threads) throws Exception {
+        int stock = 1_000_000;
+        ProductTotals product = list.add("PRD-HOT", "Hot Product", 10, stock);
+        AtomicLong sold = new AtomicLong();
+        AtomicLong attempts = new AtomicLong();
+        long start = System.nanoTime();
+        run(threads, thread -> {
+            long taken = 0;
+            long tries = 0;
+            // Every fourth hold is let go, like a basket dropped before paying
+            while (true) {
+                tries++;
+                int quantity = 1 + (int) (tries & 1);
+                if (!product.tryHoldStock(quantity)) {
+                    if (product.getStock() == 0 && product.getHeldStock() == 0) break;
+                    continue;
+                }
+                if ((tries & 3) == 3) {
+                    product.releaseHeldStock(quantity);
+                } else {
+                    product.recordHeldPurchase(quantity);
+                    taken += quantity;
+                }
+                check(product.getStock() >= 0 && product.getHeldStock() >= 0, "Stock went below zero");
+            }
+            sold.addAndGet(taken);
+            attempts.addAndGet(tries);
+        });
+        double rate = attempts.get() / ((System.nanoTime() - start) / 1e9);
+        check(product.getUnsoldStock() == 0, "The stock ended at " + product.getUnsoldStock());
+        check(sold.get() == stock, "Sold " + sold.get() + " items out of " + stock);
+        return rate;
+    }
+
+    private static void checkBaskets(int threads, long seconds) throws Exception {
+        int products = 4;
+        int stock = 10_000;
+        SalesList<ProductTotals> list = new ColumnarSalesList();
+        ProductTotals[] shelf = new ProductTotals[products];
+        for (int i = 0; i < products; i++) shelf[i] = list.add("PRD-B" + i, "Basket Product " + i, 10, stock);
+        AtomicLong sold = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        try (StockReservations reservations = new StockReservations(5, 1, 64)) {
+            run(threads, thread -> {
+                SplittableRandom random = new SplittableRandom(thread);
+                while (System.nanoTime() < deadline) {
+                    StockReservations.Basket basket = reservations.openBasket();
+                    int[] quantities = new int[products];
+                    for (int item = random.nextInt(1, 4); item > 0; item--) {
+                        int product = random.nextInt(products);
+                        int quantity = random.nextInt(1, 4);
+                        if (basket.hold(shelf[product], quantity)) quantities[product] += quantity;
+                    }
+                    // Lingers now and then, so some holds expire before the basket is closed
+                    if (random.nextInt(8) == 0) Thread.sleep(random.nextInt(10));
+                    switch (random.nextInt(4)) {
+                        case 0 -> basket.cancel();
+                        case 1 -> {} // Abandoned, left for the reaper
+                        default -> {
+                            if (basket.sell()) sold.addAndGet(Arrays.stream(quantities).sum());
+                            else failed.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            // Every hold left expires within a few ticks
+            Thread.sleep(50);
+            check(reservations.getPendingCount() == 0, reservations.getPendingCount() + " holds never came due");
+        }
+        long unsold = 0;
+        for (ProductTotals product : shelf) {
+            check(product.getHeldStock() == 0, product.getId() + " still holds " + product.getHeldStock() + " items");
+            check(product.getStock() >= 0, product.getId() + " went below zero");
+            unsold += product.getUnsoldStock();
+        }
+        check(unsold == (long) products * stock - sold.get(),
+                "Unsold stock is " + unsold + ", " + ((long) products * stock - sold.get()) + " expected");
+        System.out.printf("%-3d threads  baskets sold %,d items, %,d baskets lost expired holds%n",
+                threads, sold.get(), failed.get());
+    }
+
+    private interface Task {
+        void run(int thread) throws Exception;
+    }
+
+    private static void run(int threads, Task task) throws Exception {
+        List<Thread> started = new ArrayList<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int thread = 0; thread < threads; thread++) {
+            int number = thread;
+            started.add(Thread.ofPlatform().start(() -> {
+                try {
+                    task.run(number);
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+        for (Thread thread : started) thread.join();
+        if (failure.get() instanceof AssertionError e) throw e;
+        if (failure.get() != null) throw new IllegalStateException(failure.get());
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    private static final class Entry implements Record {
+        private final String id;
+        private final int thread;
+        private final long sequence;
+
+        private Entry(String id, int thread, long sequence) {
+            this.id = id;
+            this.thread = thread;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public String getId() {return id;}
+    }
+
+    /**
+     * Indexed list behind one lock, the simplest way to share a list
+     */
+    private static final class LockedRecordList<T extends Record> extends IndexedRecordList<T> {
+        private final ReentrantLock lock = new ReentrantLock();
+
+        @Override
+        public void add(T data) {
+            lock.lock();
+            try {
+                super.add(data);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public T remove(String id) {
+            lock.lock();
+            try {
+                return super.remove(id);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean contains(String id) {
+            lock.lock();
+            try {
+                return super.contains(id);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,611 @@
+package benchmark;
+
+import config.*;
+import core.api.dto.*;
+import core.domain.api.datastructures.*;
+import core.domain.api.model.Record;
+import core.domain.inventory.datastructures.*;
+import core.domain.inventory.model.*;
+import core.domain.inventory.ui.console.*;
+import core.domain.sales.datastructures.*;
+import core.domain.sales.model.*;
+import core.shared.csv.*;
+import core.shared.events.*;
+import core.shared.export.*;
+import core.shared.journal.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * JMH benchmarks for the core data structures and event paths, run over
+ * catalogue sizes from 100 to 1M products. Every nested class is a
+ * benchmark state, with the catalogue size and variant as its parameters
+ *
+ * e.g. java -jar benchmarks/target/benchmarks.jar CoreBenchmarks -p size=100,10000 -rf json
+ *
+ * @version 2.0
+ */
+public class CoreBenchmarks {
+    private static final int TOP_SELLERS = 50;
+
+    /**
+     * How every benchmark is measured, inherited by the states below. An
+     * average time per operation, forked once, over a few seconds
+     */
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public abstract static class Measured {}
+
+    /**
+     * State sized to the catalogue, that hands out
+     * the index of the record each operation works on
+     */
+    @State(Scope.Thread)
+    public abstract static class Catalogue extends Measured {
+        @Param({"100", "1000", "10000", "100000", "1000000"})
+        public int size;
+        private int next;
+
+        /**
+         * @return the next index below the size, starting again from 0 after the last one
+         */
+        int next() {
+            int i = next;
+            next = i + 1 == size ? 0 : i + 1;
+            return i;
+        }
+    }
+
+    public static class RecordLists extends Catalogue {
+        @Param({"linked", "indexed", "chunked"})
+        public String variant;
+        private ProductDTO[] records;
+        private RecordList<ProductDTO> list;
+        private RecordList<ProductDTO> growing;
+        private String[] ids;
+
+        @Setup
+        public void setUp() {
+            records = createDTOs(size);
+            list = fill(createRecordList(variant), records);
+            ids = shuffledIds(size);
+        }
+
+        // Appends into a list growing up to the catalogue size, then starts a new one
+        @Benchmark
+        public RecordList<ProductDTO> add() {
+            int i = next();
+            if (i == 0) growing = createRecordList(variant);
+            growing.add(records[i]);
+            return growing;
+        }
+
+        @Benchmark
+        public ProductDTO get() {
+            return list.get(ids[next()]);
+        }
+
+        @Benchmark
+        public boolean contains() {
+            return list.contains(ids[next()]);
+        }
+
+        // Removes a record and appends it back, so the size stays the same
+        @Benchmark
+        public ProductDTO removeAndAdd() {
+            ProductDTO removed = list.remove(ids[next()]);
+            list.add(removed);
+            return removed;
+        }
+    }
+
+    public static class InventoryLists extends Catalogue {
+        private InventoryList<Product> list;
+        private String[] names;
+
+        @Setup
+        public void setUp() {
+            list = createInventory(size);
+            names = new String[size];
+            int[] order = shuffledOrder(size);
+            for (int i = 0; i < size; i++) names[i] = "Product " + order[i];
+        }
+
+        @Benchmark
+        public Product getProductByName() {
+            return list.getProductByName(names[next()]);
+        }
+
+        @Benchmark
+        public Object getOutOfStockProducts() {
+            return list.getOutOfStockProducts();
+        }
+
+        @Benchmark
+        public double getInventoryValue() {
+            return list.getInventoryValue();
+        }
+    }
+
+    /**
+     * Measures name searches, short and with typos, over names made of a
+     * few common words, and renaming a product, which takes it out of
+     * those words' posting lists
+     */
+    public static class ProductNameIndexes extends Catalogue {
+        private static final String[] WORDS = {"gura", "shark", "hoodie", "suisei", "starblade", "plush",
+                "keychain", "acrylic", "stand", "figure", "poster", "mug", "towel", "sticker", "badge", "tapestry"};
+        private ProductNameIndex<Product> index;
+        private Product[] products;
+
+        /**
+         * The searched text, kept apart so that only the searches run once for every query
+         */
+        @State(Scope.Thread)
+        public static class Query {
+            @Param({"hood", "shrak plush", "starbalde"})
+            public String text;
+        }
+
+        @Setup
+        public void setUp() {
+            index = new ProductNameIndex<>();
+            for (int i = 0; i < size; i++) {
+                String name = WORDS[i % WORDS.length] + " " + WORDS[i / WORDS.length % WORDS.length] + " " + i;
+                index.add(new Product(idOf(i), new Product.ProductInfo(name, "Asacoco", 1), new Product.StockInfo(1, 1)));
+            }
+            RecordList<Product> results = index.search(WORDS[0], size);
+            products = new Product[results.size()];
+            int i = 0;
+            for (Product product : results) products[i++] = product;
+        }
+
+        @Benchmark
+        public RecordList<Product> search(Query query) {
+            return index.search(query.text, AppConfig.SEARCH_RESULTS_LIMIT);
+        }
+
+        @Benchmark
+        public Product removeAdd() {
+            Product product = products[next() % products.length];
+            index.remove(product);
+            index.add(product);
+            return product;
+        }
+    }
+
+    public static class SalesLists extends Catalogue {
+        @Param({"object", "columnar"})
+        public String variant;
+        private SalesList<ProductTotals> list;
+        private String[] ids;
+
+        @Setup
+        public void setUp() {
+            list = createSales(variant.equals("columnar") ? new ColumnarSalesList() : new SalesList<>(), size);
+            ids = shuffledIds(size);
+        }
+
+        @Benchmark
+        public ProductTotals recordPurchase() {
+            ProductTotals totals = list.get(ids[next()]);
+            totals.recordPurchase(1);
+            return totals;
+        }
+
+        @Benchmark
+        public double getTotalSales() {
+            return list.getTotalSales();
+        }
+
+        @Benchmark
+        public ProductTotals getProductWithMostSales() {
+            return list.getProductWithMostSales();
+        }
+
+        @Benchmark
+        public Object getTopBySales() {
+            return list.getTopBySales(TOP_SELLERS);
+        }
+
+        // The running total above against a scan of every product
+        @Benchmark
+        public double scanTotalSales() {
+            return list.sumTotalSales();
+        }
+    }
+
+    /**
+     * Measures firing a product event to more and more listeners
+     */
+    @State(Scope.Benchmark)
+    public static class ProductEvents extends Measured {
+        @Param({"1", "4", "16"})
+        public int listeners;
+        private final ProductDTO product = new ProductDTO("PRD-A0001", "Product", 9.99, 100);
+        private final List<Event.Subscription<ProductDTO>> subscriptions = new ArrayList<>();
+        private long handled;
+
+        @Setup
+        public void setUp() {
+            for (int i = 0; i < listeners; i++) {
+                subscriptions.add(Events.ProductRemoved.addListener("Benchmark", data -> handled++));
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            for (Event.Subscription<ProductDTO> subscription : subscriptions) subscription.unsubscribe();
+            subscriptions.clear();
+        }
+
+        @Benchmark
+        public long fireProductRemoved() {
+            Events.ProductRemoved.fire(product);
+            return handled;
+        }
+    }
+
+    /**
+     * Measures saving sales to the journal under every fsync policy. Each
+     * operation has every client save one sale at the same time and wait
+     * for its commit, so sales per second are clients * 1e9 / score
+     */
+    @State(Scope.Thread)
+    public static class Journals extends Measured {
+        // Every policy, as no values are listed
+        @Param
+        public Journal.FsyncPolicy policy;
+        @Param({"1", "64"})
+        public int clients;
+        private final SaleDTO sale = new SaleDTO("SAL-0001", System.currentTimeMillis(),
+                new String[]{"PRD-A0001", "PRD-A0002", "PRD-A0003"},
+                new double[]{149.99, 129.50, 99.00},
+                new int[]{1, 2, 1});
+        private Path path;
+        private Journal journal;
+        private Thread[] threads;
+        private Runnable commit;
+
+        @Setup
+        public void setUp() throws IOException {
+            path = Files.createTempFile("benchmark", ".journal");
+            journal = Journal.open(path, policy, 10);
+            threads = new Thread[clients];
+            commit = () -> journal.awaitCommitted(journal.logSale(sale));
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            journal.close();
+            Files.deleteIfExists(path);
+        }
+
+        @Benchmark
+        public Journal commitSale() throws InterruptedException {
+            if (clients == 1) {
+                commit.run();
+                return journal;
+            }
+            for (int i = 0; i < clients; i++) threads[i] = Thread.ofVirtual().start(commit);
+            for (Thread thread : threads) thread.join();
+            return journal;
+        }
+    }
+
+    /**
+     * Parses a whole product CSV of the catalogue size per operation,
+     * in one chunk and in chunks of 64 KiB parsed in parallel
+     */
+    public static class CsvReaders extends Catalogue {
+        @Param({"2147483647", "65536"})
+        public int chunkBytes;
+        private Path path;
+
+        @Setup
+        public void setUp() throws IOException {
+            path = Files.createTempFile("benchmark", ".csv");
+            try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+                for (int i = 0; i < size; i++) {
+                    writer.write("Product " + i + ",Asacoco," + (1 + i % 100) + "." + (i % 100) + "," + (i % 500) + ",10\n");
+                }
+            }
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            Files.deleteIfExists(path);
+        }
+
+        @Benchmark
+        public Object readProducts() throws IOException {
+            return CsvReader.read(path, chunkBytes, chunk -> new CsvReader.RowHandler() {
+                private double total;
+
+                @Override
+                public void handle(CsvReader.Row row) {
+                    total += row.getDouble(2) * row.getInt(3) + row.getString(0).length();
+                }
+
+                @Override
+                public void malformed(long line, String reason) {
+                    throw new IllegalStateException(reason);
+                }
+            });
+        }
+    }
+
+    /**
+     * Exports the totals of the whole catalogue per operation
+     */
+    public static class ExportWriters extends Catalogue {
+        @Param
+        public ExportWriter.Format format;
+        private SalesList<ProductTotals> totals;
+        private Path path;
+
+        @Setup
+        public void setUp() throws IOException {
+            totals = createSales(new ColumnarSalesList(), size);
+            path = Files.createTempFile("benchmark", ".export");
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            Files.deleteIfExists(path);
+        }
+
+        @Benchmark
+        public ExportWriter productTotals() throws IOException {
+            try (ExportWriter writer = ExportWriter.open(path, format,
+                    "product_id", "name", "price", "stock", "total_sales", "total_stock_sold")) {
+                for (ProductTotals product : totals) {
+                    writer.text(product.getId())
+                            .text(product.getName())
+                            .money(product.getPrice())
+                            .number(product.getStock())
+                            .money(product.getTotalSales())
+                            .number(product.getTotalStockSold())
+                            .endRow();
+                }
+                return writer;
+            }
+        }
+    }
+
+    public static class SalesLedgers extends Catalogue {
+        @Param({"heap", "mapped"})
+        public String variant;
+        private SalesRecord[] records;
+        private RecordList<SalesRecord> list;
+        private RecordList<SalesRecord> growing;
+        private String[] ids;
+
+        @Setup
+        public void setUp() throws IOException {
+            records = createSalesRecords(size);
+            list = fill(createLedger(variant), records);
+            growing = createLedger(variant);
+            ids = new String[size];
+            int[] order = shuffledOrder(size);
+            for (int i = 0; i < size; i++) ids[i] = "SAL-" + order[i];
+        }
+
+        // Appends sales up to the history size, then empties the ledger and starts again
+        @Benchmark
+        public RecordList<SalesRecord> add() throws IOException {
+            int i = next();
+            if (i == 0) {
+                if (growing instanceof MappedSalesLedger ledger) ledger.truncate(0);
+                else growing = createLedger(variant);
+            }
+            growing.add(records[i]);
+            return growing;
+        }
+
+        @Benchmark
+        public SalesRecord get() {
+            return list.get(ids[next()]);
+        }
+
+        @Benchmark
+        public double scanItems() {
+            double total = 0;
+            for (SalesRecord salesRecord : list) {
+                for (SalesItem item : salesRecord.getProductList()) total += item.getTotalPrice();
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Sums every item of a sales history kept in a linked list, walking it
+     * the way the aggregates used to, with its iterator, and with a
+     * sequential and a parallel stream
+     */
+    public static class SalesHistoryScans extends Catalogue {
+        private WalkableRecordList<SalesRecord> list;
+
+        @Setup
+        public void setUp() {
+            list = new WalkableRecordList<>();
+            fill(list, createSalesRecords(size));
+        }
+
+        @Benchmark
+        public double loop() {
+            double total = 0;
+            RecordList.ListNode<SalesRecord> current = list.head();
+            while (current != null) {
+                total += sumItems(current.getData());
+                current = current.getNext();
+            }
+            return total;
+        }
+
+        @Benchmark
+        public double iterator() {
+            double total = 0;
+            for (SalesRecord salesRecord : list) total += sumItems(salesRecord);
+            return total;
+        }
+
+        @Benchmark
+        public double stream() {
+            return list.stream().mapToDouble(CoreBenchmarks::sumItems).sum();
+        }
+
+        @Benchmark
+        public double parallelStream() {
+            return list.parallelStream().mapToDouble(CoreBenchmarks::sumItems).sum();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Models extends Measured {
+        private final InventoryConsolePrompter.ProductIDGenerator generator = new InventoryConsolePrompter.ProductIDGenerator();
+        private final Product product = createProduct(0);
+
+        @Benchmark
+        public String generateID() {
+            return generator.generateID();
+        }
+
+        @Benchmark
+        public String productToString() {
+            return product.toString();
+        }
+    }
+
+    private static double sumItems(SalesRecord salesRecord) {
+        double total = 0;
+        for (SalesItem item : salesRecord.getProductList()) total += item.getTotalPrice();
+        return total;
+    }
+
+    /**
+     * Opens up the head of the list, so its nodes can be walked directly
+     */
+    private static final class WalkableRecordList<T extends Record> extends RecordList<T> {
+        private RecordList.ListNode<T> head() {return head;}
+    }
+
+    private static RecordList<ProductDTO> createRecordList(String variant) {
+        return switch (variant) {
+            case "linked" -> new RecordList<>();
+            case "indexed" -> new IndexedRecordList<>();
+            case "chunked" -> new ChunkedRecordList<>();
+            default -> throw new IllegalArgumentException("Unknown record list " + variant);
+        };
+    }
+
+    private static RecordList<SalesRecord> createLedger(String variant) throws IOException {
+        return switch (variant) {
+            case "heap" -> new ChunkedRecordList<>();
+            case "mapped" -> openTemporaryLedger();
+            default -> throw new IllegalArgumentException("Unknown sales ledger " + variant);
+        };
+    }
+
+    private static SalesRecord[] createSalesRecords(int size) {
+        SalesRecord[] records = new SalesRecord[size];
+        for (int i = 0; i < size; i++) {
+            SalesRecord salesRecord = new SalesRecord("SAL-" + i, new RecordList<>(), 1_700_000_000_000L + i);
+            for (int j = 0; j < 3; j++) {
+                int product = (i * 7 + j) % 1000;
+                salesRecord.recordSale(new SalesItem("PRD-" + product, "Product " + product, 1 + product % 100, 1 + j, (1 + product % 100) * (1 + j)));
+            }
+            records[i] = salesRecord;
+        }
+        return records;
+    }
+
+    private static MappedSalesLedger openTemporaryLedger() throws IOException {
+        Path directory = Files.createTempDirectory("benchmark-ledger");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) Files.deleteIfExists(file);
+                Files.deleteIfExists(directory);
+            } catch (IOException ignored) {
+            }
+        }));
+        return MappedSalesLedger.open(directory, AppConfig.SALES_LEDGER_SEGMENT_BYTES);
+    }
+
+    private static ProductDTO[] createDTOs(int size) {
+        ProductDTO[] records = new ProductDTO[size];
+        for (int i = 0; i < size; i++) {
+            records[i] = new ProductDTO(idOf(i), "Product " + i, 1 + i % 100, 100);
+        }
+        return records;
+    }
+
+    private static InventoryList<Product> createInventory(int size) {
+        InventoryList<Product> list = new InventoryList<>();
+        for (int i = 0; i < size; i++) list.add(createProduct(i));
+        return list;
+    }
+
+    /**
+     * Creates a product where every 100th product is out
+     * of stock and every 10th product is low on stock
+     */
+    private static Product createProduct(int i) {
+        int stock = i % 100 == 0 ? 0 : (i % 10 == 0 ? 5 : 100);
+        return new Product(
+                idOf(i),
+                new Product.ProductInfo("Product " + i, "Asacoco", 1 + i % 100),
+                new Product.StockInfo(stock, 10));
+    }
+
+    /**
+     * Creates sales totals where every product has been sold a few times
+     */
+    private static SalesList<ProductTotals> createSales(SalesList<ProductTotals> list, int size) {
+        for (int i = 0; i < size; i++) {
+            list.add(idOf(i), "Product " + i, 1 + i % 100, 1_000_000).recordPurchase(1 + i % 7);
+        }
+        return list;
+    }
+
+    private static <T extends Record> RecordList<T> fill(RecordList<T> list, T[] records) {
+        for (T record : records) list.add(record);
+        return list;
+    }
+
+    private static String[] shuffledIds(int size) {
+        int[] order = shuffledOrder(size);
+        String[] ids = new String[size];
+        for (int i = 0; i < size; i++) ids[i] = idOf(order[i]);
+        return ids;
+    }
+
+    /**
+     * Gives every number below the size in a fixed random order,
+     * so that every run picks records in the same order
+     */
+    private static int[] shuffledOrder(int size) {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) order[i] = i;
+        Random random = new Random(42);
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        return order;
+    }
+
+    private static String idOf(int i) {
+        return "PRD-" + i;
+    }
+}
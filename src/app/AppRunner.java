@@ -5,6 +5,9 @@ import config.*;
 import core.domain.analytics.controller.*;
 import core.domain.inventory.controller.*;
 import core.domain.sales.controller.*;
+import core.shared.events.*;
+import core.shared.journal.*;
+import core.shared.requests.*;
 import core.shared.ui.console.*;
 
 /**
@@ -18,6 +21,7 @@ public class AppRunner {
     private final InventoryController inventoryController;
     private final SalesController salesController;
     private final AnalyticsController analyticsController;
+    private final Snapshotter snapshotter;
 
     /**
      * Public constructor of the class. Uses generic console I/O
@@ -28,17 +32,24 @@ public class AppRunner {
                      ConsolePrompter prompter,
                      InventoryController inventoryController,
                      SalesController salesController,
-                     AnalyticsController analyticsController) {
+                     AnalyticsController analyticsController,
+                     Snapshotter snapshotter) {
         this.renderer = renderer;
         this.prompter = prompter;
         this.inventoryController = inventoryController;
         this.salesController = salesController;
         this.analyticsController = analyticsController;
+        this.snapshotter = snapshotter;
     }
 
     /**
      * Main program loop. Redirects flow to module
-     * controllers depending on user choice
+     * controllers depending on user choice.
+     *
+     * Events fired by one module are handled before another module's
+     * menu is opened, so every module shows the others' latest changes
+     * even when events are handled asynchronously. With every event handled,
+     * nothing changes the state, which makes it the moment to take snapshots
      */
     public void run() {
         String[] options = {
@@ -55,6 +66,8 @@ public class AppRunner {
             renderer.showBanner(AppConfig.PROGRAM_NAME);
             renderer.showOptions(options);
             String choice = prompter.getString("choice").trim().toUpperCase();
+            Events.flush();
+            snapshotter.snapshotIfDue();
             switch(choice){
                 case "1",
                      "INVENTORY",
@@ -93,7 +106,9 @@ public class AppRunner {
                 "Back to Main Menu",
                 "Toggle Ansi Colors",
                 "Change Program Name",
-                "Change Program Tagline"
+                "Change Program Tagline",
+                "View Event Listener Timings",
+                "View Request Cache Statistics"
         };
 
         while(true){
@@ -106,6 +121,12 @@ public class AppRunner {
                      "TOGGLE ANSI COLORS" -> AppConfig.IS_ANSI_SUPPORTED = !AppConfig.IS_ANSI_SUPPORTED;
                 case "2",
                      "CHANGE PROGRAM NAME" -> AppConfig.PROGRAM_NAME = prompter.getString("new program name");
+                case "4",
+                     "TIMINGS",
+                     "VIEW EVENT LISTENER TIMINGS" -> renderer.showListenerTimings(Events.getAll());
+                case "5",
+                     "CACHES",
+                     "VIEW REQUEST CACHE STATISTICS" -> renderer.showRequestCaches(Requests.getAll());
                 case "0",
                      "BACK",
                      "BACK TO MAIN MENU" -> {
@@ -1,6 +1,7 @@
 package app;
 
 import common.util.*;
+import config.*;
 import core.domain.analytics.controller.*;
 import core.domain.analytics.manager.*;
 import core.domain.analytics.ui.console.*;
@@ -15,9 +16,13 @@ import core.domain.sales.datastructures.*;
 import core.domain.sales.manager.*;
 import core.domain.sales.model.*;
 import core.domain.sales.ui.console.*;
+import core.shared.events.*;
+import core.shared.journal.*;
+import core.shared.requests.*;
 import core.shared.ui.console.*;
 
 import java.io.*;
+import java.nio.file.*;
 /*
  * Author notes:
  * In this project, I tried implementing an event-driven architecture
@@ -48,12 +53,59 @@ public class Main {
      */
     public static void main(String[] args){
         BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+        Requests.setTimeoutMillis(AppConfig.REQUEST_TIMEOUT_MILLIS);
 
         ConsoleRenderer renderer = new ConsoleRenderer();
         ConsolePrompter prompter = new ConsolePrompter(reader);
+        Journal journal;
+        try{
+            journal = openJournal();
+        }catch(UncheckedIOException e){
+            Logger.log(e.getCause(), Logger.Severity.FATAL_ERROR, true);
+            return;
+        }
+
+        SalesManager salesManager = new SalesManager(
+                new ColumnarSalesList(),
+                openSalesLedger(),
+                journal);
+        InventoryManager inventoryManager = new InventoryManager(
+                new InventoryList<>(),
+                new ProductNameIndex<>(),
+                journal);
+        Snapshotter snapshotter = new Snapshotter(
+                Path.of(AppConfig.SNAPSHOT_FILE),
+                journal,
+                AppConfig.SNAPSHOT_INTERVAL_MILLIS,
+                inventoryManager.getSnapshotPart(),
+                salesManager.getSnapshotPart());
+
+        boolean isRecovered;
+        try{
+            isRecovered = snapshotter.recover(
+                    inventoryManager.getReplayHandler(),
+                    salesManager.getReplayHandler());
+        }catch(IOException | RuntimeException e){
+            // Running on a half-rebuilt state would journal changes on top of it
+            Logger.log(e, Logger.Severity.FATAL_ERROR, true);
+            return;
+        }
+
+        // Events are handled on the firing thread while the state is rebuilt,
+        // so replayed sales find the products replayed before them
+        if(AppConfig.EVENT_DISPATCH_LANES > 0){
+            Events.useAsyncDispatch(
+                    AppConfig.EVENT_DISPATCH_LANES,
+                    AppConfig.EVENT_QUEUE_CAPACITY,
+                    Events.Backpressure.BLOCK);
+        }
 
-        SalesController salesController = initSalesModule(reader);
-        InventoryController inventoryController = initInventoryModule(reader);
+        StockReservations reservations = new StockReservations(
+                AppConfig.STOCK_HOLD_MILLIS,
+                AppConfig.STOCK_HOLD_TICK_MILLIS,
+                AppConfig.STOCK_HOLD_WHEEL_SLOTS);
+        SalesController salesController = initSalesModule(reader, salesManager, reservations);
+        InventoryController inventoryController = initInventoryModule(reader, inventoryManager, !isRecovered);
         AnalyticsController analyticsController = initAnalyticsModule(reader);
 
         try{
@@ -62,34 +114,92 @@ public class Main {
                     prompter,
                     inventoryController,
                     salesController,
-                    analyticsController).run();
+                    analyticsController,
+                    snapshotter).run();
         }catch(Exception e){
             Logger.log(e, Logger.Severity.FATAL_ERROR, true);
+        }finally{
+            reservations.close();
+            // Fires the stock reductions still kept back, before the last snapshot
+            Events.flush();
+            Events.useSyncDispatch();
+            try{
+                snapshotter.close();
+                journal.close();
+            }catch(IOException e){
+                Logger.log(e, Logger.Severity.ERROR);
+            }
+        }
+    }
+
+    /**
+     * Opens the journal set in the config. When a new journal cannot be
+     * created, the program still runs, but keeps nothing on disk
+     *
+     * @return the opened journal, or a disabled one
+     * @throws UncheckedIOException when an existing journal cannot be opened,
+     *         since running without it would leave its changes behind
+     */
+    public static Journal openJournal(){
+        if(AppConfig.JOURNAL_FILE == null) return Journal.DISABLED;
+        Path path = Path.of(AppConfig.JOURNAL_FILE);
+        boolean exists = Files.exists(path);
+        try{
+            return Journal.open(
+                    path,
+                    AppConfig.JOURNAL_FSYNC_POLICY,
+                    AppConfig.JOURNAL_FSYNC_INTERVAL_MILLIS);
+        }catch(IOException e){
+            if(exists) throw new UncheckedIOException(e);
+            Logger.log(e, Logger.Severity.ERROR);
+            Logger.log("Journal Disabled", "Changes made from now on will not be kept on disk", Logger.Level.NOTICE);
+            return Journal.DISABLED;
+        }
+    }
+
+    /**
+     * Opens the sales ledger set in the config. When it cannot be opened,
+     * saved sales records are kept in memory instead
+     *
+     * @return the opened ledger, or an in-memory list
+     */
+    public static RecordList<SalesRecord> openSalesLedger(){
+        if(AppConfig.SALES_LEDGER_DIRECTORY == null) return new ChunkedRecordList<>();
+        try{
+            return MappedSalesLedger.open(
+                    Path.of(AppConfig.SALES_LEDGER_DIRECTORY),
+                    AppConfig.SALES_LEDGER_SEGMENT_BYTES);
+        }catch(IOException e){
+            Logger.log(e, Logger.Severity.ERROR);
+            Logger.log("Sales Ledger Disabled", "Saved sales records will be kept in memory", Logger.Level.NOTICE);
+            return new ChunkedRecordList<>();
         }
     }
 
     /**
      * Method for initializing the sales module.
-     * Different classes like its manager, prompter, view and lists
+     * Different classes like its prompter and view
      * are found to be created and passed along to whichever class
-     * that needs them
+     * that needs them. The manager is created beforehand, as its state
+     * is rebuilt from the snapshot and journal first
      *
      * @param reader the reader needed by the prompter instance of this module
+     * @param salesManager the manager of the module, with its state rebuilt
+     * @param reservations the holds on stock of sales still being recorded
      * @return sales controller that orchestrates the functionality of each class
      */
-    public static SalesController initSalesModule(BufferedReader reader){
-        RecordList<SalesRecord> salesRecordsList = new RecordList<>();
-        SalesList<ProductTotals> totalsList = new SalesList<>();
-        SalesManager salesManager = new SalesManager(
-                totalsList,
-                salesRecordsList);
+    public static SalesController initSalesModule(BufferedReader reader,
+                                                  SalesManager salesManager,
+                                                  StockReservations reservations){
         SalesConsolePrompter salesPrompter = new SalesConsolePrompter(reader);
         SalesConsoleView salesView = new SalesConsoleView();
+        salesPrompter.reserveID(salesManager.getLastSalesRecordId());
 
         return new SalesController(
                 salesView,
                 salesPrompter,
-                salesManager
+                salesManager,
+                reservations
         );
     }
 
@@ -116,19 +226,22 @@ public class Main {
     /**
      * Method for initializing the inventory module.
      * Like the two aforementioned modules, it creates the classes it needs
-     * to ensure proper functionality
+     * to ensure proper functionality. Sample products are only added
+     * the first time the program runs
      *
      * @param reader the reader needed by the prompter instance of this module
+     * @param inventoryManager the manager of the module, with its state rebuilt
+     * @param isFirstRun whether nothing was rebuilt from the snapshot and journal
      * @return inventory controller that orchestrates the functionality of each class
      */
-    public static InventoryController initInventoryModule(BufferedReader reader){
-        InventoryList<Product> inventoryList = new InventoryList<>();
+    public static InventoryController initInventoryModule(BufferedReader reader,
+                                                          InventoryManager inventoryManager,
+                                                          boolean isFirstRun){
         InventoryConsolePrompter inventoryPrompter = new InventoryConsolePrompter(reader);
         InventoryConsoleView inventoryView = new InventoryConsoleView();
-        InventoryManager inventoryManager = new InventoryManager(
-                inventoryList);
+        inventoryPrompter.reserveID(inventoryManager.getLastAddedId());
 
-        populateInventory(inventoryManager, inventoryPrompter);
+        if(isFirstRun) populateInventory(inventoryManager, inventoryPrompter);
 
         return new InventoryController(
                 inventoryView,
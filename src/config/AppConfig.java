@@ -1,5 +1,7 @@
 package config;
 
+import core.shared.journal.*;
+
 /**
  * Centralized config class for the application.
  * This stores flags and program details to be reused in the program.
@@ -17,6 +19,103 @@ public final class AppConfig {
      */
     public static String PROGRAM_NAME = "🦐 UMISEA RETAIL CLI STORE 🦐";
 
+    /**
+     * Number of products shown in the top sellers reports
+     */
+    public static int TOP_SELLERS_LIMIT = 50;
+
+    /**
+     * Number of products shown when searching products by name
+     */
+    public static int SEARCH_RESULTS_LIMIT = 10;
+
+    /**
+     * Number of event queues, each drained by its own worker thread.
+     * Every module's listeners go to the same queue, so a module handles
+     * one event at a time, in the order they were fired. Set to 0 to
+     * handle events on the firing thread
+     */
+    public static int EVENT_DISPATCH_LANES = 0;
+
+    /**
+     * Number of events each event queue can hold before firing waits
+     */
+    public static int EVENT_QUEUE_CAPACITY = 1024;
+
+    /**
+     * Stock reductions are fired as one batch per sales record. When above 0,
+     * they are kept back instead, and the pending batch is fired once it is
+     * older than this many milliseconds and another stock reduction comes in,
+     * or when events are flushed (e.g. before a module's menu is opened)
+     */
+    public static long STOCK_BATCH_WINDOW_MILLIS = 0;
+
+    /**
+     * Milliseconds the stock of an item added to a sale stays held for it.
+     * When the sale is not saved or cancelled by then, the stock is let go
+     */
+    public static long STOCK_HOLD_MILLIS = 15 * 60 * 1000;
+
+    /**
+     * Milliseconds between two looks for expired holds, the precision of the hold time
+     */
+    public static long STOCK_HOLD_TICK_MILLIS = 1000;
+
+    /**
+     * Ticks in one turn of the timing wheel of holds. Holds expiring within
+     * one turn never share a slot with later ones
+     */
+    public static int STOCK_HOLD_WHEEL_SLOTS = 1024;
+
+    /**
+     * Milliseconds an asynchronous request may take before it times out
+     */
+    public static long REQUEST_TIMEOUT_MILLIS = 2000;
+
+    /**
+     * Size of the chunks a CSV file is split into when importing products.
+     * The chunks are parsed in parallel
+     */
+    public static int IMPORT_CHUNK_BYTES = 8 << 20;
+
+    /**
+     * File that journals every change made to products and sales.
+     * Set to null to keep nothing on disk
+     */
+    public static String JOURNAL_FILE = "umisea.journal";
+
+    /**
+     * When journaled changes are synced to disk, see {@link Journal.FsyncPolicy}
+     */
+    public static Journal.FsyncPolicy JOURNAL_FSYNC_POLICY = Journal.FsyncPolicy.EVERY_RECORD;
+
+    /**
+     * Milliseconds between syncs of the journal, when synced on an interval
+     */
+    public static long JOURNAL_FSYNC_INTERVAL_MILLIS = 50;
+
+    /**
+     * Directory of the memory mapped files that keep saved sales records
+     * off the heap. Set to null to keep them in memory instead
+     */
+    public static String SALES_LEDGER_DIRECTORY = "umisea.ledger";
+
+    /**
+     * Size of each file of the sales ledger
+     */
+    public static int SALES_LEDGER_SEGMENT_BYTES = 64 << 20;
+
+    /**
+     * File that keeps the latest snapshot of the program's state, so that
+     * only what was journaled after it is replayed when the program starts
+     */
+    public static String SNAPSHOT_FILE = "umisea.snapshot";
+
+    /**
+     * Minimum milliseconds between snapshots, taken when returning to the main menu
+     */
+    public static long SNAPSHOT_INTERVAL_MILLIS = 60_000;
+
     /**
      * The program's tagline. To be used as a personalized tagline for the CLI tool
      */
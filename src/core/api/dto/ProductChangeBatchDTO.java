@@ -0,0 +1,28 @@
+package core.api.dto;
+
+/**
+ * Data transfer object for the changes made to many products at once
+ * (e.g. a mass price update, or every value of the products of an import),
+ * so that listeners handle them in one go
+ *
+ * @see ProductChangeDTO
+ */
+public class ProductChangeBatchDTO {
+    private final ProductChangeDTO[] changes;
+
+    /**
+     * @param changes the changes of every product, at most one per product
+     */
+    public ProductChangeBatchDTO(ProductChangeDTO[] changes) {
+        this.changes = changes;
+    }
+
+    // GETTERS
+    public int size() {return changes.length;}
+    public ProductChangeDTO get(int position) {return changes[position];}
+
+    @Override
+    public String toString() {
+        return String.format("Changes of %d products", changes.length);
+    }
+}
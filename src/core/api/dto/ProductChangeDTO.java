@@ -0,0 +1,77 @@
+package core.api.dto;
+
+import core.domain.api.model.Record;
+
+/**
+ * Data transfer object for the changes made to a product. Only the fields
+ * flagged in the bitmask of changed fields carry a new value, so listeners
+ * can check {@link #hasChanged(int)} and skip what they do not care about
+ */
+public class ProductChangeDTO implements Record {
+    // Flags of the bitmask of changed fields
+    public static final int NAME = 1;
+    public static final int MANUFACTURER = 1 << 1;
+    public static final int PRICE = 1 << 2;
+    public static final int STOCK = 1 << 3;
+    public static final int REORDER_POINT = 1 << 4;
+    public static final int ALL = NAME | MANUFACTURER | PRICE | STOCK | REORDER_POINT;
+
+    private final String id;
+    private final int changedFields;
+    private final String name;
+    private final String manufacturer;
+    private final double price;
+    private final int stock;
+    private final int reorderPoint;
+
+    /**
+     * @param id the id of the product changed
+     * @param changedFields bitmask of the fields changed (e.g. NAME | PRICE)
+     * @param name the new name, read only when NAME is flagged
+     * @param manufacturer the new manufacturer, read only when MANUFACTURER is flagged
+     * @param price the new price, read only when PRICE is flagged
+     * @param stock the new available stock, read only when STOCK is flagged
+     * @param reorderPoint the new reorder point, read only when REORDER_POINT is flagged
+     */
+    public ProductChangeDTO(String id,
+                            int changedFields,
+                            String name,
+                            String manufacturer,
+                            double price,
+                            int stock,
+                            int reorderPoint) {
+        this.id = id;
+        this.changedFields = changedFields;
+        this.name = name;
+        this.manufacturer = manufacturer;
+        this.price = price;
+        this.stock = stock;
+        this.reorderPoint = reorderPoint;
+    }
+
+    /**
+     * @param fields the flags of the fields to check (e.g. NAME | PRICE)
+     * @return true if any of the fields changed, otherwise false
+     */
+    public boolean hasChanged(int fields) {
+        return (changedFields & fields) != 0;
+    }
+
+    public boolean isEmpty() {
+        return changedFields == 0;
+    }
+
+    // GETTERS
+    public String getId() {return id;}
+    public int getChangedFields() {return changedFields;}
+    public String getName() {return name;}
+    public String getManufacturer() {return manufacturer;}
+    public double getPrice() {return price;}
+    public int getStock() {return stock;}
+    public int getReorderPoint() {return reorderPoint;}
+
+    @Override
+    public String toString() {
+        return String.format("Changes of %s (fields %s)", id, Integer.toBinaryString(changedFields));
+    }
+}
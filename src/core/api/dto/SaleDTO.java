@@ -0,0 +1,48 @@
+package core.api.dto;
+
+/**
+ * Data transfer object for a saved sales record. Carries when it was
+ * saved, and the product, unit price and quantity of every item sold,
+ * kept in three parallel arrays read by position
+ */
+public class SaleDTO {
+    private final String id;
+    private final long timestamp;
+    private final String[] productIds;
+    private final double[] prices;
+    private final int[] quantities;
+
+    /**
+     * @param id the id of the sales record
+     * @param timestamp when the sales record was saved, in epoch milliseconds, or 0 if unknown
+     * @param productIds the ids of the products sold
+     * @param prices the unit price of each product, at the same position as its id
+     * @param quantities the quantity sold of each product, at the same position as its id
+     */
+    public SaleDTO(String id,
+                   long timestamp,
+                   String[] productIds,
+                   double[] prices,
+                   int[] quantities) {
+        if (productIds.length != prices.length || productIds.length != quantities.length)
+            throw new IllegalArgumentException("Every item must have a price and a quantity");
+        this.id = id;
+        this.timestamp = timestamp;
+        this.productIds = productIds;
+        this.prices = prices;
+        this.quantities = quantities;
+    }
+
+    // GETTERS
+    public String getId() {return id;}
+    public long getTimestamp() {return timestamp;}
+    public int size() {return productIds.length;}
+    public String getProductId(int position) {return productIds[position];}
+    public double getPrice(int position) {return prices[position];}
+    public int getQuantity(int position) {return quantities[position];}
+
+    @Override
+    public String toString() {
+        return String.format("Sale %s of %d items", id, productIds.length);
+    }
+}
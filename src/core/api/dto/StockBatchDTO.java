@@ -0,0 +1,43 @@
+package core.api.dto;
+
+/**
+ * Data transfer object for a batch of stock changes. Carries how many
+ * items of every product were sold since the last batch, each product
+ * appearing once no matter how many times it was sold
+ *
+ * Quantities are relative, so applying a batch never overwrites a stock
+ * change the receiver made in the meantime (e.g. a manual stock edit)
+ *
+ * The ids and quantities are kept in two parallel arrays, read by position
+ */
+public class StockBatchDTO {
+    private final String batchId;
+    private final String[] ids;
+    private final int[] quantities;
+
+    /**
+     * @param batchId what the batch was made for (e.g. a sales record's id)
+     * @param ids the ids of the products sold
+     * @param quantities the number of items sold of each product, at the same position as its id
+     */
+    public StockBatchDTO(String batchId,
+                         String[] ids,
+                         int[] quantities) {
+        if (ids.length != quantities.length)
+            throw new IllegalArgumentException("Every id must have a quantity");
+        this.batchId = batchId;
+        this.ids = ids;
+        this.quantities = quantities;
+    }
+
+    // GETTERS
+    public String getBatchId() {return batchId;}
+    public int size() {return ids.length;}
+    public String getId(int position) {return ids[position];}
+    public int getQuantity(int position) {return quantities[position];}
+
+    @Override
+    public String toString() {
+        return String.format("Stock batch %s of %d products", batchId, ids.length);
+    }
+}
@@ -34,7 +34,11 @@ public class AnalyticsController {
                 "View Total Products",
                 "View Total Sales Revenue",
                 "View Product with Highest Total Sales",
-                "View Out of Stock Products"
+                "View Out of Stock Products",
+                "View Top Selling Products",
+                "View Low on Stock Products",
+                "View Total Inventory Value",
+                "View Analytics Summary"
         };
 
         while(true){
@@ -53,6 +57,14 @@ public class AnalyticsController {
                         -> view.showTopSellingProduct(manager.getTopSelling());
                 case "4", "VIEW OUT OF STOCK PRODUCTS"
                         -> view.showOutOfStock(manager.getOutOfStockProducts());
+                case "5", "VIEW TOP SELLING PRODUCTS"
+                        -> view.showTopSellingProducts(manager.getTopSellingProducts());
+                case "6", "VIEW LOW ON STOCK PRODUCTS"
+                        -> view.showLowOnStock(manager.getLowOnStockProducts());
+                case "7", "VIEW TOTAL INVENTORY VALUE"
+                        -> view.showInventoryValue(manager.getInventoryValue());
+                case "8", "VIEW ANALYTICS SUMMARY"
+                        -> view.showSummary(manager.getSummary());
                 default
                         -> Logger.log(
                         "Invalid Choice: " + choice,
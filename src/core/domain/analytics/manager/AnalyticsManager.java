@@ -1,9 +1,13 @@
 package core.domain.analytics.manager;
 
 import core.api.dto.*;
+import common.util.*;
+import core.domain.analytics.model.*;
 import core.domain.api.datastructures.*;
 import core.shared.requests.*;
 
+import java.util.concurrent.*;
+
 /**
  * Manager class for the analytics module.
  * For now, since the reports and analytics module merely
@@ -22,7 +26,7 @@ public final class AnalyticsManager {
      * @return a double reflective of the total sales
      */
     public double getTotalSales(){
-        return (double) Requests.TotalSales.request();
+        return Requests.TotalSales.requestDouble();
     }
 
     /**
@@ -31,7 +35,16 @@ public final class AnalyticsManager {
      * @return a RecordList containing out of stock products
      */
     public RecordList<ProductDTO> getOutOfStockProducts(){
-        return (RecordList<ProductDTO>) Requests.OutOfStock.request();
+        return Requests.OutOfStock.request();
+    }
+
+    /**
+     * Requests a list of products that are low on stock
+     * from the manager of the inventory module
+     * @return a RecordList containing low on stock products
+     */
+    public RecordList<ProductDTO> getLowOnStockProducts(){
+        return Requests.LowOnStock.request();
     }
 
     /**
@@ -40,10 +53,19 @@ public final class AnalyticsManager {
      * in the given program brief. The group decided it signifies the
      * number of available stock instead of showing a list of all products, etc.
      *
-     * @return an Integer object of the number of available stock
+     * @return the number of available stock
+     */
+    public int getTotalProducts(){
+        return Requests.TotalProducts.requestInt();
+    }
+
+    /**
+     * Requests to see the total value of the available stock
+     * in the inventory module
+     * @return a double reflective of the inventory's value
      */
-    public Integer getTotalProducts(){
-        return (Integer) Requests.TotalProducts.request();
+    public double getInventoryValue(){
+        return Requests.InventoryValue.requestDouble();
     }
 
     /**
@@ -53,6 +75,68 @@ public final class AnalyticsManager {
      *         top-selling product
      */
     public ProductDTO getTopSelling(){
-        return (ProductDTO) Requests.TopSellingProduct.request();
+        return Requests.TopSellingProduct.request();
+    }
+
+    /**
+     * Requests the best sellers by total sales from the
+     * manager of the sales module
+     * @return a RecordList of product DTOs, best first
+     */
+    public RecordList<ProductDTO> getTopSellingProducts(){
+        return Requests.TopSellingProducts.request();
+    }
+
+    /**
+     * Requests every report at the same time instead of one after another,
+     * so gathering them takes as long as the slowest report.
+     * A report that fails or takes longer than the requests' timeout is
+     * logged and left empty, without holding back the others
+     *
+     * @return every report of the analytics module
+     */
+    public AnalyticsSummary getSummary(){
+        CompletableFuture<Integer> totalProducts = orElse(Requests.TotalProducts.requestAsync(), -1);
+        CompletableFuture<Double> totalSales = orElse(Requests.TotalSales.requestAsync(), Double.NaN);
+        CompletableFuture<Double> inventoryValue = orElse(Requests.InventoryValue.requestAsync(), Double.NaN);
+        CompletableFuture<ProductDTO> topSelling = orElse(Requests.TopSellingProduct.requestAsync(), null);
+        CompletableFuture<RecordList<ProductDTO>> topSellingProducts = orElse(Requests.TopSellingProducts.requestAsync(), null);
+        CompletableFuture<RecordList<ProductDTO>> outOfStock = orElse(Requests.OutOfStock.requestAsync(), null);
+        CompletableFuture<RecordList<ProductDTO>> lowOnStock = orElse(Requests.LowOnStock.requestAsync(), null);
+
+        CompletableFuture.allOf(totalProducts, totalSales, inventoryValue, topSelling,
+                topSellingProducts, outOfStock, lowOnStock).join();
+        return new AnalyticsSummary(
+                totalProducts.join(),
+                totalSales.join(),
+                inventoryValue.join(),
+                topSelling.join(),
+                topSellingProducts.join(),
+                outOfStock.join(),
+                lowOnStock.join());
+    }
+
+    /**
+     * Logs a request that failed or timed out, and answers it with a fallback
+     * @param future the pending request
+     * @param fallback the response used when the request fails
+     * @return future completed with the response or the fallback
+     */
+    private static <T> CompletableFuture<T> orElse(CompletableFuture<T> future, T fallback){
+        return future.exceptionally(e -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof TimeoutException) {
+                Logger.log(
+                        "Request Timed Out",
+                        "A report took too long to gather and is left out of the summary",
+                        Logger.Level.NOTICE);
+            } else {
+                Logger.log(
+                        "Request Failed: " + cause.getMessage(),
+                        "A report could not be gathered and is left out of the summary",
+                        Logger.Level.NOTICE);
+            }
+            return fallback;
+        });
     }
 }
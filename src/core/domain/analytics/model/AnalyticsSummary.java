@@ -0,0 +1,46 @@
+package core.domain.analytics.model;
+
+import core.api.dto.*;
+import core.domain.api.datastructures.*;
+
+/**
+ * Every report of the analytics module, gathered at once.
+ * A report that failed or timed out is left empty
+ * (null for lists and products, NaN or -1 for numbers)
+ *
+ * @see core.domain.analytics.manager.AnalyticsManager#getSummary()
+ */
+public class AnalyticsSummary {
+    private final int totalProducts;
+    private final double totalSales;
+    private final double inventoryValue;
+    private final ProductDTO topSelling;
+    private final RecordList<ProductDTO> topSellingProducts;
+    private final RecordList<ProductDTO> outOfStock;
+    private final RecordList<ProductDTO> lowOnStock;
+
+    public AnalyticsSummary(int totalProducts,
+                            double totalSales,
+                            double inventoryValue,
+                            ProductDTO topSelling,
+                            RecordList<ProductDTO> topSellingProducts,
+                            RecordList<ProductDTO> outOfStock,
+                            RecordList<ProductDTO> lowOnStock) {
+        this.totalProducts = totalProducts;
+        this.totalSales = totalSales;
+        this.inventoryValue = inventoryValue;
+        this.topSelling = topSelling;
+        this.topSellingProducts = topSellingProducts;
+        this.outOfStock = outOfStock;
+        this.lowOnStock = lowOnStock;
+    }
+
+    // GETTERS
+    public int getTotalProducts() {return totalProducts;}
+    public double getTotalSales() {return totalSales;}
+    public double getInventoryValue() {return inventoryValue;}
+    public ProductDTO getTopSelling() {return topSelling;}
+    public RecordList<ProductDTO> getTopSellingProducts() {return topSellingProducts;}
+    public RecordList<ProductDTO> getOutOfStock() {return outOfStock;}
+    public RecordList<ProductDTO> getLowOnStock() {return lowOnStock;}
+}
@@ -1,6 +1,7 @@
 package core.domain.analytics.ui.console;
 
 import core.api.dto.*;
+import core.domain.analytics.model.*;
 import core.domain.api.datastructures.*;
 import core.shared.ui.console.*;
 
@@ -25,6 +26,14 @@ public class AnalyticsConsoleView extends ConsoleRenderer {
         System.out.printf("Total Sales Revenue: %.2f%n", totalSales);
     }
 
+    /**
+     * Shows the value of all available stock in the inventory module
+     * @param inventoryValue the available stock times the price of every product
+     */
+    public void showInventoryValue(double inventoryValue) {
+        System.out.printf("Total Inventory Value: %.2f%n", inventoryValue);
+    }
+
     /**
      * Shows details about the top-selling product in the sales module.
      * If the dto is non-existent, then does nothing
@@ -39,6 +48,22 @@ public class AnalyticsConsoleView extends ConsoleRenderer {
                 product.getId(), product.getName(), product.getPrice(), product.getStock());
     }
 
+    /**
+     * Shows the best sellers by total sales in the sales module,
+     * best first. If the list contains nothing, then does nothing
+     * @param products list of top-selling products
+     */
+    public void showTopSellingProducts(RecordList<ProductDTO> products) {
+        if (products == null || products.isEmpty()) return;
+        System.out.printf("""
+                ___________________________________
+                  Top Selling Products
+                -----------------------------------
+                %s
+                """,
+                products.toString());
+    }
+
     /**
      * Shows a list of products that are currently out of stock in the
      * inventory module. If the list contains nothing, then does nothing
@@ -54,4 +79,35 @@ public class AnalyticsConsoleView extends ConsoleRenderer {
                 """,
                 products.toStringReverse());
     }
+
+    /**
+     * Shows a list of products that are currently low on stock in the
+     * inventory module. If the list contains nothing, then does nothing
+     * @param products list of products that are low on stock
+     */
+    public void showLowOnStock(RecordList<ProductDTO> products) {
+        if (products == null || products.isEmpty()) return;
+        System.out.printf("""
+                ___________________________________
+                  Low on Stock Products
+                -----------------------------------
+                %s
+                """,
+                products.toStringReverse());
+    }
+
+    /**
+     * Shows every report of the analytics module, leaving out
+     * the reports that could not be gathered
+     * @param summary every report gathered at once
+     */
+    public void showSummary(AnalyticsSummary summary) {
+        if (summary.getTotalProducts() >= 0) showTotalProducts(summary.getTotalProducts());
+        if (!Double.isNaN(summary.getTotalSales())) showTotalRevenue(summary.getTotalSales());
+        if (!Double.isNaN(summary.getInventoryValue())) showInventoryValue(summary.getInventoryValue());
+        showTopSellingProduct(summary.getTopSelling());
+        showTopSellingProducts(summary.getTopSellingProducts());
+        showOutOfStock(summary.getOutOfStock());
+        showLowOnStock(summary.getLowOnStock());
+    }
 }
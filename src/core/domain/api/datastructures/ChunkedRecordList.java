@@ -0,0 +1,371 @@
+package core.domain.api.datastructures;
+
+import core.domain.api.model.Record;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Unrolled linked list backend for {@link RecordList}. Instead of one node
+ * per record, records are stored in fixed-size array chunks and only the
+ * chunks are linked together. Walking the list then reads records that sit
+ * next to each other in memory, and the two pointers of a list node are
+ * paid once per chunk instead of once per record
+ *
+ * Records are always appended after the last one, so the order is still
+ * the order they were added in. Every record gets a handle, which is its
+ * position since the list was created, and unlinking by handle is O(1):
+ * the record's slot is emptied, and a chunk whose slots are all empty is
+ * unlinked from its neighbours. Emptied slots are skipped when walking
+ * and are never reused, which suits append-mostly data like sales history
+ *
+ * Like the base list, looking up or removing by id walks the list
+ *
+ * @version 1.0
+ * @param <T> data type of the linked list instance
+ * @see RecordList
+ */
+public class ChunkedRecordList<T extends Record> extends RecordList<T> {
+    private static final int CHUNK_SHIFT = 6;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // Every chunk ever created by its number, null once emptied
+    private Chunk[] chunks;
+    private int chunkCount;
+    private Chunk first;
+    private Chunk last;
+
+    /**
+     * Fixed-size block of records. Records are only ever appended
+     * after the last used slot
+     */
+    private static final class Chunk {
+        private final Object[] items = new Object[CHUNK_SIZE];
+        private final int number;
+        private int used;
+        private int live;
+        private Chunk next;
+        private Chunk prev;
+
+        private Chunk(int number) {this.number = number;}
+    }
+
+    /**
+     * Public constructor of the class. When instantiated, it
+     * does not insert values
+     */
+    public ChunkedRecordList() {
+        this.chunks = new Chunk[16];
+    }
+
+    /**
+     * Inserts the data after the last record of the list
+     * @param data the record's data
+     */
+    @Override
+    public void add(T data) {
+        addAndGetHandle(data);
+    }
+
+    /**
+     * Inserts the data after the last record of the list
+     * @param data the record's data
+     * @return handle that can unlink the record in O(1)
+     */
+    public long addAndGetHandle(T data) {
+        if (last == null || last.used == CHUNK_SIZE) appendChunk();
+        int slot = last.used++;
+        last.items[slot] = data;
+        last.live++;
+        size++;
+        modCount++;
+        return ((long) last.number << CHUNK_SHIFT) | slot;
+    }
+
+    /**
+     * Gets the record with the given handle
+     * @param handle the handle given when the record was added
+     * @return the record's data
+     * @throws ListException when the handle points to no record
+     */
+    @SuppressWarnings("unchecked")
+    public T getByHandle(long handle) throws ListException {
+        Chunk chunk = chunkOf(handle);
+        return (T) chunk.items[(int) (handle & CHUNK_MASK)];
+    }
+
+    /**
+     * Unlinks the record with the given handle in O(1)
+     * @param handle the handle given when the record was added
+     * @return the object removed
+     * @throws ListException when the handle points to no record
+     */
+    @SuppressWarnings("unchecked")
+    public T removeByHandle(long handle) throws ListException {
+        Chunk chunk = chunkOf(handle);
+        int slot = (int) (handle & CHUNK_MASK);
+        T data = (T) chunk.items[slot];
+        chunk.items[slot] = null;
+        if (--chunk.live == 0 && chunk.used == CHUNK_SIZE) unlinkChunk(chunk);
+        size--;
+        modCount++;
+        return data;
+    }
+
+    /**
+     * Removes the record with the specified id from this list
+     * @param id the id of the record to be removed
+     * @return the object removed
+     * @throws ListException when list is empty, and id cannot be found
+     */
+    @Override
+    public T remove(String id) throws ListException {
+        return removeByHandle(findHandle(id));
+    }
+
+    /**
+     * Gets the data of the record with the specified id
+     * @param id reference to the record's identity
+     * @return data of the record
+     * @throws ListException when list is empty, and id cannot be found
+     */
+    @Override
+    public T get(String id) throws ListException {
+        return getByHandle(findHandle(id));
+    }
+
+    @Override
+    public boolean contains(String id) {
+        for (T data : this) {
+            if (data.getId().equals(id)) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new ChunkIterator(false);
+    }
+
+    @Override
+    public Iterable<T> reversed() {
+        return () -> new ChunkIterator(true);
+    }
+
+    /**
+     * Gives a spliterator over the list. Whole chunks are handed off
+     * on every split, so no records are copied
+     * @return fail-fast, ordered spliterator
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return new ChunkSpliterator(first, last, size, modCount);
+    }
+
+    /**
+     * Finds the handle of the first record with the given id
+     * @throws ListException when list is empty, and id cannot be found
+     */
+    private long findHandle(String id) throws ListException {
+        if (isEmpty()) throw new ListException("List is empty");
+        for (Chunk chunk = first; chunk != null; chunk = chunk.next) {
+            for (int slot = 0; slot < chunk.used; slot++) {
+                Object data = chunk.items[slot];
+                if (data != null && ((Record) data).getId().equals(id))
+                    return ((long) chunk.number << CHUNK_SHIFT) | slot;
+            }
+        }
+        throw new ListException("Unable to find id");
+    }
+
+    /**
+     * Gets the chunk a handle points to, checking that
+     * the handle still refers to a record
+     */
+    private Chunk chunkOf(long handle) throws ListException {
+        long number = handle >>> CHUNK_SHIFT;
+        Chunk chunk = number < chunkCount ? chunks[(int) number] : null;
+        int slot = (int) (handle & CHUNK_MASK);
+        if (handle < 0 || chunk == null || slot >= chunk.used || chunk.items[slot] == null)
+            throw new ListException("Unable to find handle " + handle);
+        return chunk;
+    }
+
+    private void appendChunk() {
+        if (chunkCount == chunks.length) {
+            Chunk[] bigger = new Chunk[chunkCount << 1];
+            System.arraycopy(chunks, 0, bigger, 0, chunkCount);
+            chunks = bigger;
+        }
+        Chunk chunk = new Chunk(chunkCount);
+        chunks[chunkCount++] = chunk;
+
+        if (last == null) {
+            first = last = chunk;
+        } else {
+            last.next = chunk;
+            chunk.prev = last;
+            last = chunk;
+        }
+    }
+
+    /**
+     * Unlinks a chunk with no records left. Only full chunks are unlinked,
+     * since the last chunk is still being appended to
+     */
+    private void unlinkChunk(Chunk chunk) {
+        if (chunk.prev != null) chunk.prev.next = chunk.next;
+        else first = chunk.next;
+        if (chunk.next != null) chunk.next.prev = chunk.prev;
+        else last = chunk.prev;
+
+        chunk.next = chunk.prev = null;
+        chunks[chunk.number] = null;
+    }
+
+    /**
+     * Iterator that walks the chunks in either direction,
+     * skipping emptied slots
+     */
+    private final class ChunkIterator implements Iterator<T> {
+        private final boolean isReversed;
+        private Chunk chunk;
+        private int slot;
+        private long lastReturned = -1;
+        private int expectedModCount;
+
+        private ChunkIterator(boolean isReversed) {
+            this.isReversed = isReversed;
+            this.chunk = isReversed ? last : first;
+            this.slot = isReversed && last != null ? last.used - 1 : 0;
+            this.expectedModCount = modCount;
+            skipEmptySlots();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return chunk != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            if (chunk == null) throw new NoSuchElementException();
+            T data = (T) chunk.items[slot];
+            lastReturned = ((long) chunk.number << CHUNK_SHIFT) | slot;
+            slot += isReversed ? -1 : 1;
+            skipEmptySlots();
+            return data;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned < 0) throw new IllegalStateException();
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            removeByHandle(lastReturned);
+            lastReturned = -1;
+            expectedModCount = modCount;
+        }
+
+        private void skipEmptySlots() {
+            while (chunk != null) {
+                if (isReversed) {
+                    while (slot >= 0 && chunk.items[slot] == null) slot--;
+                    if (slot >= 0) return;
+                    chunk = chunk.prev;
+                    if (chunk != null) slot = chunk.used - 1;
+                } else {
+                    while (slot < chunk.used && chunk.items[slot] == null) slot++;
+                    if (slot < chunk.used) return;
+                    chunk = chunk.next;
+                    slot = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Spliterator over a run of chunks, from the first to the
+     * last chunk given. Splitting hands the first half of the
+     * run's chunks to a new spliterator
+     */
+    private final class ChunkSpliterator implements Spliterator<T> {
+        private Chunk from;
+        private Chunk to;
+        private int estimate;
+        private int slot;
+        private final int expectedModCount;
+
+        private ChunkSpliterator(Chunk from, Chunk to, int estimate, int expectedModCount) {
+            this.from = from;
+            this.to = to;
+            this.estimate = estimate;
+            this.expectedModCount = expectedModCount;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while (from != null) {
+                while (slot < from.used) {
+                    Object data = from.items[slot++];
+                    if (data == null) continue;
+                    action.accept((T) data);
+                    checkForModification();
+                    return true;
+                }
+                from = from == to ? null : from.next;
+                slot = 0;
+            }
+            return false;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super T> action) {
+            for (Chunk chunk = from; chunk != null; chunk = chunk == to ? null : chunk.next) {
+                Object[] items = chunk.items;
+                for (int i = chunk == from ? slot : 0; i < chunk.used; i++) {
+                    if (items[i] != null) action.accept((T) items[i]);
+                }
+            }
+            from = null;
+            checkForModification();
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (from == null || from == to || slot != 0) return null;
+
+            // Walks two steps at a time to find the middle chunk of the run
+            Chunk middle = from;
+            int chunksInHalf = 1;
+            for (Chunk runner = from.next; runner != to && runner.next != to; runner = runner.next.next) {
+                middle = middle.next;
+                chunksInHalf++;
+            }
+            ChunkSpliterator prefix = new ChunkSpliterator(
+                    from, middle, Math.min(estimate, chunksInHalf * CHUNK_SIZE), expectedModCount);
+            from = middle.next;
+            estimate -= prefix.estimate;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            // Emptied slots make sizes estimates, so the spliterator is not SIZED
+            return Spliterator.ORDERED | Spliterator.NONNULL;
+        }
+
+        private void checkForModification() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package core.domain.api.datastructures;
+
+import core.domain.api.model.Record;
+
+import java.lang.invoke.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * Record list that can be shared by several threads at once (e.g. many
+ * checkout terminals in one program). Every method can be called from
+ * any thread, and each one takes effect at a single moment
+ *
+ * Ids are spread over stripes, each one a {@link RecordIndex} behind its
+ * own lock, so adding, getting and removing records whose ids fall in
+ * different stripes never wait for each other. Records are chained in
+ * the order they were added, and a new record is linked after the last
+ * one with a compare-and-set instead of a lock, so adds only retry when
+ * they race for the same last node
+ *
+ * Removing a record marks its node and unlinks it from its neighbours.
+ * The last node is never unlinked, as adds link after it, so a removed
+ * last node is unlinked by the add that links after it
+ *
+ * Walking the list (iterators, streams, reversed views) works on a
+ * snapshot: every stripe is locked, which stops all changes for a moment,
+ * the live records are copied out, then the stripes are unlocked. A report
+ * sees the list exactly as it was at that moment, and its iterators never
+ * throw a {@link ConcurrentModificationException}
+ *
+ * Like {@link IndexedRecordList}, adding a record whose id is already
+ * in the list is rejected
+ *
+ * @version 1.0
+ * @param <T> data type of the list instance
+ * @see RecordList
+ * @see RecordIndex
+ */
+public class ConcurrentRecordList<T extends Record> extends RecordList<T> {
+    private static final int DEFAULT_STRIPES = 16;
+    private static final VarHandle NEXT;
+    private static final VarHandle LAST;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            NEXT = lookup.findVarHandle(Node.class, "next", Node.class);
+            LAST = lookup.findVarHandle(ConcurrentRecordList.class, "last", Node.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Stripe<T>[] stripes;
+    private final int stripeShift;
+    // Never removed, so every node has one before it
+    private final Node<T> first = new Node<>(null);
+    private volatile Node<T> last = first;
+    private final ReentrantLock unlinkLock = new ReentrantLock();
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * Lock of a share of the ids, along with the index of those ids
+     */
+    private static final class Stripe<T> {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final RecordIndex<Node<T>> index = new RecordIndex<>();
+
+        private void lock() {lock.lock();}
+        private void unlock() {lock.unlock();}
+    }
+
+    private static final class Node<T> {
+        private final T data;
+        private volatile Node<T> next;
+        private volatile Node<T> prev;
+        private volatile boolean isRemoved;
+        // Guarded by the unlink lock
+        private boolean isUnlinked;
+
+        private Node(T data) {this.data = data;}
+    }
+
+    /**
+     * Public constructor of the class. When instantiated, it
+     * does not insert values
+     */
+    public ConcurrentRecordList() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Public constructor of the class with the number of stripes the ids
+     * are spread over, which bounds how many threads can change the list
+     * without waiting for each other
+     * @param stripeCount the number of stripes, rounded up to a power of two
+     */
+    public ConcurrentRecordList(int stripeCount) {
+        if (stripeCount < 1) throw new IllegalArgumentException("There must be at least one stripe");
+        int bits = 32 - Integer.numberOfLeadingZeros(stripeCount - 1);
+        this.stripeShift = 32 - bits;
+        this.stripes = newStripes(1 << bits);
+        for (int i = 0; i < stripes.length; i++) stripes[i] = new Stripe<>();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Stripe<T>[] newStripes(int length) {
+        return (Stripe<T>[]) new Stripe<?>[length];
+    }
+
+    /**
+     * Inserts the data after the last record of the list
+     * @param data the record's data
+     * @throws ListException when the id already exists in the list
+     */
+    @Override
+    public void add(T data) throws ListException {
+        Stripe<T> stripe = stripeOf(data.getId());
+        stripe.lock();
+        try {
+            if (stripe.index.containsKey(data.getId()))
+                throw new ListException("Duplicate id " + data.getId());
+            Node<T> node = new Node<>(data);
+            link(node);
+            stripe.index.put(data.getId(), node);
+            count.incrementAndGet();
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Removes the record with the specified id from this list
+     * @param id the id of the record to be removed
+     * @return the object removed
+     * @throws ListException when list is empty, and id cannot be found
+     */
+    @Override
+    public T remove(String id) throws ListException {
+        Stripe<T> stripe = stripeOf(id);
+        stripe.lock();
+        try {
+            Node<T> node = stripe.index.remove(id);
+            if (node == null) throw new ListException(isEmpty() ? "List is empty" : "Unable to find id");
+            node.isRemoved = true;
+            count.decrementAndGet();
+            unlink(node);
+            return node.data;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Gets the record with the specified id
+     * @param id reference to the record's identity
+     * @return the record's data
+     * @throws ListException when list is empty, and id cannot be found
+     */
+    @Override
+    public T get(String id) throws ListException {
+        Node<T> node = find(id);
+        if (node == null) throw new ListException(isEmpty() ? "List is empty" : "Unable to find id");
+        return node.data;
+    }
+
+    @Override
+    public boolean contains(String id) {
+        return find(id) != null;
+    }
+
+    @Override
+    public int size() {
+        return count.get();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return count.get() == 0;
+    }
+
+    /**
+     * Gives an iterator over a snapshot of the list, from the first
+     * to the last record added. Removing through the iterator removes
+     * the record from the list
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new SnapshotIterator(snapshot(), false);
+    }
+
+    /**
+     * Gives a view that walks a snapshot of the list from the latest
+     * to the oldest record, taken whenever an iterator is created
+     */
+    @Override
+    public Iterable<T> reversed() {
+        return () -> new SnapshotIterator(snapshot(), true);
+    }
+
+    /**
+     * Gives a spliterator over a snapshot of the list, which splits in halves
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return Spliterators.spliterator(snapshot(),
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+    }
+
+    /**
+     * Copies the live records, in the order they were added, while
+     * every stripe is locked
+     * @return the records, as they were at a single moment
+     */
+    public Object[] snapshot() {
+        for (Stripe<T> stripe : stripes) stripe.lock();
+        try {
+            Object[] records = new Object[count.get()];
+            int i = 0;
+            for (Node<T> node = first.next; node != null; node = node.next) {
+                if (!node.isRemoved) records[i++] = node.data;
+            }
+            return records;
+        } finally {
+            for (Stripe<T> stripe : stripes) stripe.unlock();
+        }
+    }
+
+    private Stripe<T> stripeOf(String id) {
+        // Takes the top bits, as the index of the stripe hashes on the bottom ones
+        return stripes[(int) ((id.hashCode() * 0x9E3779B9L & 0xFFFFFFFFL) >>> stripeShift)];
+    }
+
+    private Node<T> find(String id) {
+        Stripe<T> stripe = stripeOf(id);
+        stripe.lock();
+        try {
+            return stripe.index.get(id);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Links the node after the last one. Only a node whose next is empty is
+     * ever linked after, so adds never disturb nodes being unlinked
+     */
+    private void link(Node<T> node) {
+        while (true) {
+            Node<T> tail = last;
+            Node<T> next = tail.next;
+            if (next != null) {
+                // Another add linked a node but has not moved the last pointer yet
+                LAST.compareAndSet(this, tail, next);
+                continue;
+            }
+            node.prev = tail;
+            if (NEXT.compareAndSet(tail, (Node<T>) null, node)) {
+                LAST.compareAndSet(this, tail, node);
+                // It was removed while it was the last node, so it was left linked
+                if (tail.isRemoved) unlink(tail);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Joins the neighbours of a removed node, unless it is the last node
+     */
+    private void unlink(Node<T> node) {
+        unlinkLock.lock();
+        try {
+            Node<T> next = node.next;
+            if (node.isUnlinked || next == null) return;
+            Node<T> prev = node.prev;
+            prev.next = next;
+            next.prev = prev;
+            node.isUnlinked = true;
+        } finally {
+            unlinkLock.unlock();
+        }
+    }
+
+    /**
+     * Iterator over a snapshot, in either direction
+     */
+    private final class SnapshotIterator implements Iterator<T> {
+        private final Object[] records;
+        private final boolean isReversed;
+        private int next;
+        private T lastReturned;
+
+        private SnapshotIterator(Object[] records, boolean isReversed) {
+            this.records = records;
+            this.isReversed = isReversed;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < records.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (next >= records.length) throw new NoSuchElementException();
+            lastReturned = (T) records[isReversed ? records.length - 1 - next : next];
+            next++;
+            return lastReturned;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) throw new IllegalStateException();
+            ConcurrentRecordList.this.remove(lastReturned.getId());
+            lastReturned = null;
+        }
+    }
+}
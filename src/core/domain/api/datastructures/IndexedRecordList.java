@@ -0,0 +1,106 @@
+package core.domain.api.datastructures;
+
+import core.domain.api.model.Record;
+
+/**
+ * Record list that keeps a {@link RecordIndex} of id to list node alongside
+ * the doubly linked chain of its superclass. Looking up, checking and
+ * removing a record by its id no longer walks from the head, while the
+ * chain itself still decides the forward and reverse traversal order
+ *
+ * Since ids are considered immutable and unique, adding a record
+ * whose id is already in the list is rejected
+ *
+ * @version 1.0
+ * @param <T> data type of the linked list instance
+ * @see RecordList
+ * @see RecordIndex
+ */
+public class IndexedRecordList<T extends Record> extends RecordList<T> {
+    private final RecordIndex<ListNode<T>> index;
+
+    /**
+     * Public constructor of the class. When instantiated, it
+     * does not insert values
+     */
+    public IndexedRecordList() {
+        this.index = new RecordIndex<>();
+    }
+
+    /**
+     * Public constructor of the class with an expected number of records,
+     * which presizes the index for large catalogues
+     * @param expectedSize the number of records expected to be stored
+     */
+    public IndexedRecordList(int expectedSize) {
+        this.index = new RecordIndex<>(expectedSize);
+    }
+
+    /**
+     * Inserts a valued node to the ending point of the list
+     * and indexes the node by the data's id
+     * @param data the node's data
+     * @throws ListException when the id already exists in the list
+     */
+    @Override
+    public void add(T data) throws ListException {
+        if (index.containsKey(data.getId()))
+            throw new ListException("Duplicate id " + data.getId());
+        super.add(data);
+        index.put(data.getId(), tail);
+    }
+
+    /**
+     * Inserts many records to the ending point of the list, in order. The
+     * index is grown once up front instead of doubling along the way, and
+     * nothing is inserted if any id is already in the list
+     * @param records the records to be inserted, whose ids must be distinct
+     * @param count the number of records to take from the start of the array
+     * @throws ListException when an id already exists in the list
+     */
+    public void addAll(T[] records, int count) throws ListException {
+        for (int i = 0; i < count; i++) {
+            if (index.containsKey(records[i].getId()))
+                throw new ListException("Duplicate id " + records[i].getId());
+        }
+        index.ensureCapacity(size + count);
+        for (int i = 0; i < count; i++) add(records[i]);
+    }
+
+    /**
+     * Removes the node with the specified id from this list and its index
+     * @param id the location of the node to be removed
+     * @return the object removed
+     * @throws ListException when list is empty, and id cannot be found
+     */
+    @Override
+    public T remove(String id) throws ListException {
+        T data = super.remove(id);
+        index.remove(id);
+        return data;
+    }
+
+    /**
+     * Checks if the list contains an existing id
+     * @param id the id to be checked
+     * @return true if the list contains the id, otherwise false
+     */
+    @Override
+    public boolean contains(String id) {
+        return index.containsKey(id);
+    }
+
+    /**
+     * Gets the node with the specified id straight from the index
+     * @param id the reference to the node
+     * @return node with the specified id
+     * @throws ListException when list is empty, and id cannot be found
+     */
+    @Override
+    protected ListNode<T> getNodeWithId(String id) throws ListException {
+        if (isEmpty()) throw new ListException("List is empty");
+        ListNode<T> node = index.get(id);
+        if (node == null) throw new ListException("Unable to find id");
+        return node;
+    }
+}
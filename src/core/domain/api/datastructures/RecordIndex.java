@@ -0,0 +1,191 @@
+package core.domain.api.datastructures;
+
+/**
+ * Hash table that maps a record's id to a value of type V.
+ * Like the {@link RecordList}, this is a mini implementation of
+ * java's built-in HashMap, tailored for the string ids found in
+ * every {@link core.domain.api.model.Record}
+ *
+ * It uses open addressing with linear probing, meaning entries live
+ * directly inside two parallel arrays (keys and values) instead of
+ * separately allocated bucket nodes. Removal shifts the following
+ * entries back into place, so no tombstones are ever left behind
+ * and lookups stay short even after many removals
+ *
+ * @version 1.0
+ * @param <V> data type of the values stored in the index
+ */
+public final class RecordIndex<V> {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private String[] keys;
+    private V[] values;
+    private int size;
+
+    /**
+     * Public constructor of the class. Starts with a small table
+     * which doubles whenever it becomes half full
+     */
+    public RecordIndex() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Public constructor of the class with an expected number of entries,
+     * which avoids resizing when the number of records is known beforehand
+     *
+     * @param expectedSize the number of entries expected to be stored
+     */
+    @SuppressWarnings("unchecked")
+    public RecordIndex(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < expectedSize * 2) capacity <<= 1;
+        this.keys = new String[capacity];
+        this.values = (V[]) new Object[capacity];
+    }
+
+    /**
+     * Gets the value mapped to the specified id
+     * @param id the key to be searched
+     * @return the mapped value, or null if the id is not indexed
+     */
+    public V get(String id) {
+        int slot = findSlot(id);
+        return keys[slot] == null ? null : values[slot];
+    }
+
+    /**
+     * Checks if the index contains an existing id
+     * @param id the id to be checked
+     * @return true if the id is indexed, otherwise false
+     */
+    public boolean containsKey(String id) {
+        return keys[findSlot(id)] != null;
+    }
+
+    /**
+     * Maps the id to the specified value, replacing any previous mapping
+     * @param id the key of the entry
+     * @param value the value of the entry
+     * @return the previously mapped value, or null if there was none
+     */
+    public V put(String id, V value) {
+        int slot = findSlot(id);
+        if (keys[slot] != null) {
+            V old = values[slot];
+            values[slot] = value;
+            return old;
+        }
+
+        keys[slot] = id;
+        values[slot] = value;
+        if (++size * 2 > keys.length) resize(keys.length << 1);
+        return null;
+    }
+
+    /**
+     * Removes the entry of the specified id. Entries probed after the removed
+     * slot are shifted back so every remaining key is still reachable
+     * @param id the key of the entry to be removed
+     * @return the removed value, or null if the id is not indexed
+     */
+    public V remove(String id) {
+        int slot = findSlot(id);
+        if (keys[slot] == null) return null;
+
+        V old = values[slot];
+        int mask = keys.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+
+        while (keys[next] != null) {
+            int home = hash(keys[next]) & mask;
+            // Moves the entry into the hole if its home slot does not lie
+            // (cyclically) between the hole and its current position
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+
+        keys[hole] = null;
+        values[hole] = null;
+        size--;
+        return old;
+    }
+
+    /**
+     * Grows the table once so that the expected number of entries fits
+     * without further resizing (e.g. before a bulk insert)
+     * @param expectedSize the number of entries expected to be stored
+     */
+    public void ensureCapacity(int expectedSize) {
+        int capacity = keys.length;
+        while (capacity < expectedSize * 2) capacity <<= 1;
+        if (capacity != keys.length) resize(capacity);
+    }
+
+    /** Removes every entry while keeping the current capacity */
+    public void clear() {
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = null;
+            values[i] = null;
+        }
+        size = 0;
+    }
+
+    /** @return number of ids stored in the index */
+    public int size() {return size;}
+
+    /** @return true if there are no entries, otherwise false */
+    public boolean isEmpty() {return size == 0;}
+
+    /**
+     * Finds the slot where the id lives, or the empty slot where it would be
+     * inserted. The table is never full, so the probe always terminates
+     * @param id the key to be searched
+     * @return index of the slot
+     */
+    private int findSlot(String id) {
+        int mask = keys.length - 1;
+        int slot = hash(id) & mask;
+        while (keys[slot] != null && !keys[slot].equals(id)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Re-inserts every entry into a bigger table
+     * @param capacity the new capacity, always a power of two
+     */
+    @SuppressWarnings("unchecked")
+    private void resize(int capacity) {
+        String[] oldKeys = keys;
+        V[] oldValues = values;
+        keys = new String[capacity];
+        values = (V[]) new Object[capacity];
+
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null) continue;
+            int slot = hash(oldKeys[i]) & mask;
+            while (keys[slot] != null) slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    /**
+     * Spreads the higher bits of the string hash downwards, since generated ids
+     * (e.g. PRD-A0001, PRD-A0002) only differ in their last few characters
+     * @param id the key to be hashed
+     * @return the spread hash code
+     */
+    private static int hash(String id) {
+        int h = id.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -2,6 +2,10 @@ package core.domain.api.datastructures;
 
 import core.domain.api.model.Record;
 
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
 /**
  * Linked list data structure that handles list nodes with
  * two pointers. This is merely a mini implementation of
@@ -10,15 +14,23 @@ import core.domain.api.model.Record;
  * To avoid redundant code, this RecordList is tailored for
  * model instances that extends the Record interface
  *
+ * The list can be walked with a for-each loop in either direction, and
+ * streamed through {@link #stream()} or {@link #parallelStream()}. Its
+ * iterators are fail-fast, meaning they throw a
+ * {@link ConcurrentModificationException} once the list is changed
+ * by anything other than the iterator itself
+ *
  * @version 1.2
  * @param <T> data type of the linked list instance
  * @see Record
  * @see ListNode
  */
-public class RecordList<T extends Record>{
+public class RecordList<T extends Record> implements Iterable<T> {
     protected ListNode<T> head;
     protected ListNode<T> tail;
     protected int size;
+    // Number of structural changes, checked by iterators to fail fast
+    protected int modCount;
 
     /**
      * Internal class for handling list exceptions.
@@ -42,12 +54,8 @@ public class RecordList<T extends Record>{
      * @return true if the list contains the id, otherwise false
      */
     public boolean contains(String id) {
-        if (isEmpty()) return false;
-
-        ListNode<T> current = head;
-        while (current != null) {
-            if (current.getData().getId().equals(id)) return true;
-            current = current.getNext();
+        for (T data : this) {
+            if (data.getId().equals(id)) return true;
         }
         return false;
     }
@@ -68,13 +76,13 @@ public class RecordList<T extends Record>{
         if(isEmpty()){
             head = new ListNode<>(data);
             tail = head;
-            return;
         }else{
             tail.setNext(new ListNode<>(data));
             tail.getNext().setPrev(tail);
             tail = tail.getNext();
         }
         size++;
+        modCount++;
     }
 
     /**
@@ -99,32 +107,71 @@ public class RecordList<T extends Record>{
         return getNodeWithId(id).getData();
     }
 
+    /** @return number of nodes in the list */
+    public int size(){
+        return size;
+    }
+
     /**
      * Checks if list is empty
      * @return true if empty, otherwise false
      */
     public boolean isEmpty(){
-        return head == null;
+        return size == 0;
+    }
+
+    /**
+     * Gives an iterator that walks the list from head to tail
+     * @return fail-fast forward iterator
+     */
+    @Override
+    public Iterator<T> iterator(){
+        return new RecordIterator(false);
+    }
+
+    /**
+     * Gives a view of the list that walks it from tail to head,
+     * which is how the latest records are shown first
+     * @return iterable whose iterators walk the list in reverse
+     */
+    public Iterable<T> reversed(){
+        return () -> new RecordIterator(true);
+    }
+
+    /**
+     * Gives a spliterator over the list. Since a linked list cannot
+     * be split in half without walking it, each split hands off a batch
+     * of nodes copied into an array, with batches growing in size so
+     * large lists are fanned out across cores quickly
+     * @return fail-fast, ordered spliterator
+     */
+    @Override
+    public Spliterator<T> spliterator(){
+        return new RecordSpliterator();
+    }
+
+    /** @return sequential stream of the list, from head to tail */
+    public Stream<T> stream(){
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /** @return parallel stream of the list, in head to tail encounter order */
+    public Stream<T> parallelStream(){
+        return StreamSupport.stream(spliterator(), true);
     }
 
     public String toString(){
         StringBuilder sb = new StringBuilder();
-
-        ListNode<T> current = head;
-        while(current!=null){
-            sb.append(current.getData().toString());
-            current = current.getNext();
+        for(T data : this){
+            sb.append(data.toString());
         }
         return sb.toString();
     }
 
     public String toStringReverse(){
         StringBuilder sb = new StringBuilder();
-
-        ListNode<T> current = tail;
-        while(current!=null){
-            sb.append(current.getData().toString());
-            current = current.getPrev();
+        for(T data : reversed()){
+            sb.append(data.toString());
         }
         return sb.toString();
     }
@@ -146,7 +193,7 @@ public class RecordList<T extends Record>{
      * @return node with the specified id
      * @throws ListException
      */
-    private ListNode<T> getNodeWithId(String id) throws ListException{
+    protected ListNode<T> getNodeWithId(String id) throws ListException{
         if(isEmpty()) throw new ListException("List is empty");
         ListNode<T> current = head;
         while(current!=null){
@@ -163,7 +210,7 @@ public class RecordList<T extends Record>{
      * handles all potential edge cases before removing the node
      * @param node the node to be removed
      */
-    private void removeNode(ListNode<T> node) {
+    protected void removeNode(ListNode<T> node) {
         if (node == null) return;
 
         if (isSingle()) {
@@ -180,6 +227,134 @@ public class RecordList<T extends Record>{
         node.setPrev(null);
 
         size--;
+        modCount++;
+    }
+
+    /**
+     * Iterator that walks the list in either direction. Removing through
+     * the iterator goes through {@link #remove(String)}, so subclasses
+     * keep their own indexes in step
+     */
+    private final class RecordIterator implements Iterator<T> {
+        private final boolean isReversed;
+        private ListNode<T> next;
+        private ListNode<T> lastReturned;
+        private int expectedModCount;
+
+        private RecordIterator(boolean isReversed){
+            this.isReversed = isReversed;
+            this.next = isReversed ? tail : head;
+            this.expectedModCount = modCount;
+        }
+
+        @Override
+        public boolean hasNext(){
+            return next != null;
+        }
+
+        @Override
+        public T next(){
+            checkForModification();
+            if(next == null) throw new NoSuchElementException();
+            lastReturned = next;
+            next = isReversed ? next.getPrev() : next.getNext();
+            return lastReturned.getData();
+        }
+
+        @Override
+        public void remove(){
+            if(lastReturned == null) throw new IllegalStateException();
+            checkForModification();
+            RecordList.this.remove(lastReturned.getData().getId());
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+
+        private void checkForModification(){
+            if(modCount != expectedModCount) throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Spliterator that walks the list from head to tail and splits
+     * off growing batches of nodes as arrays
+     */
+    private final class RecordSpliterator implements Spliterator<T> {
+        private static final int BATCH_UNIT = 1 << 10;
+        private static final int MAX_BATCH = 1 << 25;
+
+        private ListNode<T> current;
+        private int remaining;
+        private int batch;
+        private int expectedModCount;
+        private boolean isBound;
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action){
+            bind();
+            if(current == null) return false;
+            T data = current.getData();
+            current = current.getNext();
+            remaining--;
+            action.accept(data);
+            checkForModification();
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action){
+            bind();
+            ListNode<T> node = current;
+            current = null;
+            remaining = 0;
+            while(node != null){
+                action.accept(node.getData());
+                node = node.getNext();
+            }
+            checkForModification();
+        }
+
+        @Override
+        public Spliterator<T> trySplit(){
+            bind();
+            if(current == null || remaining <= 1) return null;
+
+            int n = Math.min(Math.min(batch + BATCH_UNIT, MAX_BATCH), remaining);
+            Object[] array = new Object[n];
+            int i = 0;
+            while(i < n && current != null){
+                array[i++] = current.getData();
+                current = current.getNext();
+            }
+            batch = i;
+            remaining -= i;
+            checkForModification();
+            return Spliterators.spliterator(array, 0, i, characteristics());
+        }
+
+        @Override
+        public long estimateSize(){
+            bind();
+            return remaining;
+        }
+
+        @Override
+        public int characteristics(){
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL;
+        }
+
+        // Binds to the list at first use rather than creation, like java's own lists
+        private void bind(){
+            if(isBound) return;
+            isBound = true;
+            current = head;
+            remaining = size;
+            expectedModCount = modCount;
+        }
+
+        private void checkForModification(){
+            if(modCount != expectedModCount) throw new ConcurrentModificationException();
+        }
     }
 
     /**
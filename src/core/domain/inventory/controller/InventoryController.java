@@ -6,6 +6,8 @@ import core.domain.inventory.manager.*;
 import core.domain.inventory.model.*;
 import core.domain.inventory.ui.console.*;
 
+import java.nio.file.*;
+
 /**
  * Controller class for the inventory module.
  * Directs flow to where it should occur
@@ -39,7 +41,9 @@ public class InventoryController {
             "Update Product",
             "Remove product",
             "Search Product By ID",
-            "Search Product By Name"
+            "Search Product By Name",
+            "Update All Prices",
+            "Import Products from CSV"
         };
 
         while(true){
@@ -76,10 +80,16 @@ public class InventoryController {
 
                 case "7", "SEARCH PRODUCT BY NAME"
                         -> {
-                    Product product = manager.findProductByName(prompter.getString("name"));
-                    view.showProduct(product);
+                    RecordList<Product> products = manager.searchProductsByName(prompter.getString("name"));
+                    view.showProducts(products);
                 }
 
+                case "8", "PRICES", "UPDATE ALL PRICES"
+                        -> manager.updatePrices(prompter.getDouble("price change in percent (e.g. 10 or -5)"));
+
+                case "9", "IMPORT", "IMPORT PRODUCTS FROM CSV"
+                        -> manager.importProducts(Path.of(prompter.getString("CSV file path")), prompter::generateID);
+
                 default
                     -> Logger.log(
                         "Invalid Choice: " + choice,
@@ -116,6 +126,7 @@ public class InventoryController {
         public void updateMenu(){
             Product product = getProductToUpdate();
             if(product==null) return;
+            Product.Snapshot before = product.snapshot();
 
             while(true){
                 view.showProduct(product);
@@ -125,16 +136,16 @@ public class InventoryController {
 
                 switch(choice){
                     case "0", "BACK", "BACK TO MAIN MENU"
-                            -> { manager.fireProductUpdatedEvent(product);
+                            -> { manager.fireProductUpdatedEvent(product, before);
                                 return;
                     }
                     case "1", "NAME", "CHANGE PRODUCT NAME"
                             -> manager.updateName(product,
-                            prompter.getString("new product name"));
+                            prompter.getText("new product name"));
 
                     case "2", "MANUFACTURER", "CHANGE PRODUCT MANUFACTURER"
                             -> manager.updateManufacturer(product,
-                            prompter.getString("new manufacturer"));
+                            prompter.getText("new manufacturer"));
 
                     case "3", "PRICE", "CHANGE PRODUCT PRICE"
                             -> manager.updatePrice(product,
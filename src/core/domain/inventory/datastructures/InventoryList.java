@@ -4,7 +4,81 @@ import core.api.dto.*;
 import core.domain.api.datastructures.*;
 import core.domain.inventory.model.*;
 
-public class InventoryList<T extends Product> extends RecordList<T> {
+/**
+ * Indexed list of products that also groups its products by
+ * {@link Product.StockInfo.Status}. Each product added to the list reports
+ * its stock changes back through {@link Product.StockInfo.StockListener},
+ * so a product is moved to its new group the moment its status changes and
+ * stock reports only cost as much as the products they return
+ *
+ * The same stock changes, along with price changes reported through
+ * {@link Product.ProductInfo.PriceListener}, keep a running total of the
+ * available stock and of the inventory's value. The value is kept in cents
+ * so that adding and taking out amounts never drifts
+ *
+ * A product is expected to belong to one inventory list at a time,
+ * since the list takes over the product's stock and price listeners
+ *
+ * @param <T> data type of the linked list instance
+ * @see Product
+ */
+public class InventoryList<T extends Product> extends IndexedRecordList<T> {
+    private final IndexedRecordList<T>[] statusGroups;
+    private long totalStock;
+    private long totalValueInCents;
+
+    /**
+     * Public constructor of the class. Creates an empty
+     * group for every stock status
+     */
+    @SuppressWarnings("unchecked")
+    public InventoryList() {
+        Product.StockInfo.Status[] statuses = Product.StockInfo.Status.values();
+        statusGroups = (IndexedRecordList<T>[]) new IndexedRecordList<?>[statuses.length];
+        for (int i = 0; i < statuses.length; i++) {
+            statusGroups[i] = new IndexedRecordList<>();
+        }
+    }
+
+    /**
+     * Inserts a product to the ending point of the list, files it
+     * under its current stock status and starts listening to its stock
+     * and price
+     * @param data the node's data
+     */
+    @Override
+    public void add(T data){
+        super.add(data);
+        getStatusGroup(data.getStockInfo().getStatus()).add(data);
+        data.getStockInfo().setStockListener(
+                (oldStock, oldStatus) -> handleStockChange(data, oldStock, oldStatus));
+        data.getProductInfo().setPriceListener(
+                oldPrice -> handlePriceChange(data, oldPrice));
+
+        int stock = data.getStockInfo().getAvailableStock();
+        totalStock += stock;
+        totalValueInCents += stock * toCents(data.getProductInfo().getPrice());
+    }
+
+    /**
+     * Removes the product with the specified id from this list
+     * and from its stock status group
+     * @param id the location of the node to be removed
+     * @return the object removed
+     */
+    @Override
+    public T remove(String id){
+        T data = super.remove(id);
+        data.getStockInfo().setStockListener(null);
+        data.getProductInfo().setPriceListener(null);
+        getStatusGroup(data.getStockInfo().getStatus()).remove(id);
+
+        int stock = data.getStockInfo().getAvailableStock();
+        totalStock -= stock;
+        totalValueInCents -= stock * toCents(data.getProductInfo().getPrice());
+        return data;
+    }
+
     /**
      * Gets the first occurrence of a product that contains the
      * name to be searched
@@ -13,14 +87,10 @@ public class InventoryList<T extends Product> extends RecordList<T> {
      * @return the first occurrence of  which contains
      */
     public Product getProductByName(String name){
-        ListNode<T> current = head;
-        while(current != null){
-            if(current.getData().getProductInfo().getName().equalsIgnoreCase(name)){
-                return current.getData();
-            }
-            current = current.getNext();
-        }
-        throw new ListException("Unable to find product with name " + name);
+        return stream()
+                .filter(data -> data.getProductInfo().getName().equalsIgnoreCase(name))
+                .findFirst()
+                .orElseThrow(() -> new ListException("Unable to find product with name " + name));
     }
 
     /**
@@ -28,51 +98,136 @@ public class InventoryList<T extends Product> extends RecordList<T> {
      *
      * @return an int containing the number of the
      * total amount of available stock
+     * @throws ArithmeticException when the total no longer fits an int
      */
     public int getNumberOfProducts(){
-        int num = 0;
-        ListNode<T> current = head;
-        while(current != null){
-            num+= current.getData().getStockInfo().getAvailableStock();
-            current = current.getNext();
-        }
-        return num;
+        return Math.toIntExact(totalStock);
+    }
+
+    /**
+     * Gets the total value of the inventory, which is the
+     * available stock times the price of every product
+     *
+     * @return the value of all available stock
+     */
+    public double getInventoryValue(){
+        return totalValueInCents / 100.0;
+    }
+
+    /**
+     * Gets the products that are out of stock, in the order
+     * they became out of stock
+     *
+     * @return RecordList of out of stock products
+     */
+    public RecordList<Product> getOutOfStockProducts(){
+        return getProductsWithStatus(Product.StockInfo.Status.OUT_OF_STOCK);
     }
 
     /**
+     * Gets the products that are low on stock, in the order
+     * they became low on stock
      *
-     * @return
+     * @return RecordList of low on stock products
      */
-    public InventoryList<Product> getOutOfStockProducts(){
-        InventoryList<Product> list = new InventoryList<>();
-
-        ListNode<T> current = head;
-        while(current != null){
-            if(current.getData().getStockInfo().getStatus() == Product.StockInfo.Status.OUT_OF_STOCK)
-                list.add(current.getData());
-            current = current.getNext();
+    public RecordList<Product> getLowOnStockProducts(){
+        return getProductsWithStatus(Product.StockInfo.Status.LOW_ON_STOCK);
+    }
+
+    /**
+     * Gets the products having the given stock status. Only the
+     * status group is walked, never the whole inventory
+     *
+     * @param status the stock status to be searched
+     * @return RecordList of products with the status
+     */
+    public RecordList<Product> getProductsWithStatus(Product.StockInfo.Status status){
+        RecordList<Product> list = new RecordList<>();
+        for(T data : getStatusGroup(status)){
+            list.add(data);
         }
         return list;
     }
 
+    /**
+     * @param status the stock status to be counted
+     * @return number of products with the status
+     */
+    public int countProductsWithStatus(Product.StockInfo.Status status){
+        return getStatusGroup(status).size();
+    }
+
     /**
      * Gives a RecordList composed of ProductDTOs converted inventory list to a
      *
      * @return RecordList of ProductDTOs
      */
     public RecordList<ProductDTO> convertListToDTO(){
-        RecordList<ProductDTO> list = new RecordList<>();
+        return convertToDTO(this);
+    }
+
+    /**
+     * Gives a RecordList composed of ProductDTOs of the products having
+     * the given stock status, converted straight from the status group
+     *
+     * @param status the stock status to be converted
+     * @return RecordList of ProductDTOs
+     */
+    public RecordList<ProductDTO> convertStatusToDTO(Product.StockInfo.Status status){
+        return convertToDTO(getStatusGroup(status));
+    }
+
+    /**
+     * Adjusts the running totals by the change in stock and moves
+     * the product to another status group if its status changed
+     * @param data the product whose stock information changed
+     * @param oldStock the available stock before the change
+     * @param oldStatus the status before the change
+     */
+    private void handleStockChange(T data, int oldStock, Product.StockInfo.Status oldStatus){
+        int difference = data.getStockInfo().getAvailableStock() - oldStock;
+        totalStock += difference;
+        totalValueInCents += difference * toCents(data.getProductInfo().getPrice());
 
-        ListNode<T> current = head;
-        while(current != null){
-            Product data = current.getData();
+        Product.StockInfo.Status newStatus = data.getStockInfo().getStatus();
+        if(newStatus == oldStatus) return;
+
+        getStatusGroup(oldStatus).remove(data.getId());
+        getStatusGroup(newStatus).add(data);
+    }
+
+    /**
+     * Adjusts the inventory value by the change in price of the available stock
+     * @param data the product whose price changed
+     * @param oldPrice the price before the change
+     */
+    private void handlePriceChange(T data, double oldPrice){
+        long difference = toCents(data.getProductInfo().getPrice()) - toCents(oldPrice);
+        totalValueInCents += difference * data.getStockInfo().getAvailableStock();
+    }
+
+    private static long toCents(double price){
+        return Math.round(price * 100);
+    }
+
+    private IndexedRecordList<T> getStatusGroup(Product.StockInfo.Status status){
+        return statusGroups[status.ordinal()];
+    }
+
+    /**
+     * Converts the given products into DTOs
+     * @param products the products to be converted
+     * @return RecordList of ProductDTOs
+     */
+    private static RecordList<ProductDTO> convertToDTO(Iterable<? extends Product> products){
+        RecordList<ProductDTO> list = new RecordList<>();
+        for(Product data : products){
             list.add(new ProductDTO(
                data.getId(),
                data.getProductInfo().getName(),
                data.getProductInfo().getPrice(),
                data.getStockInfo().getAvailableStock()
             ));
-            current = current.getNext();
         }
         return list;
     }
@@ -0,0 +1,406 @@
+package core.domain.inventory.datastructures;
+
+import core.domain.api.datastructures.*;
+import core.domain.inventory.model.*;
+
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Search index over product names. Names are split into lower-cased
+ * tokens (e.g. "Gura Shark Hoodie" becomes gura, shark and hoodie),
+ * and every token keeps the products whose names contain it
+ *
+ * On top of the tokens, each distinct token is broken into character
+ * trigrams padded at both ends (hood becomes $$h, $ho, hoo, ood and od$).
+ * A query token only needs to be compared against the tokens it shares
+ * trigrams with, which is how prefix and typo-tolerant matches are found
+ * without going through the whole vocabulary, let alone every product
+ *
+ * Every query token is scored per product by its best match:
+ * an exact token scores the most, then a prefix, then a token within
+ * a small edit distance. Products are ranked by their summed score
+ *
+ * The index is maintained by whoever changes the names, since
+ * product names have no listener of their own
+ *
+ * @version 1.0
+ * @param <T> data type of the indexed products
+ * @see InventoryList
+ */
+public class ProductNameIndex<T extends Product> {
+    private static final int EXACT_SCORE = 3;
+    private static final int PREFIX_SCORE = 2;
+    private static final int FUZZY_SCORE = 1;
+    private static final String PADDING = "$";
+
+    private final RecordIndex<Token<T>> tokens = new RecordIndex<>();
+    private final RecordIndex<Bucket<Token<T>>> trigrams = new RecordIndex<>();
+
+    /**
+     * A distinct token of the vocabulary and the products having it
+     */
+    private static final class Token<T extends Product> {
+        private final String text;
+        private final Bucket<T> products = new Bucket<>(product -> product.getId());
+
+        private Token(String text) {this.text = text;}
+    }
+
+    /**
+     * Growable array with swap removal, used for posting lists.
+     * Order does not matter since results are ranked anyway.
+     * Buckets given a key for their items look up the position of an
+     * item to remove once they outgrow a few items, so taking a product
+     * out of a common token does not walk every product having it
+     */
+    private static final class Bucket<E> {
+        private static final int INDEXED_SIZE = 16;
+
+        private final Function<E, String> keyOf;
+        private Object[] items = new Object[4];
+        private int size;
+        // Position of every item by its key, once the bucket is big enough
+        private RecordIndex<int[]> positions;
+
+        private Bucket() {this(null);}
+
+        private Bucket(Function<E, String> keyOf) {this.keyOf = keyOf;}
+
+        private void add(E item) {
+            if (size == items.length) {
+                Object[] bigger = new Object[size << 1];
+                System.arraycopy(items, 0, bigger, 0, size);
+                items = bigger;
+            }
+            if (positions != null) positions.put(keyOf.apply(item), new int[]{size});
+            items[size++] = item;
+            if (positions == null && keyOf != null && size > INDEXED_SIZE) {
+                positions = new RecordIndex<>(size << 1);
+                for (int i = 0; i < size; i++) positions.put(keyOf.apply(get(i)), new int[]{i});
+            }
+        }
+
+        private void remove(E item) {
+            int i = indexOf(item);
+            if (i < 0) return;
+            E last = get(--size);
+            items[i] = last;
+            items[size] = null;
+            if (positions != null) {
+                positions.remove(keyOf.apply(item));
+                if (last != item) positions.get(keyOf.apply(last))[0] = i;
+            }
+        }
+
+        private int indexOf(E item) {
+            if (positions != null) {
+                int[] position = positions.get(keyOf.apply(item));
+                return position != null && items[position[0]] == item ? position[0] : -1;
+            }
+            for (int i = 0; i < size; i++) {
+                if (items[i] == item) return i;
+            }
+            return -1;
+        }
+
+        @SuppressWarnings("unchecked")
+        private E get(int i) {return (E) items[i];}
+    }
+
+    /**
+     * Scored search hit, used while ranking
+     */
+    private static final class Hit<T extends Product> {
+        private final T product;
+        private int score;
+        private int tokenScore;
+        private int lastQueryToken = -1;
+
+        private Hit(T product) {this.product = product;}
+    }
+
+    /**
+     * Indexes every token of the product's current name
+     * @param product the product to be indexed
+     */
+    public void add(T product) {
+        String[] texts = tokenize(product.getProductInfo().getName());
+        for (int t = 0; t < texts.length; t++) {
+            String text = texts[t];
+            if (isRepeated(texts, t)) continue;
+            Token<T> token = tokens.get(text);
+            if (token == null) {
+                token = new Token<>(text);
+                tokens.put(text, token);
+                for (String trigram : trigramsOf(text, true)) {
+                    Bucket<Token<T>> bucket = trigrams.get(trigram);
+                    if (bucket == null) {
+                        bucket = new Bucket<>(vocabularyToken -> vocabularyToken.text);
+                        trigrams.put(trigram, bucket);
+                    }
+                    bucket.add(token);
+                }
+            }
+            token.products.add(product);
+        }
+    }
+
+    /**
+     * Takes the product out of the index. Must be called with the
+     * name it was indexed with, so before the name is changed
+     * @param product the product to be taken out
+     */
+    public void remove(T product) {
+        String[] texts = tokenize(product.getProductInfo().getName());
+        for (int t = 0; t < texts.length; t++) {
+            String text = texts[t];
+            if (isRepeated(texts, t)) continue;
+            Token<T> token = tokens.get(text);
+            if (token == null) continue;
+
+            token.products.remove(product);
+            if (token.products.size > 0) continue;
+
+            // Drops tokens no product uses anymore from the vocabulary
+            tokens.remove(text);
+            for (String trigram : trigramsOf(text, true)) {
+                Bucket<Token<T>> bucket = trigrams.get(trigram);
+                if (bucket == null) continue;
+                bucket.remove(token);
+                if (bucket.size == 0) trigrams.remove(trigram);
+            }
+        }
+    }
+
+    /**
+     * Searches for products whose names match the query, best match first.
+     * Every word of the query may match a name's word exactly,
+     * as the beginning of a word, or with a typo or two
+     *
+     * @param query the name, or part of it, to be searched
+     * @param limit maximum number of products to get
+     * @return list of at most limit matching products, best first
+     */
+    public RecordList<T> search(String query, int limit) {
+        String[] queryTokens = tokenize(query);
+        RecordIndex<Hit<T>> hits = new RecordIndex<>();
+        Bucket<Hit<T>> ranked = new Bucket<>();
+
+        for (int q = 0; q < queryTokens.length; q++) {
+            String queryToken = queryTokens[q];
+            Bucket<Hit<T>> touched = new Bucket<>();
+
+            for (Token<T> candidate : findCandidates(queryToken)) {
+                int score = scoreToken(queryToken, candidate.text);
+                if (score == 0) continue;
+
+                for (int i = 0; i < candidate.products.size; i++) {
+                    T product = candidate.products.get(i);
+                    Hit<T> hit = hits.get(product.getId());
+                    if (hit == null) {
+                        hit = new Hit<>(product);
+                        hits.put(product.getId(), hit);
+                        ranked.add(hit);
+                    }
+                    // Only the best match of each query token counts
+                    if (hit.lastQueryToken != q) {
+                        hit.lastQueryToken = q;
+                        hit.tokenScore = 0;
+                        touched.add(hit);
+                    }
+                    hit.tokenScore = Math.max(hit.tokenScore, score);
+                }
+            }
+            for (int i = 0; i < touched.size; i++) {
+                touched.get(i).score += touched.get(i).tokenScore;
+            }
+        }
+
+        return rank(ranked, limit);
+    }
+
+    /**
+     * Finds the tokens of the vocabulary that could match the query token,
+     * which are the ones sharing enough trigrams with it
+     * @param queryToken the word of the query
+     * @return tokens worth scoring
+     */
+    private Token<T>[] findCandidates(String queryToken) {
+        Token<T> exact = tokens.get(queryToken);
+        String[] grams = trigramsOf(queryToken, false);
+        RecordIndex<int[]> shared = new RecordIndex<>();
+        Bucket<Token<T>> candidates = new Bucket<>();
+        if (exact != null) {
+            candidates.add(exact);
+            shared.put(exact.text, new int[]{Integer.MIN_VALUE});
+        }
+
+        // A prefix shares every trigram of the query, while each edit destroys
+        // at most three (four for swapped characters). Short queries would
+        // then need a single shared trigram, making a candidate of every token
+        // with the same first letter, so a third of them must be shared at
+        // least. A typo in the first two letters of a short query is missed
+        int minShared = Math.max(grams.length - 4 * maxEdits(queryToken), (grams.length + 2) / 3);
+        for (String gram : grams) {
+            Bucket<Token<T>> bucket = trigrams.get(gram);
+            if (bucket == null) continue;
+            for (int i = 0; i < bucket.size; i++) {
+                Token<T> token = bucket.get(i);
+                int[] count = shared.get(token.text);
+                if (count == null) {
+                    count = new int[1];
+                    shared.put(token.text, count);
+                }
+                if (++count[0] == minShared) candidates.add(token);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        Token<T>[] array = (Token<T>[]) new Token<?>[candidates.size];
+        for (int i = 0; i < candidates.size; i++) array[i] = candidates.get(i);
+        return array;
+    }
+
+    /**
+     * Scores how well a token of the vocabulary matches the query token
+     * @return the match score, or 0 if it does not match
+     */
+    private static int scoreToken(String queryToken, String token) {
+        if (token.equals(queryToken)) return EXACT_SCORE;
+        if (token.startsWith(queryToken)) return PREFIX_SCORE;
+
+        int maxEdits = maxEdits(queryToken);
+        if (maxEdits > 0 && editDistance(queryToken, token, maxEdits) <= maxEdits) return FUZZY_SCORE;
+        // Typos are also tolerated when the query is the beginning of a longer word
+        if (maxEdits > 0 && token.length() > queryToken.length()
+                && editDistance(queryToken, token.substring(0, queryToken.length()), maxEdits) <= maxEdits)
+            return FUZZY_SCORE;
+        return 0;
+    }
+
+    /** Short words tolerate fewer typos, since they match almost anything otherwise */
+    private static int maxEdits(String queryToken) {
+        if (queryToken.length() <= 3) return 0;
+        return queryToken.length() <= 6 ? 1 : 2;
+    }
+
+    /**
+     * Counts the edits (insertion, deletion, substitution or swapping two
+     * neighbouring characters) that turn one word into the other.
+     * Gives up early once every path exceeds the given maximum
+     * @return the edit distance, or maxEdits + 1 if it exceeds the maximum
+     */
+    private static int editDistance(String a, String b, int maxEdits) {
+        if (Math.abs(a.length() - b.length()) > maxEdits) return maxEdits + 1;
+
+        int[] beforePrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j;
+
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMinimum = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1))
+                    current[j] = Math.min(current[j], beforePrevious[j - 2] + 1);
+                rowMinimum = Math.min(rowMinimum, current[j]);
+            }
+            if (rowMinimum > maxEdits) return maxEdits + 1;
+
+            int[] temp = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = temp;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * Orders the hits by score, then by name, keeping only the best ones
+     */
+    private RecordList<T> rank(Bucket<Hit<T>> hits, int limit) {
+        @SuppressWarnings("unchecked")
+        Hit<T>[] best = (Hit<T>[]) new Hit<?>[Math.max(0, Math.min(limit, hits.size))];
+        int count = 0;
+
+        // Insertion into a bounded array, since the limit is small
+        for (int i = 0; i < hits.size; i++) {
+            Hit<T> hit = hits.get(i);
+            int position = count;
+            while (position > 0 && outranks(hit, best[position - 1])) position--;
+            if (position >= best.length) continue;
+
+            int last = Math.min(count, best.length - 1);
+            System.arraycopy(best, position, best, position + 1, last - position);
+            best[position] = hit;
+            if (count < best.length) count++;
+        }
+
+        RecordList<T> list = new RecordList<>();
+        for (int i = 0; i < count; i++) list.add(best[i].product);
+        return list;
+    }
+
+    private static <T extends Product> boolean outranks(Hit<T> a, Hit<T> b) {
+        if (a.score != b.score) return a.score > b.score;
+        return a.product.getProductInfo().getName()
+                .compareToIgnoreCase(b.product.getProductInfo().getName()) < 0;
+    }
+
+    /**
+     * Checks if the word already appeared earlier in the same name,
+     * so a product is listed only once under each token
+     */
+    private static boolean isRepeated(String[] texts, int index) {
+        for (int i = 0; i < index; i++) {
+            if (texts[i].equals(texts[index])) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Splits the text into lower-cased words of letters and digits
+     * @param text the text to be split
+     * @return the words of the text, duplicates included
+     */
+    private static String[] tokenize(String text) {
+        String folded = text.toLowerCase(Locale.ROOT);
+        String[] words = new String[folded.length()];
+        int count = 0;
+        int start = -1;
+
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean isWordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (isWordChar && start < 0) start = i;
+            if (!isWordChar && start >= 0) {
+                words[count++] = folded.substring(start, i);
+                start = -1;
+            }
+        }
+
+        String[] result = new String[count];
+        System.arraycopy(words, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * Breaks the token into trigrams, with two pads at the start so even
+     * a single character has one. The trailing pad is left out of queries
+     * so that a query still shares all its trigrams with longer words
+     * @param token the token to be broken down
+     * @param padEnd whether the end of the token is padded too
+     * @return the trigrams of the token
+     */
+    private static String[] trigramsOf(String token, boolean padEnd) {
+        String padded = PADDING + PADDING + token + (padEnd ? PADDING : "");
+        String[] grams = new String[padded.length() - 2];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = padded.substring(i, i + 3);
+        }
+        return grams;
+    }
+}
@@ -1,53 +1,81 @@
 package core.domain.inventory.manager;
 
 import common.util.*;
+import config.*;
 import core.api.dto.*;
 import core.domain.api.datastructures.*;
 import core.domain.inventory.datastructures.*;
 import core.domain.inventory.model.*;
+import core.shared.csv.*;
 import core.shared.events.*;
+import core.shared.journal.*;
 import core.shared.requests.*;
 
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.*;
+
 /**
  * Class that manages inventory, it also makes publisher
  * fire appropriate events on data mutation / update
  *
+ * Every change is journaled before it is fired, and the manager waits
+ * until the journal has committed it
+ *
  * @see InventoryList
+ * @see ProductNameIndex
  * @see Product
  * @see RecordList
  * @see RecordList.ListException
  * @see ProductDTO
+ * @see Journal
  */
 public class InventoryManager {
     private final InventoryList<Product> inventory;
+    private final ProductNameIndex<Product> nameIndex;
+    private final Journal journal;
+    private String lastAddedId;
     /**
      * Public constructor for the inventory manager class
      *
      * @param inventory the database/list used by the class
+     * @param nameIndex the search index over the names of the inventory's products
+     * @param journal the journal that keeps every change made to products
      */
-    public InventoryManager(InventoryList<Product> inventory) {
-        Events.StockReduction.addListener(this::handleStockReduction);
-        Requests.OutOfStock.setSupplier(this::getOutOfStockProductsForDataTransfer);
+    public InventoryManager(InventoryList<Product> inventory,
+                            ProductNameIndex<Product> nameIndex,
+                            Journal journal) {
+        Events.StockReductionBatch.addListener("InventoryManager.handleStockReductionBatch", this::handleStockReductionBatch);
+        // Stock reports only change with these events, and are cached in between.
+        // The listeners above are connected first, so the inventory is
+        // updated before the caches are cleared
+        Event<?>[] stockChanges = {
+                Events.StockReductionBatch, Events.ProductAdded,
+                Events.ProductsAdded, Events.ProductUpdated, Events.ProductsUpdated, Events.ProductRemoved};
+        Requests.OutOfStock.setCachedSupplier("InventoryManager", this::getOutOfStockProductsForDataTransfer, stockChanges);
+        Requests.LowOnStock.setCachedSupplier("InventoryManager", this::getLowOnStockProductsForDataTransfer, stockChanges);
         Requests.TotalProducts.setSupplier(this::getNumberOfProducts);
+        Requests.InventoryValue.setSupplier(this::getInventoryValue);
         this.inventory = inventory;
-
+        this.nameIndex = nameIndex;
+        this.journal = journal;
     }
 
     /**
-     * Handles incoming data about stock reduction from the sales module.
-     * However, it's not verified whether it really came from the sales
-     * module as the {@link Events} class is a simple implementation
-     * of an event system. The method only assumes that event fires are supposed
-     * to be a ProductDTO
+     * Handles a batch of stock reductions from the sales module in one pass,
+     * taking the quantity sold of every product in the batch off its stock,
+     * down to zero at most. Products no longer in the inventory are skipped,
+     * as their stock no longer matters
      *
-     * @param o an unverified data type assumed to be a ProductDTO,
-     *          which contains new stock value
+     * @param batch the batch which contains the quantities sold
      */
-    public void handleStockReduction(Object o) {
-        if(!(o instanceof ProductDTO)) return;
-        ProductDTO productDTO = (ProductDTO) o;
-        Product product = inventory.get(productDTO.getId());
-        product.getStockInfo().setAvailableStock(productDTO.getStock());
+    public void handleStockReductionBatch(StockBatchDTO batch) {
+        for(int i = 0; i < batch.size(); i++){
+            if(!inventory.contains(batch.getId(i))) continue;
+            Product.StockInfo stock = inventory.get(batch.getId(i)).getStockInfo();
+            stock.setAvailableStock(Math.max(0, stock.getAvailableStock() - batch.getQuantity(i)));
+        }
     }
 
     /**
@@ -56,10 +84,80 @@ public class InventoryManager {
      * for other modules to listen to
      *
      * @param product the product to be added
+     * @throws IllegalArgumentException when its name or manufacturer is too long to be journaled
      */
     public void addProduct(Product product){
-        inventory.add(product);
+        checkText(product.getProductInfo().getName());
+        checkText(product.getProductInfo().getManufacturer());
+        insertProduct(product);
+        long position = journal.logProductAdded(convertProductToChangeDTO(product));
         Events.ProductAdded.fire(convertProductToDTO(product));
+        journal.awaitCommitted(position);
+    }
+
+    /**
+     * Adds every valid product of a CSV file (name, manufacturer, price,
+     * stock and reorder point per row) in one go. The file is parsed in
+     * chunks, in parallel, then the products are given ids in file order,
+     * inserted at once, journaled as one batch and fired as one products
+     * added event, which is handled before this returns. Invalid rows are
+     * skipped, and the first few are logged
+     *
+     * @param path the CSV file
+     * @param idGenerator gives out the id of every product added
+     * @return number of products added
+     */
+    public int importProducts(Path path, Supplier<String> idGenerator){
+        CsvReader.Chunk<ProductCsvRows>[] chunks;
+        try{
+            chunks = CsvReader.read(path, AppConfig.IMPORT_CHUNK_BYTES, ProductCsvRows::new);
+        }catch(IOException | UncheckedIOException e){
+            Logger.log(e, Logger.Severity.NOTICE);
+            return 0;
+        }
+
+        int count = 0;
+        long rejected = 0;
+        for(CsvReader.Chunk<ProductCsvRows> chunk : chunks){
+            ProductCsvRows rows = chunk.getHandler();
+            count += rows.size();
+            for(int i = 0; i < rows.getKeptErrorCount() && rejected + i < ProductCsvRows.MAX_KEPT_ERRORS; i++){
+                Logger.log("Row Skipped",
+                        "Line " + chunk.toFileLine(rows.getErrorLine(i)) + ": " + rows.getError(i),
+                        Logger.Level.NOTICE);
+            }
+            rejected += rows.getErrorCount();
+        }
+
+        if(count > 0){
+            Product[] products = new Product[count];
+            ProductChangeDTO[] added = new ProductChangeDTO[count];
+            int k = 0;
+            for(CsvReader.Chunk<ProductCsvRows> chunk : chunks){
+                ProductCsvRows rows = chunk.getHandler();
+                for(int i = 0; i < rows.size(); i++, k++){
+                    products[k] = new Product(
+                            idGenerator.get(),
+                            new Product.ProductInfo(rows.getName(i), rows.getManufacturer(i), rows.getPrice(i)),
+                            new Product.StockInfo(rows.getStock(i), rows.getReorderPoint(i)));
+                    added[k] = convertProductToChangeDTO(products[k]);
+                }
+            }
+            inventory.addAll(products, count);
+            for(Product product : products) nameIndex.add(product);
+            lastAddedId = products[count - 1].getId();
+
+            ProductChangeBatchDTO batch = new ProductChangeBatchDTO(added);
+            long position = journal.logProductsAdded(batch);
+            Events.ProductsAdded.fire(batch);
+            // Every module knows the new products before any change to them is fired
+            Events.flush();
+            journal.awaitCommitted(position);
+        }
+        Logger.log("Import Finished",
+                String.format("Added %,d products from %s, skipped %,d rows", count, path.getFileName(), rejected),
+                Logger.Level.NOTICE);
+        return count;
     }
 
     /**
@@ -71,8 +169,10 @@ public class InventoryManager {
      */
     public void removeProduct(String id){
         try{
-            Product product = inventory.remove(id);
+            Product product = deleteProduct(id);
+            long position = journal.logProductRemoved(id);
             Events.ProductRemoved.fire(convertProductToDTO(product));
+            journal.awaitCommitted(position);
         }catch(RecordList.ListException e){
             Logger.log(e, Logger.Severity.NOTICE);
         }
@@ -93,17 +193,30 @@ public class InventoryManager {
 
     /**
      * Gets a ProductDTO recordList containing all instances of
-     * products
-     * @return
+     * out of stock products
+     * @return RecordList of ProductDTOs
      */
     public RecordList<ProductDTO> getOutOfStockProductsForDataTransfer(){
-        return inventory.getOutOfStockProducts().convertListToDTO();
+        return inventory.convertStatusToDTO(Product.StockInfo.Status.OUT_OF_STOCK);
+    }
+
+    /**
+     * Gets a ProductDTO recordList containing all instances of
+     * products that are low on stock
+     * @return RecordList of ProductDTOs
+     */
+    public RecordList<ProductDTO> getLowOnStockProductsForDataTransfer(){
+        return inventory.convertStatusToDTO(Product.StockInfo.Status.LOW_ON_STOCK);
     }
 
     public int getNumberOfProducts(){
         return inventory.getNumberOfProducts();
     }
 
+    public double getInventoryValue(){
+        return inventory.getInventoryValue();
+    }
+
     /**
      * Finds a first occurrence of a product having the given name, case ignored
      * @param name
@@ -118,8 +231,64 @@ public class InventoryManager {
         }
     }
 
-    public void fireProductUpdatedEvent(Product product){
-        Events.ProductUpdated.fire(convertProductToDTO(product));
+    /**
+     * Searches products whose names match the query exactly, by the
+     * beginning of their words or with small typos, best match first
+     * @param query the name, or part of it, to be searched
+     * @return list of matching products, or null if nothing matches
+     */
+    public RecordList<Product> searchProductsByName(String query){
+        RecordList<Product> products = nameIndex.search(query, AppConfig.SEARCH_RESULTS_LIMIT);
+        if(products.isEmpty()){
+            Logger.log("No Match", "Unable to find product with name " + query, Logger.Level.NOTICE);
+            return null;
+        }
+        return products;
+    }
+
+    /**
+     * Fires a product updated event carrying only the values changed since
+     * the snapshot was taken. Nothing is fired when nothing changed
+     * @param product the product updated
+     * @param before the product's values before the update
+     */
+    public void fireProductUpdatedEvent(Product product, Product.Snapshot before){
+        ProductChangeDTO change = convertChangesToDTO(product, before);
+        if(change.isEmpty()) return;
+        long position = journal.logProductUpdated(change);
+        Events.ProductUpdated.fire(change);
+        journal.awaitCommitted(position);
+    }
+
+    /**
+     * Changes the price of every product by a percentage, rounded to
+     * the cent, and fires the price changes as one products updated event.
+     * Events still queued are handled first, so that the new prices
+     * are applied after any older change
+     * @param percentage how much prices change (e.g. 10 for +10%, -5 for -5%)
+     */
+    public void updatePrices(double percentage){
+        if(percentage <= -100){
+            Logger.log("Invalid Percentage", "Prices cannot go down by 100% or more", Logger.Level.NOTICE);
+            return;
+        }
+        Events.flush();
+        ProductChangeDTO[] changes = new ProductChangeDTO[inventory.size()];
+        int count = 0;
+        for(Product product : inventory){
+            Product.Snapshot before = product.snapshot();
+            double price = Math.round(before.getPrice() * (100 + percentage)) / 100.0;
+            if(price == before.getPrice()) continue;
+
+            product.getProductInfo().setPrice(price);
+            changes[count++] = convertChangesToDTO(product, before);
+        }
+        if(count == 0) return;
+        if(count < changes.length) changes = Arrays.copyOf(changes, count);
+        ProductChangeBatchDTO batch = new ProductChangeBatchDTO(changes);
+        long position = journal.logProductsUpdated(batch);
+        Events.ProductsUpdated.fire(batch);
+        journal.awaitCommitted(position);
     }
 
     public void updateAvailableStock(Product product, int newValue){
@@ -133,11 +302,15 @@ public class InventoryManager {
 
 
     public void updateName(Product product, String name){
+        checkText(name);
+        nameIndex.remove(product);
         product.getProductInfo().setName(name);
+        nameIndex.add(product);
     }
 
 
     public void updateManufacturer(Product product, String manufacturer){
+        checkText(manufacturer);
         product.getProductInfo().setManufacturer(manufacturer);
     }
 
@@ -147,10 +320,211 @@ public class InventoryManager {
     }
 
 
+    /**
+     * Refuses a name or manufacturer the journal cannot keep, before
+     * anything is changed in memory
+     *
+     * @param text the name or manufacturer
+     * @throws IllegalArgumentException when the text is too long to be journaled
+     */
+    private static void checkText(String text){
+        if(!Journal.canJournal(text))
+            throw new IllegalArgumentException("Text cannot be longer than " + Journal.MAX_TEXT_BYTES + " bytes");
+    }
+
     public RecordList<Product> getInventory(){
         return inventory;
     }
 
+    /** @return id of the product added last, even if since removed, or null */
+    public String getLastAddedId(){
+        return lastAddedId;
+    }
+
+    /* =============================================
+     *  SNAPSHOT / JOURNAL REPLAY
+     * ============================================*/
+
+    /**
+     * Gets the inventory's share of a snapshot: every product with all its
+     * values. Restoring it fires nothing, as every module restores its own share
+     * @return the inventory's snapshot part
+     */
+    public Snapshotter.Part getSnapshotPart(){
+        return new Snapshotter.Part() {
+            @Override
+            public String getName() {
+                return "inventory";
+            }
+
+            @Override
+            public Snapshotter.Writer capture() {
+                return captureProducts();
+            }
+
+            @Override
+            public void restore(DataInput in) throws IOException {
+                restoreProducts(in);
+            }
+        };
+    }
+
+    /**
+     * Gets the handler that re-applies journaled product changes when the
+     * program starts. Changes are applied and fired like the original
+     * changes were, without being journaled again
+     * @return the inventory's journal handler
+     */
+    public JournalReader.Handler getReplayHandler(){
+        return new JournalReader.Handler() {
+            @Override
+            public void productAdded(ProductChangeDTO product) {
+                Product added = convertDTOToProduct(product);
+                insertProduct(added);
+                Events.ProductAdded.fire(convertProductToDTO(added));
+            }
+
+            @Override
+            public void productUpdated(ProductChangeDTO change) {
+                Product product = findProductById(change.getId());
+                if(product == null) return;
+                applyChanges(product, change);
+                Events.ProductUpdated.fire(change);
+            }
+
+            @Override
+            public void productRemoved(String id) {
+                try{
+                    Events.ProductRemoved.fire(convertProductToDTO(deleteProduct(id)));
+                }catch(RecordList.ListException e){
+                    Logger.log(e, Logger.Severity.NOTICE);
+                }
+            }
+        };
+    }
+
+    /**
+     * Copies the values of every product into columns, which stay
+     * unchanged while they are written
+     */
+    private Snapshotter.Writer captureProducts(){
+        int size = inventory.size();
+        String[] ids = new String[size];
+        String[] names = new String[size];
+        String[] manufacturers = new String[size];
+        double[] prices = new double[size];
+        int[] stocks = new int[size];
+        int[] reorderPoints = new int[size];
+        int i = 0;
+        for(Product product : inventory){
+            ids[i] = product.getId();
+            names[i] = product.getProductInfo().getName();
+            manufacturers[i] = product.getProductInfo().getManufacturer();
+            prices[i] = product.getProductInfo().getPrice();
+            stocks[i] = product.getStockInfo().getAvailableStock();
+            reorderPoints[i] = product.getStockInfo().getReorderPoint();
+            i++;
+        }
+        String lastId = lastAddedId;
+        return out -> {
+            out.writeUTF(lastId == null ? "" : lastId);
+            out.writeInt(size);
+            for(int j = 0; j < size; j++){
+                out.writeUTF(ids[j]);
+                out.writeUTF(names[j]);
+                out.writeUTF(manufacturers[j]);
+                out.writeDouble(prices[j]);
+                out.writeInt(stocks[j]);
+                out.writeInt(reorderPoints[j]);
+            }
+        };
+    }
+
+    private void restoreProducts(DataInput in) throws IOException {
+        String lastId = in.readUTF();
+        int size = in.readInt();
+        for(int i = 0; i < size; i++){
+            insertProduct(new Product(
+                    in.readUTF(),
+                    new Product.ProductInfo(in.readUTF(), in.readUTF(), in.readDouble()),
+                    new Product.StockInfo(in.readInt(), in.readInt())));
+        }
+        lastAddedId = lastId.isEmpty() ? null : lastId;
+    }
+
+    private void insertProduct(Product product){
+        inventory.add(product);
+        nameIndex.add(product);
+        lastAddedId = product.getId();
+    }
+
+    private Product deleteProduct(String id){
+        Product product = inventory.remove(id);
+        nameIndex.remove(product);
+        return product;
+    }
+
+    /**
+     * Sets the values flagged as changed, keeping the name index up to date
+     */
+    private void applyChanges(Product product, ProductChangeDTO change){
+        if(change.hasChanged(ProductChangeDTO.NAME)) updateName(product, change.getName());
+        if(change.hasChanged(ProductChangeDTO.MANUFACTURER)) updateManufacturer(product, change.getManufacturer());
+        if(change.hasChanged(ProductChangeDTO.PRICE)) updatePrice(product, change.getPrice());
+        if(change.hasChanged(ProductChangeDTO.STOCK)) updateAvailableStock(product, change.getStock());
+        if(change.hasChanged(ProductChangeDTO.REORDER_POINT)) updateReorderPoint(product, change.getReorderPoint());
+    }
+
+    private Product convertDTOToProduct(ProductChangeDTO product){
+        return new Product(
+                product.getId(),
+                new Product.ProductInfo(product.getName(), product.getManufacturer(), product.getPrice()),
+                new Product.StockInfo(product.getStock(), product.getReorderPoint()));
+    }
+
+    /**
+     * Compares the product with its values before an update
+     * @param product the product updated
+     * @param before the product's values before the update
+     * @return DTO carrying the values that changed
+     */
+    private ProductChangeDTO convertChangesToDTO(Product product, Product.Snapshot before){
+        Product.ProductInfo info = product.getProductInfo();
+        Product.StockInfo stock = product.getStockInfo();
+        int changedFields = 0;
+        if(!info.getName().equals(before.getName())) changedFields |= ProductChangeDTO.NAME;
+        if(!info.getManufacturer().equals(before.getManufacturer())) changedFields |= ProductChangeDTO.MANUFACTURER;
+        if(info.getPrice() != before.getPrice()) changedFields |= ProductChangeDTO.PRICE;
+        if(stock.getAvailableStock() != before.getAvailableStock()) changedFields |= ProductChangeDTO.STOCK;
+        if(stock.getReorderPoint() != before.getReorderPoint()) changedFields |= ProductChangeDTO.REORDER_POINT;
+
+        return new ProductChangeDTO(
+                product.getId(),
+                changedFields,
+                info.getName(),
+                info.getManufacturer(),
+                info.getPrice(),
+                stock.getAvailableStock(),
+                stock.getReorderPoint()
+        );
+    }
+
+    /**
+     * @param product the product to be journaled
+     * @return DTO carrying every value of the product
+     */
+    private ProductChangeDTO convertProductToChangeDTO(Product product){
+        return new ProductChangeDTO(
+                product.getId(),
+                ProductChangeDTO.ALL,
+                product.getProductInfo().getName(),
+                product.getProductInfo().getManufacturer(),
+                product.getProductInfo().getPrice(),
+                product.getStockInfo().getAvailableStock(),
+                product.getStockInfo().getReorderPoint()
+        );
+    }
+
     private ProductDTO convertProductToDTO(Product product){
         return new ProductDTO(
                 product.getId(),
@@ -0,0 +1,131 @@
+package core.domain.inventory.manager;
+
+import core.shared.csv.*;
+
+import java.util.*;
+
+/**
+ * Validated products of one chunk of a product CSV, kept in columns
+ * until every chunk is parsed and ids can be given out in file order
+ *
+ * Rows have the fields name, manufacturer, price, stock and reorder point,
+ * in that order. A first row starting with the field "name" is taken as
+ * a header and skipped. Rows that fail validation are counted, and the
+ * first few are kept to tell the user why
+ *
+ * @see InventoryManager#importProducts
+ * @see CsvReader
+ */
+final class ProductCsvRows implements CsvReader.RowHandler {
+    static final int FIELD_COUNT = 5;
+    static final int MAX_KEPT_ERRORS = 20;
+    static final int MAX_TEXT_LENGTH = 1000;
+
+    private final boolean isFirstChunk;
+    private String[] names = new String[64];
+    private String[] manufacturers = new String[64];
+    private double[] prices = new double[64];
+    private int[] stocks = new int[64];
+    private int[] reorderPoints = new int[64];
+    private int size;
+    private final long[] errorLines = new long[MAX_KEPT_ERRORS];
+    private final String[] errors = new String[MAX_KEPT_ERRORS];
+    private int errorCount;
+
+    /**
+     * @param chunk index of the chunk the rows come from, the first chunk being 0
+     */
+    ProductCsvRows(int chunk) {
+        this.isFirstChunk = chunk == 0;
+    }
+
+    @Override
+    public void handle(CsvReader.Row row) {
+        if (isFirstChunk && row.getLine() == 1 && row.getString(0).equalsIgnoreCase("name")) return;
+        if (row.getFieldCount() != FIELD_COUNT) {
+            reject(row.getLine(), "Expected " + FIELD_COUNT + " fields but found " + row.getFieldCount());
+            return;
+        }
+        if (row.isEmpty(0)) {
+            reject(row.getLine(), "Name cannot be empty");
+            return;
+        }
+        if (row.isEmpty(1)) {
+            reject(row.getLine(), "Manufacturer cannot be empty");
+            return;
+        }
+
+        double price;
+        int stock;
+        int reorderPoint;
+        try {
+            price = row.getDouble(2);
+            stock = row.getInt(3);
+            reorderPoint = row.getInt(4);
+        } catch (NumberFormatException e) {
+            reject(row.getLine(), e.getMessage());
+            return;
+        }
+        if (!(price >= 0) || Double.isInfinite(price)) {
+            reject(row.getLine(), "Price must be a non-negative number");
+            return;
+        }
+        if (stock < 0 || reorderPoint < 0) {
+            reject(row.getLine(), "Stock and reorder point cannot be negative");
+            return;
+        }
+
+        String name = row.getString(0);
+        String manufacturer = row.getString(1);
+        if (name.length() > MAX_TEXT_LENGTH || manufacturer.length() > MAX_TEXT_LENGTH) {
+            reject(row.getLine(), "Name and manufacturer cannot be longer than " + MAX_TEXT_LENGTH + " characters");
+            return;
+        }
+
+        if (size == names.length) grow();
+        names[size] = name;
+        manufacturers[size] = manufacturer;
+        prices[size] = price;
+        stocks[size] = stock;
+        reorderPoints[size] = reorderPoint;
+        size++;
+    }
+
+    @Override
+    public void malformed(long line, String reason) {
+        reject(line, reason);
+    }
+
+    private void reject(long line, String reason) {
+        if (errorCount < MAX_KEPT_ERRORS) {
+            errorLines[errorCount] = line;
+            errors[errorCount] = reason;
+        }
+        errorCount++;
+    }
+
+    private void grow() {
+        int length = names.length << 1;
+        names = Arrays.copyOf(names, length);
+        manufacturers = Arrays.copyOf(manufacturers, length);
+        prices = Arrays.copyOf(prices, length);
+        stocks = Arrays.copyOf(stocks, length);
+        reorderPoints = Arrays.copyOf(reorderPoints, length);
+    }
+
+    // GETTERS
+    int size() {return size;}
+    String getName(int i) {return names[i];}
+    String getManufacturer(int i) {return manufacturers[i];}
+    double getPrice(int i) {return prices[i];}
+    int getStock(int i) {return stocks[i];}
+    int getReorderPoint(int i) {return reorderPoints[i];}
+
+    /** @return number of rows rejected, including those not kept */
+    int getErrorCount() {return errorCount;}
+
+    /** @return number of rejected rows kept, at most {@link #MAX_KEPT_ERRORS} */
+    int getKeptErrorCount() {return Math.min(errorCount, MAX_KEPT_ERRORS);}
+    long getErrorLine(int i) {return errorLines[i];}
+    String getError(int i) {return errors[i];}
+}
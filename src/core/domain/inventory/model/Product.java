@@ -28,6 +28,20 @@ public class Product implements Record {
     public ProductInfo getProductInfo() {return productInfo;}
     public StockInfo getStockInfo() {return stockInfo;}
 
+    /**
+     * Copies the product's current values, to find out
+     * later which of them were changed
+     * @return the product's current values
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(
+                productInfo.getName(),
+                productInfo.getManufacturer(),
+                productInfo.getPrice(),
+                stockInfo.getAvailableStock(),
+                stockInfo.getReorderPoint());
+    }
+
     @Override
     public String toString(){
         return String.format("""
@@ -41,6 +55,32 @@ public class Product implements Record {
                 );
     }
 
+    /**
+     * Copy of a product's values at some point in time
+     */
+    public static final class Snapshot {
+        private final String name;
+        private final String manufacturer;
+        private final double price;
+        private final int availableStock;
+        private final int reorderPoint;
+
+        private Snapshot(String name, String manufacturer, double price, int availableStock, int reorderPoint) {
+            this.name = name;
+            this.manufacturer = manufacturer;
+            this.price = price;
+            this.availableStock = availableStock;
+            this.reorderPoint = reorderPoint;
+        }
+
+        // GETTERS
+        public String getName() {return name;}
+        public String getManufacturer() {return manufacturer;}
+        public double getPrice() {return price;}
+        public int getAvailableStock() {return availableStock;}
+        public int getReorderPoint() {return reorderPoint;}
+    }
+
     /**
      * This class is a segment of the product model. This holds all relevant
      * information about the product
@@ -49,6 +89,16 @@ public class Product implements Record {
         private String name;
         private String manufacturer;
         private double price;
+        private PriceListener priceListener;
+
+        /**
+         * Functional interface for whoever keeps aggregates over prices
+         * (e.g. the inventory list), notified with the price before a change
+         */
+        @FunctionalInterface
+        public interface PriceListener {
+            void handle(double oldPrice);
+        }
 
         /**
          * Public constructor for product information
@@ -69,7 +119,12 @@ public class Product implements Record {
         // SETTERS
         public void setName(String name) {this.name = name;}
         public void setManufacturer(String manufacturer) {this.manufacturer = manufacturer;}
-        public void setPrice(double price) {this.price = price;}
+        public void setPrice(double price) {
+            double oldPrice = this.price;
+            this.price = price;
+            if (priceListener != null) priceListener.handle(oldPrice);
+        }
+        public void setPriceListener(PriceListener priceListener) {this.priceListener = priceListener;}
 
         @Override
         public String toString(){
@@ -84,6 +139,16 @@ public class Product implements Record {
     public static class StockInfo {
         private int availableStock;
         private int reorderPoint;
+        private StockListener stockListener;
+
+        /**
+         * Functional interface for whoever keeps indexes over stock information
+         * (e.g. the inventory list), notified with the values before a change
+         */
+        @FunctionalInterface
+        public interface StockListener {
+            void handle(int oldStock, Status oldStatus);
+        }
 
         public enum Status{
             OUT_OF_STOCK(Ansi.Color.RED),
@@ -109,8 +174,22 @@ public class Product implements Record {
         public int getAvailableStock() {return availableStock;}
         public int getReorderPoint() {return reorderPoint;}
 
-        public void setAvailableStock(int availableStock) {this.availableStock = availableStock;}
-        public void setReorderPoint(int reorderPoint) {this.reorderPoint = reorderPoint;}
+        public void setAvailableStock(int availableStock) {
+            int oldStock = this.availableStock;
+            Status oldStatus = getStatus();
+            this.availableStock = availableStock;
+            notifyStockListener(oldStock, oldStatus);
+        }
+        public void setReorderPoint(int reorderPoint) {
+            Status oldStatus = getStatus();
+            this.reorderPoint = reorderPoint;
+            notifyStockListener(availableStock, oldStatus);
+        }
+        public void setStockListener(StockListener stockListener) {this.stockListener = stockListener;}
+
+        private void notifyStockListener(int oldStock, Status oldStatus) {
+            if (stockListener != null) stockListener.handle(oldStock, oldStatus);
+        }
 
         @Override
         public String toString(){
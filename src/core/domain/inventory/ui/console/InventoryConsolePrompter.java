@@ -1,7 +1,9 @@
 package core.domain.inventory.ui.console;
 
+import common.util.*;
 import core.domain.inventory.model.*;
 import core.shared.id.*;
+import core.shared.journal.*;
 import core.shared.ui.console.*;
 
 import java.io.*;
@@ -42,11 +44,35 @@ public class InventoryConsolePrompter extends ConsolePrompter {
         return idGenerator.generateID();
     }
 
+    /**
+     * Makes sure an id given before is never generated again
+     * @param id a product id generated before, or null
+     */
+    public void reserveID(String id){
+        idGenerator.reserveID(id);
+    }
+
+    /**
+     * Gets a name or manufacturer, prompting again when it is empty
+     * or too long to be journaled
+     *
+     * @param inputType the type of text to be supplied (e.g. Product name)
+     * @return supplied text
+     */
+    public String getText(String inputType){
+        while(true){
+            String text = getString(inputType);
+            if(Journal.canJournal(text)) return text;
+            Logger.log(new IllegalArgumentException(
+                    "Field cannot be longer than " + Journal.MAX_TEXT_BYTES + " bytes"), Logger.Severity.ERROR);
+        }
+    }
+
     public Product getProduct(){
         String id = idGenerator.generateID();
 
-        String name = getString("product name");
-        String manufacturer = getString("product manufacturer");
+        String name = getText("product name");
+        String manufacturer = getText("product manufacturer");
         double price = getDouble("product price");
         Product.ProductInfo productInfo = new Product.ProductInfo(name, manufacturer, price);
 
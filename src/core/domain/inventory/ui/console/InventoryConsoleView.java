@@ -13,6 +13,11 @@ public class InventoryConsoleView extends ConsoleRenderer {
         showTableHeader();
         System.out.print(inventory.toStringReverse());
     }
+    public void showProducts(RecordList<Product> products){
+        if(products==null) return;
+        showTableHeader();
+        System.out.print(products.toString());
+    }
     public void showProduct(Product product){
         if(product==null) return;
         showTableHeader();
@@ -6,6 +6,8 @@ import core.domain.sales.manager.*;
 import core.domain.sales.model.*;
 import core.domain.sales.ui.console.*;
 
+import java.nio.file.*;
+
 /**
  * The main controller class for the Sales module.
  *
@@ -28,12 +30,13 @@ public class SalesController {
 
     public SalesController(SalesConsoleView view,
                            SalesConsolePrompter prompter,
-                           SalesManager manager) {
+                           SalesManager manager,
+                           StockReservations reservations) {
         this.view = view;
         this.prompter = prompter;
         this.manager = manager;
         // Separate controller to keep the record-specific logic isolated
-        this.recordController = new SalesRecordController(view, prompter, manager);
+        this.recordController = new SalesRecordController(view, prompter, manager, reservations);
     }
 
     /**
@@ -48,7 +51,10 @@ public class SalesController {
                 "Record a Sale",
                 "Display All Records",
                 "Display Product Totals",
-                "Generate Sales Summary"
+                "Generate Sales Summary",
+                "Display Top Sellers",
+                "Export Sales Records",
+                "Export Product Totals"
         };
 
         while(true){
@@ -76,6 +82,18 @@ public class SalesController {
                                 manager.getProductWithMostStockSold()
                         );
 
+                case "5", "TOP", "DISPLAY TOP SELLERS" ->
+                        view.showTopSellers(
+                                manager.getTopSellersBySales(AppConfig.TOP_SELLERS_LIMIT),
+                                manager.getTopSellersByStockSold(AppConfig.TOP_SELLERS_LIMIT)
+                        );
+
+                case "6", "EXPORT SALES RECORDS" ->
+                        manager.exportSalesRecords(Path.of(prompter.getString("export file path (.csv or .jsonl)")));
+
+                case "7", "EXPORT PRODUCT TOTALS" ->
+                        manager.exportProductTotals(Path.of(prompter.getString("export file path (.csv or .jsonl)")));
+
                 default ->
                     // Handle unexpected input gracefully and inform the user
                         Logger.log(
@@ -101,13 +119,16 @@ class SalesRecordController {
     private final SalesConsoleView view;
     private final SalesConsolePrompter prompter;
     private final SalesManager manager;
+    private final StockReservations reservations;
 
     public SalesRecordController(SalesConsoleView view,
                                  SalesConsolePrompter prompter,
-                                 SalesManager manager) {
+                                 SalesManager manager,
+                                 StockReservations reservations) {
         this.view = view;
         this.prompter = prompter;
         this.manager = manager;
+        this.reservations = reservations;
     }
 
     /**
@@ -115,17 +136,20 @@ class SalesRecordController {
      *
      * The user can add multiple sold products into one record.
      * Once done, the record is submitted to the manager for storage.
+     * Stock of the products added is held until the record is saved
+     * or cancelled, or until the hold expires.
      */
     public void runRecordMenu(){
-        SalesRecord record = prompter.getSalesRecord();
+        Checkout checkout = manager.openCheckout(prompter.generateID(), reservations);
 
         String[] options = {
                 "Back",
-                "Add a product sold"
+                "Add a product sold",
+                "Cancel the sale"
         };
 
         while(true){
-            view.showSalesRecord(record);
+            view.showSalesRecord(checkout.getRecord());
             view.showBanner(AppConfig.PROGRAM_NAME + ": Sales Record Menu");
             view.showOptions(options);
 
@@ -134,7 +158,7 @@ class SalesRecordController {
             switch(choice){
                 case "0", "BACK", "BACK TO MAIN MENU" -> {
                     // Prevent empty records from being saved
-                    if(record.isEmpty()) {
+                    if(checkout.isEmpty()) {
                         Logger.log(
                                 "Empty List",
                                 "The record must have at least one item. Please try again",
@@ -142,13 +166,25 @@ class SalesRecordController {
                         );
                     } else {
                         // Once a valid record is created, save it via the manager
-                        manager.addSalesRecord(record);
+                        if(!checkout.commit()) {
+                            Logger.log(
+                                    "Sale Cancelled",
+                                    "The sale was open too long and its stock was sold elsewhere, or one of its products was removed. The sale was cancelled",
+                                    Logger.Level.NOTICE
+                            );
+                        }
                         return;
                     }
                 }
 
                 case "1", "ADD", "ADD A PRODUCT SOLD" ->
-                        addProduct(record); // Add another product to the record
+                        addProduct(checkout); // Add another product to the record
+
+                case "2", "CANCEL", "CANCEL THE SALE" -> {
+                    checkout.cancel();
+                    Logger.log("Sale Cancelled", "The stock held for this sale is available again", Logger.Level.NOTICE);
+                    return;
+                }
 
                 default ->
                         Logger.log(
@@ -164,11 +200,11 @@ class SalesRecordController {
      * Handles the process of adding a product to the current sales record.
      *
      * Shows available products, prompts the user for which one was sold,
-     * and then updates both the record and the product’s stock accordingly.
+     * and then adds it to the record while holding the product’s stock.
      *
-     * @param record The current sales record being constructed
+     * @param checkout The sale being recorded
      */
-    private void addProduct(SalesRecord record) {
+    private void addProduct(Checkout checkout) {
         view.showTotals(manager.getTotalsList());
 
         String id = prompter.getString("product id").toUpperCase();
@@ -183,32 +219,14 @@ class SalesRecordController {
         }
 
         int quantity = prompter.getInt("quantity");
-        if(quantity > product.getStock()) {
-            Logger.log("Insufficient Stock", "Not enough stock available for this product", Logger.Level.NOTICE);
+        if(quantity < 1){
+            Logger.log("Invalid Quantity", "Quantity must at least be 1", Logger.Level.NOTICE);
             return;
         }
-        if(quantity == 0){
-            Logger.log("Invalid Quantity", "Cannot input quantity as 0", Logger.Level.NOTICE);
-            return;
+        // Checks and holds the stock in one step, as another terminal may be selling the same product.
+        // The purchase is reflected in the product totals once the record is saved
+        if(!checkout.addItem(product.getId(), quantity)) {
+            Logger.log("Insufficient Stock", "Not enough stock available for this product", Logger.Level.NOTICE);
         }
-
-        // Create a sales item and update record and product data
-        SalesItem item = new SalesItem(
-                product.getId(),
-                product.getName(),
-                product.getPrice(),
-                quantity,
-                product.getPrice() * quantity
-        );
-
-        // Add the item to the record
-        record.recordSale(item);
-
-        // Reflect the purchase in the product totals
-        product.recordPurchase(quantity);
-
-        // Notify other parts of the system that stock has changed
-        manager.fireStockReductionEvent(product);
-
     }
 }
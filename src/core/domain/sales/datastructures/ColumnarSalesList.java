@@ -0,0 +1,345 @@
+package core.domain.sales.datastructures;
+
+import core.domain.api.datastructures.*;
+import core.domain.sales.model.*;
+
+import java.lang.invoke.*;
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Columnar backend for the {@link SalesList}. Instead of every product
+ * keeping its values in its own object, each value is kept in a primitive
+ * array (a column) at the product's slot, and the product totals handed out
+ * are lightweight views that only know their slot. Scanning a value across
+ * the catalogue then reads one contiguous array, and the list skips the
+ * linked nodes of its superclass, walking the slots in order instead
+ *
+ * Product totals must be created through {@link #add(String, String, double, int)},
+ * since only the list can give out slots. Slots of removed products are not
+ * reused, so that walking the slots keeps the order products were added in,
+ * and so a removed view keeps reading its own values
+ *
+ * The running aggregates and leaderboards of the superclass are kept as is
+ *
+ * The stock column, which packs the available and held stock of a product,
+ * is split into fixed-size pages that are never copied, unlike the other
+ * columns, which are copied into larger arrays as the list grows. Stock is
+ * changed with a compare-and-set on its page, by any thread, and a page that
+ * moved would lose the changes made to its old copy
+ *
+ * @version 1.0
+ * @see SalesList
+ * @see ProductTotals
+ */
+public class ColumnarSalesList extends SalesList<ProductTotals> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int STOCK_PAGE_SHIFT = 10;
+    private static final int STOCK_PAGE_SIZE = 1 << STOCK_PAGE_SHIFT;
+    private static final int STOCK_PAGE_MASK = STOCK_PAGE_SIZE - 1;
+    private static final VarHandle STOCK = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final RecordIndex<View> slots;
+
+    // Columns, indexed by slot
+    private String[] ids;
+    private String[] names;
+    private double[] prices;
+    // Pages of the stock column, read by other threads as they take stock
+    private volatile long[][] stockPages;
+    private double[] totalSales;
+    private int[] totalStockSold;
+    // Views of the products currently in the list, null for free slots
+    private View[] views;
+    private int usedSlots;
+
+    /**
+     * Public constructor of the class
+     */
+    public ColumnarSalesList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Public constructor of the class with an expected number of products,
+     * which presizes every column for large catalogues
+     * @param expectedSize the number of products expected to be stored
+     */
+    public ColumnarSalesList(int expectedSize) {
+        int capacity = Math.max(DEFAULT_CAPACITY, expectedSize);
+        this.slots = new RecordIndex<>(expectedSize);
+        this.ids = new String[capacity];
+        this.names = new String[capacity];
+        this.prices = new double[capacity];
+        this.stockPages = new long[(capacity + STOCK_PAGE_MASK) >>> STOCK_PAGE_SHIFT][];
+        for (int i = 0; i < stockPages.length; i++) stockPages[i] = new long[STOCK_PAGE_SIZE];
+        this.totalSales = new double[capacity];
+        this.totalStockSold = new int[capacity];
+        this.views = new View[capacity];
+    }
+
+    /**
+     * Stores product totals that were created by this list
+     * @param data the product totals created by this list
+     * @throws ListException when the totals were not created by this list
+     *         or the id already exists in the list
+     */
+    @Override
+    public void add(ProductTotals data) throws ListException {
+        if (!(data instanceof View view) || view.owner() != this || views[view.slot] != null)
+            throw new ListException("Product totals must be created by this list");
+        if (slots.containsKey(data.getId()))
+            throw new ListException("Duplicate id " + data.getId());
+
+        views[view.slot] = view;
+        slots.put(view.getId(), view);
+        size++;
+        modCount++;
+        track(view);
+    }
+
+    @Override
+    public ProductTotals remove(String id) throws ListException {
+        if (isEmpty()) throw new ListException("List is empty");
+        View view = slots.remove(id);
+        if (view == null) throw new ListException("Unable to find id");
+
+        views[view.slot] = null;
+        size--;
+        modCount++;
+        untrack(view);
+        return view;
+    }
+
+    @Override
+    public ProductTotals get(String id) throws ListException {
+        if (isEmpty()) throw new ListException("List is empty");
+        View view = slots.get(id);
+        if (view == null) throw new ListException("Unable to find id");
+        return view;
+    }
+
+    @Override
+    public boolean contains(String id) {
+        return slots.containsKey(id);
+    }
+
+    /**
+     * Sums the total sales column. The superclass already keeps a running
+     * total, so this is a plain scan for reconciling and measuring
+     * @return total sales across the products in the list
+     */
+    @Override
+    public double sumTotalSales() {
+        double sum = 0;
+        for (int slot = 0; slot < usedSlots; slot++) {
+            if (views[slot] != null) sum += totalSales[slot];
+        }
+        return sum;
+    }
+
+    /**
+     * Sums the stock column
+     * @return available stock across the products in the list, not counting held stock
+     */
+    @Override
+    public long sumStock() {
+        long sum = 0;
+        long[][] pages = stockPages;
+        for (int slot = 0; slot < usedSlots; slot++) {
+            // The available stock is the high half of the packed state
+            if (views[slot] != null) sum += pages[slot >>> STOCK_PAGE_SHIFT][slot & STOCK_PAGE_MASK] >> 32;
+        }
+        return sum;
+    }
+
+    @Override
+    protected ProductTotals createProductTotals(String id, String name, double price, int stock) {
+        if (usedSlots == ids.length) grow(usedSlots << 1);
+        int slot = usedSlots++;
+        ids[slot] = id;
+        names[slot] = name;
+        prices[slot] = price;
+        stockPages[slot >>> STOCK_PAGE_SHIFT][slot & STOCK_PAGE_MASK] = ((long) stock) << 32;
+        return new View(slot);
+    }
+
+    @Override
+    public Iterator<ProductTotals> iterator() {
+        return new SlotIterator(false);
+    }
+
+    @Override
+    public Iterable<ProductTotals> reversed() {
+        return () -> new SlotIterator(true);
+    }
+
+    @Override
+    public Spliterator<ProductTotals> spliterator() {
+        return new SlotSpliterator(0, usedSlots, modCount);
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        names = Arrays.copyOf(names, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        int pageCount = (capacity + STOCK_PAGE_MASK) >>> STOCK_PAGE_SHIFT;
+        if (pageCount > stockPages.length) {
+            long[][] pages = Arrays.copyOf(stockPages, pageCount);
+            for (int i = stockPages.length; i < pageCount; i++) pages[i] = new long[STOCK_PAGE_SIZE];
+            stockPages = pages;
+        }
+        totalSales = Arrays.copyOf(totalSales, capacity);
+        totalStockSold = Arrays.copyOf(totalStockSold, capacity);
+        views = Arrays.copyOf(views, capacity);
+    }
+
+    /**
+     * Flyweight product totals that read and write the
+     * columns of the list at their slot
+     */
+    private final class View extends ProductTotals {
+        private final int slot;
+        private final long[] stockPage;
+
+        private View(int slot) {
+            this.slot = slot;
+            this.stockPage = stockPages[slot >>> STOCK_PAGE_SHIFT];
+        }
+
+        private ColumnarSalesList owner() {return ColumnarSalesList.this;}
+
+        // GETTERS
+        public String getId() {return ids[slot];}
+        public String getName() {return names[slot];}
+        public double getPrice() {return prices[slot];}
+        public double getTotalSales() {return totalSales[slot];}
+        public int getTotalStockSold() {return totalStockSold[slot];}
+
+        // SETTERS
+        public void setName(String name) {names[slot] = name;}
+        public void setPrice(double price) {prices[slot] = price;}
+
+        @Override
+        protected void addSales(double sales, int stockSold) {
+            totalSales[slot] += sales;
+            totalStockSold[slot] += stockSold;
+        }
+
+        @Override
+        protected long getStockState() {
+            return (long) STOCK.getVolatile(stockPage, slot & STOCK_PAGE_MASK);
+        }
+
+        @Override
+        protected boolean compareAndSetStockState(long expected, long state) {
+            return STOCK.compareAndSet(stockPage, slot & STOCK_PAGE_MASK, expected, state);
+        }
+    }
+
+    /**
+     * Iterator that walks the slots in either direction, skipping free ones
+     */
+    private final class SlotIterator implements Iterator<ProductTotals> {
+        private final boolean isReversed;
+        private int slot;
+        private int lastReturned = -1;
+        private int expectedModCount;
+
+        private SlotIterator(boolean isReversed) {
+            this.isReversed = isReversed;
+            this.slot = isReversed ? usedSlots - 1 : 0;
+            this.expectedModCount = modCount;
+            skipFreeSlots();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return slot >= 0 && slot < usedSlots;
+        }
+
+        @Override
+        public ProductTotals next() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            if (!hasNext()) throw new NoSuchElementException();
+            lastReturned = slot;
+            slot += isReversed ? -1 : 1;
+            skipFreeSlots();
+            return views[lastReturned];
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned < 0) throw new IllegalStateException();
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            ColumnarSalesList.this.remove(ids[lastReturned]);
+            lastReturned = -1;
+            expectedModCount = modCount;
+        }
+
+        private void skipFreeSlots() {
+            while (hasNext() && views[slot] == null) slot += isReversed ? -1 : 1;
+        }
+    }
+
+    /**
+     * Spliterator over a range of slots, split in halves
+     */
+    private final class SlotSpliterator implements Spliterator<ProductTotals> {
+        private int from;
+        private final int to;
+        private final int expectedModCount;
+
+        private SlotSpliterator(int from, int to, int expectedModCount) {
+            this.from = from;
+            this.to = to;
+            this.expectedModCount = expectedModCount;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super ProductTotals> action) {
+            while (from < to) {
+                View view = views[from++];
+                if (view == null) continue;
+                action.accept(view);
+                checkForModification();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super ProductTotals> action) {
+            View[] array = views;
+            for (int slot = from; slot < to; slot++) {
+                if (array[slot] != null) action.accept(array[slot]);
+            }
+            from = to;
+            checkForModification();
+        }
+
+        @Override
+        public Spliterator<ProductTotals> trySplit() {
+            int middle = (from + to) >>> 1;
+            if (middle <= from) return null;
+            SlotSpliterator prefix = new SlotSpliterator(from, middle, expectedModCount);
+            from = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            // Free slots make sizes estimates, so the spliterator is not SIZED
+            return Spliterator.ORDERED | Spliterator.NONNULL;
+        }
+
+        private void checkForModification() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+        }
+    }
+}
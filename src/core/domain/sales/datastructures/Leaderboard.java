@@ -0,0 +1,252 @@
+package core.domain.sales.datastructures;
+
+import core.domain.api.datastructures.*;
+import core.domain.api.model.Record;
+
+/**
+ * Indexed max-heap that ranks records by a score, used for the best sellers
+ * of the sales module. Every record is given a fixed slot when added,
+ * and the heap only moves slot numbers around, so the position of any record
+ * can be found in O(1) and an increased score is sifted up in O(log n)
+ *
+ * Reading the top K records never scans the whole heap. Since a parent
+ * always outranks its children, the next best record is always a child
+ * of one already taken, so only those candidates are kept in a small
+ * secondary heap, making the read O(K log K)
+ *
+ * @version 1.0
+ * @param <T> data type of the ranked records
+ * @see SalesList
+ */
+public class Leaderboard<T extends Record> {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Functional interface that gives the score a record is ranked by
+     * @param <T> the type of data to be scored
+     */
+    @FunctionalInterface
+    public interface Score<T> {
+        double get(T data);
+    }
+
+    private final Score<T> score;
+    private final RecordIndex<Integer> slots;
+
+    // Indexed by slot
+    private T[] records;
+    private double[] scores;
+    private int[] positions;
+
+    // Indexed by heap position, holds slots
+    private int[] heap;
+    private int size;
+
+    // Slots released by removed records
+    private int[] freeSlots;
+    private int freeCount;
+    private int usedSlots;
+
+    /**
+     * Public constructor of the class
+     * @param score the score each record is ranked by
+     */
+    @SuppressWarnings("unchecked")
+    public Leaderboard(Score<T> score) {
+        this.score = score;
+        this.slots = new RecordIndex<>();
+        this.records = (T[]) new Record[DEFAULT_CAPACITY];
+        this.scores = new double[DEFAULT_CAPACITY];
+        this.positions = new int[DEFAULT_CAPACITY];
+        this.heap = new int[DEFAULT_CAPACITY];
+        this.freeSlots = new int[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Adds a record to the leaderboard with its current score
+     * @param data the record to be ranked
+     * @throws RecordList.ListException when the record is already ranked
+     */
+    public void add(T data) throws RecordList.ListException {
+        if (slots.containsKey(data.getId()))
+            throw new RecordList.ListException("Duplicate id " + data.getId());
+
+        int slot = freeCount > 0 ? freeSlots[--freeCount] : nextSlot();
+        slots.put(data.getId(), slot);
+        records[slot] = data;
+        scores[slot] = score.get(data);
+        heap[size] = slot;
+        positions[slot] = size;
+        swim(size++);
+    }
+
+    /**
+     * Removes a record from the leaderboard. Does nothing if it is not ranked
+     * @param id the id of the record to be removed
+     */
+    public void remove(String id) {
+        Integer slot = slots.remove(id);
+        if (slot == null) return;
+
+        int position = positions[slot];
+        swap(position, --size);
+        if (position < size) {
+            swim(position);
+            sink(position);
+        }
+        records[slot] = null;
+        freeSlots[freeCount++] = slot;
+    }
+
+    /**
+     * Re-reads the score of a record after it has changed and moves it
+     * to its new rank. Does nothing if the record is not ranked
+     * @param data the record whose score has changed
+     */
+    public void update(T data) {
+        Integer slot = slots.get(data.getId());
+        if (slot == null) return;
+
+        double old = scores[slot];
+        scores[slot] = score.get(data);
+        if (scores[slot] > old) swim(positions[slot]);
+        else sink(positions[slot]);
+    }
+
+    /**
+     * @return the record with the highest score, or null if the leaderboard is empty
+     */
+    public T peek() {
+        return size == 0 ? null : records[heap[0]];
+    }
+
+    /**
+     * Gets the records with the highest scores, best first. Records
+     * that have not scored anything yet are left out
+     * @param k the maximum number of records to get
+     * @return list of at most k records in rank order
+     */
+    public RecordList<T> top(int k) {
+        RecordList<T> list = new RecordList<>();
+        if (size == 0 || k <= 0) return list;
+
+        // Secondary max-heap of candidate heap positions
+        int[] candidates = new int[Math.min(k + 1, size)];
+        int count = 0;
+        candidates[count++] = 0;
+
+        while (count > 0 && k-- > 0) {
+            int best = candidates[0];
+            candidates[0] = candidates[--count];
+            sinkCandidate(candidates, count);
+
+            if (scores[heap[best]] <= 0) break;
+            list.add(records[heap[best]]);
+
+            for (int child = 2 * best + 1; child <= 2 * best + 2 && child < size; child++) {
+                if (count == candidates.length) break;
+                candidates[count] = child;
+                swimCandidate(candidates, count++);
+            }
+        }
+        return list;
+    }
+
+    /** @return number of ranked records */
+    public int size() {return size;}
+
+    /** @return true if nothing is ranked, otherwise false */
+    public boolean isEmpty() {return size == 0;}
+
+    /**
+     * Gives out a never used slot, growing all arrays when they are full
+     * @return the new slot
+     */
+    private int nextSlot() {
+        if (usedSlots == records.length) grow(records.length << 1);
+        return usedSlots++;
+    }
+
+    /**
+     * Moves the entry up while it outranks its parent
+     * @param position heap position of the entry
+     */
+    private void swim(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (scores[heap[parent]] >= scores[heap[position]]) return;
+            swap(parent, position);
+            position = parent;
+        }
+    }
+
+    /**
+     * Moves the entry down while one of its children outranks it
+     * @param position heap position of the entry
+     */
+    private void sink(int position) {
+        while (2 * position + 1 < size) {
+            int child = 2 * position + 1;
+            if (child + 1 < size && scores[heap[child + 1]] > scores[heap[child]]) child++;
+            if (scores[heap[position]] >= scores[heap[child]]) return;
+            swap(position, child);
+            position = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int temp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = temp;
+        positions[heap[i]] = i;
+        positions[heap[j]] = j;
+    }
+
+    // Sift operations of the secondary heap used by top(k)
+    private void swimCandidate(int[] candidates, int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (scores[heap[candidates[parent]]] >= scores[heap[candidates[position]]]) return;
+            int temp = candidates[parent];
+            candidates[parent] = candidates[position];
+            candidates[position] = temp;
+            position = parent;
+        }
+    }
+
+    private void sinkCandidate(int[] candidates, int count) {
+        int position = 0;
+        while (2 * position + 1 < count) {
+            int child = 2 * position + 1;
+            if (child + 1 < count && scores[heap[candidates[child + 1]]] > scores[heap[candidates[child]]]) child++;
+            if (scores[heap[candidates[position]]] >= scores[heap[candidates[child]]]) return;
+            int temp = candidates[position];
+            candidates[position] = candidates[child];
+            candidates[child] = temp;
+            position = child;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void grow(int capacity) {
+        T[] newRecords = (T[]) new Record[capacity];
+        System.arraycopy(records, 0, newRecords, 0, records.length);
+        records = newRecords;
+
+        double[] newScores = new double[capacity];
+        System.arraycopy(scores, 0, newScores, 0, scores.length);
+        scores = newScores;
+
+        int[] newPositions = new int[capacity];
+        System.arraycopy(positions, 0, newPositions, 0, positions.length);
+        positions = newPositions;
+
+        int[] newHeap = new int[capacity];
+        System.arraycopy(heap, 0, newHeap, 0, heap.length);
+        heap = newHeap;
+
+        int[] newFreeSlots = new int[capacity];
+        System.arraycopy(freeSlots, 0, newFreeSlots, 0, freeSlots.length);
+        freeSlots = newFreeSlots;
+    }
+}
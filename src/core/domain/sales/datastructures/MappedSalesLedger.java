@@ -0,0 +1,543 @@
+package core.domain.sales.datastructures;
+
+import core.domain.api.datastructures.*;
+import core.domain.sales.model.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Append-only backend for the saved {@link SalesRecord}s that keeps them in
+ * memory mapped files instead of the heap. The heap only holds where each
+ * record starts and a hash table from id to record number, so a store's
+ * whole sales history costs 16 to 24 bytes of heap per sale
+ *
+ * Records are written straight into the mapped file, one after another:
+ * [length][timestamp][item count][id] followed by every item's
+ * [product id][name][price][quantity][total price], texts being a length
+ * and UTF-8 bytes. Files are fixed-size segments, and a record that does
+ * not fit in the current segment starts the next one. Reading a record
+ * decodes it from the mapping into a new {@link SalesRecord}, so walking
+ * the list only keeps the record being read
+ *
+ * Records are added by one thread, and can be read by any number of other
+ * threads at the same time. A record is only visible once it is fully
+ * written, so readers never wait for the writer, and the writer never
+ * waits for readers
+ *
+ * The files are not synced as records are added, as the journal is what
+ * makes a sale durable. {@link #force(int)} syncs them before a snapshot
+ * counts on them, and {@link #truncate(int)} cuts them back to what the
+ * snapshot counted when the program starts
+ *
+ * @version 1.0
+ * @see SalesRecord
+ */
+public class MappedSalesLedger extends RecordList<SalesRecord> {
+    private static final int MAGIC = 0x554D4C47; // "UMLG"
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 16;
+    // Timestamp and item count, before the id
+    private static final int FIXED_LENGTH = 12;
+    // Price, quantity and total price, after the texts of an item
+    private static final int ITEM_FIXED_LENGTH = 20;
+
+    private final Path directory;
+    private final int segmentBytes;
+    // Published before the count, so readers see every segment and position they need
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[4];
+    private volatile long[] positions = new long[1024];
+    private volatile int[] slots = new int[2048];
+    private volatile int count;
+    private int segmentCount;
+    private int writeOffset;
+    private int forcedSegments;
+
+    private MappedSalesLedger(Path directory, int segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * Opens the ledger kept in the directory, creating it when missing,
+     * and indexes every record its segments hold
+     *
+     * @param directory the directory of the segment files
+     * @param segmentBytes the size of segments created from now on
+     * @return the opened ledger
+     * @throws IOException when the files cannot be read or are not ledger segments
+     */
+    public static MappedSalesLedger open(Path directory, int segmentBytes) throws IOException {
+        if (segmentBytes < 1 << 12) throw new IllegalArgumentException("Segments must at least be 4 KiB");
+        Files.createDirectories(directory);
+        MappedSalesLedger ledger = new MappedSalesLedger(directory, segmentBytes);
+        for (int number = 0; Files.exists(ledger.segmentPath(number)); number++) {
+            MappedByteBuffer segment = map(ledger.segmentPath(number), -1);
+            if (segment.capacity() < HEADER_LENGTH || segment.getInt(0) != MAGIC || segment.getInt(4) != VERSION)
+                throw new IOException("Not a sales ledger segment: " + ledger.segmentPath(number));
+            ledger.appendSegment(segment);
+            ledger.scan(number);
+        }
+        return ledger;
+    }
+
+    /**
+     * Indexes the records of a segment, up to its end marker
+     */
+    private void scan(int number) {
+        MappedByteBuffer segment = segments[number];
+        int offset = HEADER_LENGTH;
+        while (offset + 4 <= segment.capacity()) {
+            int length = segment.getInt(offset);
+            if (length < FIXED_LENGTH + 2 || offset + 4 + length > segment.capacity()) break;
+            publish(readId(segment, offset), ((long) number << 32) | offset);
+            offset += 4 + length;
+        }
+        writeOffset = offset;
+    }
+
+    /**
+     * Writes the record after the last one, straight into the mapped segment
+     * @param data the record to be added
+     * @throws ListException when the id is already in the ledger, or the record cannot fit a segment
+     */
+    @Override
+    public void add(SalesRecord data) throws ListException {
+        if (contains(data.getId())) throw new ListException("Duplicate id " + data.getId());
+        int length = FIXED_LENGTH + textLength(data.getId());
+        for (SalesItem item : data.getProductList()) {
+            length += textLength(item.getId()) + textLength(item.getName()) + ITEM_FIXED_LENGTH;
+        }
+        // The record, its length and the end marker after it
+        if (HEADER_LENGTH + 4 + length + 4 > segmentBytes)
+            throw new ListException("Sales record " + data.getId() + " is too large for a ledger segment");
+
+        try {
+            if (segmentCount == 0 || writeOffset + 4 + length + 4 > segments[segmentCount - 1].capacity())
+                startSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to extend the sales ledger", e);
+        }
+        MappedByteBuffer segment = segments[segmentCount - 1];
+        int start = writeOffset;
+        int p = start + 4;
+        segment.putLong(p, data.getTimestamp());
+        segment.putInt(p + 8, data.getProductList().size());
+        p = putText(segment, p + FIXED_LENGTH, data.getId());
+        for (SalesItem item : data.getProductList()) {
+            p = putText(segment, p, item.getId());
+            p = putText(segment, p, item.getName());
+            segment.putDouble(p, item.getPrice());
+            segment.putInt(p + 8, item.getQuantity());
+            segment.putDouble(p + 12, item.getTotalPrice());
+            p += ITEM_FIXED_LENGTH;
+        }
+        segment.putInt(p, 0);
+        segment.putInt(start, length);
+
+        writeOffset = p;
+        publish(data.getId(), ((long) (segmentCount - 1) << 32) | start);
+        modCount++;
+    }
+
+    /**
+     * Sales records are kept for good
+     * @throws ListException always
+     */
+    @Override
+    public SalesRecord remove(String id) throws ListException {
+        throw new ListException("Sales records cannot be removed from the ledger");
+    }
+
+    /**
+     * Reads the record with the specified id from the mapping
+     * @param id reference to the record's identity
+     * @return a new sales record holding what was written
+     * @throws ListException when the id cannot be found
+     */
+    @Override
+    public SalesRecord get(String id) throws ListException {
+        int number = find(id);
+        if (number < 0) throw new ListException("Unable to find id");
+        return read(number);
+    }
+
+    @Override
+    public boolean contains(String id) {
+        return find(id) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Reads the record added at the given position, the first being 0
+     * @param number the record's position
+     * @return a new sales record holding what was written
+     */
+    public SalesRecord read(int number) {
+        if (number < 0 || number >= count) throw new ListException("No sales record at " + number);
+        long position = positions[number];
+        MappedByteBuffer segment = segments[(int) (position >>> 32)];
+        int p = (int) position + 4;
+        long timestamp = segment.getLong(p);
+        int items = segment.getInt(p + 8);
+        p += FIXED_LENGTH;
+        String id = getText(segment, p);
+        p += 2 + (segment.getShort(p) & 0xFFFF);
+
+        SalesRecord salesRecord = new SalesRecord(id, new RecordList<>(), timestamp);
+        for (int i = 0; i < items; i++) {
+            String productId = getText(segment, p);
+            p += 2 + (segment.getShort(p) & 0xFFFF);
+            String name = getText(segment, p);
+            p += 2 + (segment.getShort(p) & 0xFFFF);
+            salesRecord.recordSale(new SalesItem(productId, name,
+                    segment.getDouble(p), segment.getInt(p + 8), segment.getDouble(p + 12)));
+            p += ITEM_FIXED_LENGTH;
+        }
+        return salesRecord;
+    }
+
+    /**
+     * Syncs the segments holding the first records to disk. Full segments
+     * no longer change, so they are only synced once. Called by one thread
+     * at a time, which may differ from the thread adding records
+     *
+     * @param records the number of records, from the first, that must be on disk
+     */
+    public void force(int records) {
+        if (records <= 0) return;
+        long position = positions[records - 1];
+        int last = (int) (position >>> 32);
+        MappedByteBuffer[] current = segments;
+        for (int i = forcedSegments; i <= last; i++) current[i].force();
+        forcedSegments = last;
+    }
+
+    /**
+     * Cuts the ledger back to its first records, dropping everything added
+     * after them (e.g. records the journal is about to replay again).
+     * Must be called before records are added or read by other threads
+     *
+     * @param records the number of records to keep
+     * @throws IOException when the ledger holds fewer records, or its files cannot be deleted
+     */
+    public void truncate(int records) throws IOException {
+        if (records > count)
+            throw new IOException("The sales ledger holds " + count + " records, fewer than the " + records
+                    + " expected. Deleting the snapshot replays the whole journal instead");
+        if (records == count) return;
+
+        int keptSegments = 0;
+        writeOffset = HEADER_LENGTH;
+        if (records > 0) {
+            long position = positions[records - 1];
+            keptSegments = (int) (position >>> 32) + 1;
+            MappedByteBuffer segment = segments[keptSegments - 1];
+            writeOffset = (int) position + 4 + segment.getInt((int) position);
+            segment.putInt(writeOffset, 0);
+        }
+        for (int number = keptSegments; number < segmentCount; number++) {
+            segments[number] = null;
+            Files.deleteIfExists(segmentPath(number));
+        }
+        segmentCount = keptSegments;
+        forcedSegments = Math.min(forcedSegments, keptSegments);
+
+        int[] table = new int[slots.length];
+        for (int number = 0; number < records; number++) {
+            long position = positions[number];
+            insert(table, readId(segments[(int) (position >>> 32)], (int) position), number);
+        }
+        slots = table;
+        count = records;
+        modCount++;
+    }
+
+    /**
+     * Gives an iterator that reads the records from the first to the last
+     * added when the iterator was created
+     */
+    @Override
+    public Iterator<SalesRecord> iterator() {
+        return new LedgerIterator(0, count, 1);
+    }
+
+    /**
+     * Gives a view that reads the records from the latest to the oldest
+     */
+    @Override
+    public Iterable<SalesRecord> reversed() {
+        return () -> {
+            int size = count;
+            return new LedgerIterator(size - 1, -1, -1);
+        };
+    }
+
+    /**
+     * Gives a spliterator that splits the records by their positions,
+     * halving what is left on every split
+     */
+    @Override
+    public Spliterator<SalesRecord> spliterator() {
+        return new LedgerSpliterator(0, count);
+    }
+
+    /* =============================================
+     *  SEGMENTS
+     * ============================================*/
+
+    private Path segmentPath(int number) {
+        return directory.resolve(String.format("segment-%06d.ledger", number));
+    }
+
+    /**
+     * Maps a segment file, creating it at the given size when the size is not -1
+     */
+    private static MappedByteBuffer map(Path path, int size) throws IOException {
+        try (FileChannel channel = size < 0
+                ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size < 0 ? channel.size() : size);
+        }
+    }
+
+    private void startSegment() throws IOException {
+        MappedByteBuffer segment = map(segmentPath(segmentCount), segmentBytes);
+        segment.putInt(0, MAGIC);
+        segment.putInt(4, VERSION);
+        segment.putInt(8, segmentCount);
+        appendSegment(segment);
+        writeOffset = HEADER_LENGTH;
+    }
+
+    private void appendSegment(MappedByteBuffer segment) {
+        MappedByteBuffer[] current = segments;
+        if (segmentCount == current.length) current = Arrays.copyOf(current, segmentCount << 1);
+        current[segmentCount++] = segment;
+        segments = current;
+    }
+
+    /* =============================================
+     *  INDEX
+     * ============================================*/
+
+    /**
+     * Indexes the record at the position, then makes it visible to readers
+     */
+    private void publish(String id, long position) {
+        int number = count;
+        long[] currentPositions = positions;
+        if (number == currentPositions.length) currentPositions = Arrays.copyOf(currentPositions, number << 1);
+        currentPositions[number] = position;
+        positions = currentPositions;
+
+        int[] table = slots;
+        if ((number + 1) * 2 > table.length) {
+            int[] bigger = new int[table.length << 1];
+            for (int i = 0; i < number; i++) {
+                long at = currentPositions[i];
+                insert(bigger, readId(segments[(int) (at >>> 32)], (int) at), i);
+            }
+            table = bigger;
+        }
+        insert(table, id, number);
+        slots = table;
+        count = number + 1;
+    }
+
+    private static void insert(int[] table, String id, int number) {
+        int mask = table.length - 1;
+        int slot = hash(id) & mask;
+        while (table[slot] != 0) slot = (slot + 1) & mask;
+        table[slot] = number + 1;
+    }
+
+    /**
+     * @return the position of the record with the id, or -1 when not found
+     */
+    private int find(String id) {
+        int size = count;
+        int[] table = slots;
+        int mask = table.length - 1;
+        for (int slot = hash(id) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int number = table[slot] - 1;
+            // Skips a record the writer indexed but has not made visible yet
+            if (number < size && hasId(number, id)) return number;
+        }
+        return -1;
+    }
+
+    private boolean hasId(int number, String id) {
+        long position = positions[number];
+        MappedByteBuffer segment = segments[(int) (position >>> 32)];
+        int p = (int) position + 4 + FIXED_LENGTH;
+        int length = segment.getShort(p) & 0xFFFF;
+        for (int i = 0; i < id.length(); i++) {
+            if (id.charAt(i) >= 0x80) return getText(segment, p).equals(id);
+        }
+        if (length != id.length()) return false;
+        for (int i = 0; i < length; i++) {
+            if (segment.get(p + 2 + i) != id.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static String readId(MappedByteBuffer segment, int offset) {
+        return getText(segment, offset + 4 + FIXED_LENGTH);
+    }
+
+    private static int hash(String id) {
+        int h = id.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /* =============================================
+     *  TEXT ENCODING
+     * ============================================*/
+
+    /**
+     * @return the bytes a text takes, its length included
+     * @throws ListException when the text is too long to be kept
+     */
+    private static int textLength(String text) {
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) length++;
+            else if (c < 0x800) length += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else length += 3;
+        }
+        if (length > 0xFFFF) throw new ListException("Text is too long for the sales ledger");
+        return 2 + length;
+    }
+
+    /**
+     * Encodes the text as UTF-8 straight into the segment, after its length
+     * @return the position after the text
+     */
+    private static int putText(MappedByteBuffer segment, int p, String text) {
+        int start = p;
+        p += 2;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                segment.put(p++, (byte) c);
+            } else if (c < 0x800) {
+                segment.put(p++, (byte) (0xC0 | c >> 6));
+                segment.put(p++, (byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int code = Character.toCodePoint(c, text.charAt(++i));
+                segment.put(p++, (byte) (0xF0 | code >> 18));
+                segment.put(p++, (byte) (0x80 | code >> 12 & 0x3F));
+                segment.put(p++, (byte) (0x80 | code >> 6 & 0x3F));
+                segment.put(p++, (byte) (0x80 | code & 0x3F));
+            } else {
+                // Lone surrogates take the 3 bytes counted for them
+                segment.put(p++, (byte) (0xE0 | c >> 12));
+                segment.put(p++, (byte) (0x80 | c >> 6 & 0x3F));
+                segment.put(p++, (byte) (0x80 | c & 0x3F));
+            }
+        }
+        segment.putShort(start, (short) (p - start - 2));
+        return p;
+    }
+
+    private static String getText(MappedByteBuffer segment, int p) {
+        int length = segment.getShort(p) & 0xFFFF;
+        byte[] bytes = new byte[length];
+        segment.get(p + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /* =============================================
+     *  ITERATION
+     * ============================================*/
+
+    /**
+     * Reads records one at a time, between two positions fixed when it was created
+     */
+    private final class LedgerIterator implements Iterator<SalesRecord> {
+        private int next;
+        private final int end;
+        private final int step;
+
+        private LedgerIterator(int next, int end, int step) {
+            this.next = next;
+            this.end = end;
+            this.step = step;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != end;
+        }
+
+        @Override
+        public SalesRecord next() {
+            if (next == end) throw new NoSuchElementException();
+            SalesRecord salesRecord = read(next);
+            next += step;
+            return salesRecord;
+        }
+    }
+
+    private final class LedgerSpliterator implements Spliterator<SalesRecord> {
+        private int next;
+        private final int end;
+
+        private LedgerSpliterator(int next, int end) {
+            this.next = next;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super SalesRecord> action) {
+            if (next >= end) return false;
+            action.accept(read(next++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super SalesRecord> action) {
+            while (next < end) action.accept(read(next++));
+        }
+
+        @Override
+        public Spliterator<SalesRecord> trySplit() {
+            int middle = (next + end) >>> 1;
+            if (middle <= next) return null;
+            LedgerSpliterator prefix = new LedgerSpliterator(next, middle);
+            next = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - next;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+    }
+}
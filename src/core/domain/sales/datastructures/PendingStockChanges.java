@@ -0,0 +1,84 @@
+package core.domain.sales.datastructures;
+
+import core.api.dto.*;
+import core.domain.api.datastructures.*;
+
+import java.util.*;
+
+/**
+ * Collects the stock sold since the last batch, so that many stock
+ * changes can be published as one {@link StockBatchDTO}.
+ *
+ * Changes are coalesced per product: a product sold many times is kept
+ * once with the sum of its quantities, in the order products were first sold
+ *
+ * @version 1.0
+ * @see StockBatchDTO
+ */
+public class PendingStockChanges {
+    // Position of every pending product in the parallel arrays
+    private final RecordIndex<Integer> positions = new RecordIndex<>();
+    private String[] ids = new String[16];
+    private int[] quantities = new int[16];
+    private int count;
+    private long openedAt;
+
+    /**
+     * Notes that items of the product were sold
+     * @param id the id of the product sold
+     * @param quantity the number of items sold
+     */
+    public void add(String id, int quantity) {
+        Integer position = positions.get(id);
+        if (position != null) {
+            quantities[position] += quantity;
+            return;
+        }
+
+        if (count == 0) openedAt = System.nanoTime();
+        if (count == ids.length) {
+            String[] biggerIds = new String[count << 1];
+            int[] biggerQuantities = new int[count << 1];
+            System.arraycopy(ids, 0, biggerIds, 0, count);
+            System.arraycopy(quantities, 0, biggerQuantities, 0, count);
+            ids = biggerIds;
+            quantities = biggerQuantities;
+        }
+        positions.put(id, count);
+        ids[count] = id;
+        quantities[count++] = quantity;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /** @return number of products changed since the last batch */
+    public int size() {
+        return count;
+    }
+
+    /** @return milliseconds since the first change of the batch, or 0 when nothing changed */
+    public long getAgeMillis() {
+        return count == 0 ? 0 : (System.nanoTime() - openedAt) / 1_000_000L;
+    }
+
+    /**
+     * Builds a batch with the quantity sold of every changed product
+     * and starts a new, empty batch
+     * @param batchId what the batch was made for (e.g. a sales record's id)
+     * @return the batch of quantities sold
+     */
+    public StockBatchDTO drain(String batchId) {
+        String[] batchIds = new String[count];
+        int[] batchQuantities = new int[count];
+        System.arraycopy(ids, 0, batchIds, 0, count);
+        System.arraycopy(quantities, 0, batchQuantities, 0, count);
+        // Only the drained ids are taken out, as clearing would walk the
+        // whole table, which keeps the size of the largest batch ever made
+        for (int i = 0; i < count; i++) positions.remove(ids[i]);
+        Arrays.fill(ids, 0, count, null);
+        count = 0;
+        return new StockBatchDTO(batchId, batchIds, batchQuantities);
+    }
+}
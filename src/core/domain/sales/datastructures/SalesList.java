@@ -3,46 +3,173 @@ package core.domain.sales.datastructures;
 import core.domain.api.datastructures.*;
 import core.domain.sales.model.*;
 
-public class SalesList <T extends ProductTotals> extends RecordList<T> {
-    public double getTotalSales(){
-        double totalSales = 0;
-        ListNode<T> current = head;
-        while(current!=null){
-            totalSales += current.getData().getTotalSales();
-            current = current.getNext();
-        }
+/**
+ * Indexed list of product totals that keeps its aggregates up to date
+ * as purchases are recorded. Each product added to the list reports its
+ * purchases back through {@link ProductTotals.PurchaseListener}, so the
+ * total sales and the best sellers never need a rescan of the list
+ *
+ * The best sellers are ranked by two {@link Leaderboard}s, one by
+ * total sales and one by total stock sold
+ *
+ * @param <T> data type of the linked list instance
+ * @see ProductTotals
+ * @see Leaderboard
+ */
+public class SalesList <T extends ProductTotals> extends IndexedRecordList<T> {
+    private final Leaderboard<ProductTotals> bySales = new Leaderboard<>(ProductTotals::getTotalSales);
+    private final Leaderboard<ProductTotals> byStockSold = new Leaderboard<>(ProductTotals::getTotalStockSold);
+    private double totalSales;
+
+    /**
+     * Inserts the product totals to the ending point of the list and
+     * starts listening to its purchases
+     * @param data the node's data
+     */
+    @Override
+    public void add(T data){
+        super.add(data);
+        track(data);
+    }
+
+    /**
+     * Creates product totals with nothing sold yet, stored however this
+     * list stores them, and inserts them to the ending point of the list
+     *
+     * @param id the product's id
+     * @param name the product's name
+     * @param price the product's price
+     * @param stock the product's available stock
+     * @return the new product totals
+     */
+    public T add(String id, String name, double price, int stock){
+        T data = createProductTotals(id, name, price, stock);
+        add(data);
+        return data;
+    }
+
+    /**
+     * Removes the product totals with the specified id and takes its
+     * sales out of the aggregates
+     * @param id the location of the node to be removed
+     * @return the object removed
+     */
+    @Override
+    public T remove(String id){
+        T data = super.remove(id);
+        untrack(data);
+        return data;
+    }
 
+    public double getTotalSales(){
         return totalSales;
     }
 
+    /**
+     * Sums the total sales of every product over a stream of the list.
+     * {@link #getTotalSales()} already keeps a running total, so this is a
+     * scan for reconciling and measuring. The stream is sequential, since a
+     * product costs too little to sum for splitting the list to pay off
+     * @return total sales across the products in the list
+     */
+    public double sumTotalSales(){
+        return stream().mapToDouble(ProductTotals::getTotalSales).sum();
+    }
+
+    /**
+     * Sums the available stock of every product over a stream of the list
+     * @return available stock across the products in the list, not counting held stock
+     */
+    public long sumStock(){
+        return stream().mapToLong(ProductTotals::getStock).sum();
+    }
+
+    /**
+     * @return the product with the highest total sales,
+     *         or null if the list is empty
+     * @throws ListException when nothing is sold yet
+     */
     public ProductTotals getProductWithMostSales(){
-        ProductTotals mostSales= head.getData();
-        ListNode<T> current = head.getNext();
-        while(current!=null){
-            if(current.getData().getTotalSales()>mostSales.getTotalSales())
-                mostSales=current.getData();
-
-            current = current.getNext();
-        }
+        if(isEmpty()) return null;
+        ProductTotals mostSales = bySales.peek();
         if(mostSales.getTotalSales()==0)
             throw new ListException("Nothing is sold yet. Unable to get product with most sales");
 
         return mostSales;
     }
 
+    /**
+     * @return the product with the most stock sold,
+     *         or null if the list is empty
+     * @throws ListException when nothing is sold yet
+     */
     public ProductTotals getProductWithMostStockSold(){
-        ProductTotals mostSold=head.getData();
-        ListNode<T> current = head.getNext();
-        while(current!=null){
-            if(current.getData().getTotalStockSold()>mostSold.getTotalStockSold())
-                mostSold=current.getData();
-
-            current = current.getNext();
-        }
-
+        if(isEmpty()) return null;
+        ProductTotals mostSold = byStockSold.peek();
         if(mostSold.getTotalStockSold()==0)
             throw new ListException("Nothing is sold yet. Unable to get product with most stock sold");
 
         return mostSold;
     }
+
+    /**
+     * Gets the best sellers by total sales, without scanning the list
+     * @param k the maximum number of products to get
+     * @return list of at most k products that have been sold, best first
+     */
+    public RecordList<ProductTotals> getTopBySales(int k){
+        return bySales.top(k);
+    }
+
+    /**
+     * Gets the best sellers by total stock sold, without scanning the list
+     * @param k the maximum number of products to get
+     * @return list of at most k products that have been sold, best first
+     */
+    public RecordList<ProductTotals> getTopByStockSold(int k){
+        return byStockSold.top(k);
+    }
+
+    /**
+     * Creates the product totals used by {@link #add(String, String, double, int)}.
+     * This list stores them in their own fields; subclasses may store them elsewhere
+     */
+    @SuppressWarnings("unchecked")
+    protected T createProductTotals(String id, String name, double price, int stock){
+        return (T) ProductTotals.create(id, name, price, stock);
+    }
+
+    /**
+     * Starts listening to the purchases of product totals that were
+     * just stored, and adds them to the aggregates
+     * @param data the stored product totals
+     */
+    protected void track(T data){
+        data.setPurchaseListener(this::handlePurchase);
+        totalSales += data.getTotalSales();
+        bySales.add(data);
+        byStockSold.add(data);
+    }
+
+    /**
+     * Stops listening to the purchases of product totals that were
+     * just removed, and takes them out of the aggregates
+     * @param data the removed product totals
+     */
+    protected void untrack(T data){
+        data.setPurchaseListener(null);
+        totalSales -= data.getTotalSales();
+        bySales.remove(data.getId());
+        byStockSold.remove(data.getId());
+    }
+
+    /**
+     * Handles purchases recorded by any product totals in this list.
+     * Totals only ever grow, so the product is moved up both leaderboards
+     */
+    private void handlePurchase(ProductTotals productTotals, double sales, int stockSold){
+        totalSales += sales;
+        bySales.update(productTotals);
+        byStockSold.update(productTotals);
+    }
 }
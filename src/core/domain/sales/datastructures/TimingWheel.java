@@ -0,0 +1,139 @@
+package core.domain.sales.datastructures;
+
+import java.util.concurrent.locks.*;
+import java.util.function.*;
+
+/**
+ * Hashed timing wheel that hands out values once their deadline passes.
+ * Time is cut into ticks, and the wheel is a ring of slots, one per tick,
+ * each holding a chain of the values due on the ticks that land on it.
+ * Scheduling puts a value at the front of its slot's chain, and advancing
+ * the wheel only walks the slots of the ticks that went by, so neither
+ * depends on how many values are waiting
+ *
+ * Deadlines further away than one turn of the ring share a slot with nearer
+ * ones, and are kept there until the turn they are due on. Values are never
+ * taken out early: whoever schedules them checks, when they come due,
+ * whether they still matter (e.g. a hold that was already sold)
+ *
+ * Values can be scheduled from any thread, while the wheel is advanced by
+ * one thread at a time. Values are handed out after the wheel's lock is
+ * let go, so handling them does not hold up scheduling
+ *
+ * @version 1.0
+ * @param <T> data type of the scheduled values
+ */
+public final class TimingWheel<T> {
+    private final long tickNanos;
+    private final long startNanos;
+    private final Entry<T>[] slots;
+    private final int mask;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Last tick handed out, guarded by the lock
+    private long currentTick;
+    private int size;
+
+    private static final class Entry<T> {
+        private final T value;
+        private final long deadlineTick;
+        private Entry<T> next;
+
+        private Entry(T value, long deadlineTick) {
+            this.value = value;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    /**
+     * @param tickNanos length of a tick, the precision of the deadlines
+     * @param slotCount number of slots, rounded up to a power of two
+     * @param startNanos when the first tick starts, as given by {@link System#nanoTime()}
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickNanos, int slotCount, long startNanos) {
+        if (tickNanos < 1) throw new IllegalArgumentException("Ticks must at least be 1 nanosecond");
+        if (slotCount < 1) throw new IllegalArgumentException("There must be at least one slot");
+        int capacity = 1;
+        while (capacity < slotCount) capacity <<= 1;
+        this.tickNanos = tickNanos;
+        this.startNanos = startNanos;
+        this.slots = (Entry<T>[]) new Entry<?>[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Schedules the value to be handed out once the deadline passes, on the
+     * first advance of the wheel after it. Deadlines that already passed
+     * are handed out on the next advance
+     * @param value the value to hand out
+     * @param deadlineNanos when the value is due, as given by {@link System#nanoTime()}
+     */
+    public void schedule(T value, long deadlineNanos) {
+        // Rounded up, so a value is never handed out before its deadline
+        long tick = Math.ceilDiv(deadlineNanos - startNanos, tickNanos);
+        lock.lock();
+        try {
+            Entry<T> entry = new Entry<>(value, Math.max(tick, currentTick + 1));
+            int slot = (int) (entry.deadlineTick & mask);
+            entry.next = slots[slot];
+            slots[slot] = entry;
+            size++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the wheel up to the given time, handing out every value whose
+     * deadline passed. Only the slots of the ticks that went by are walked,
+     * and at most one full turn of the ring however long it has been
+     * @param nowNanos the current time, as given by {@link System#nanoTime()}
+     * @param expired called with every value that came due, in no particular order
+     * @return number of values handed out
+     */
+    public int advance(long nowNanos, Consumer<? super T> expired) {
+        long target = Math.floorDiv(nowNanos - startNanos, tickNanos);
+        Entry<T> due = null;
+        int count = 0;
+        lock.lock();
+        try {
+            if (target <= currentTick) return 0;
+            long ticks = Math.min(target - currentTick, slots.length);
+            for (long tick = currentTick + 1; tick <= currentTick + ticks; tick++) {
+                int slot = (int) (tick & mask);
+                Entry<T> kept = null;
+                Entry<T> entry = slots[slot];
+                while (entry != null) {
+                    Entry<T> next = entry.next;
+                    if (entry.deadlineTick <= target) {
+                        entry.next = due;
+                        due = entry;
+                        count++;
+                    } else {
+                        entry.next = kept;
+                        kept = entry;
+                    }
+                    entry = next;
+                }
+                slots[slot] = kept;
+            }
+            currentTick = target;
+            size -= count;
+        } finally {
+            lock.unlock();
+        }
+
+        for (Entry<T> entry = due; entry != null; entry = entry.next) expired.accept(entry.value);
+        return count;
+    }
+
+    /** @return number of values waiting for their deadline */
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package core.domain.sales.manager;
+
+import core.domain.api.datastructures.*;
+import core.domain.sales.datastructures.*;
+import core.domain.sales.model.*;
+
+/**
+ * A sale being recorded, without any prompts. Items are added by product
+ * id, holding their stock until the sale is saved or cancelled, so the
+ * same sale can be driven by the console, a test harness or a load driver
+ *
+ * A checkout is used by one thread at a time, while any number of
+ * checkouts can be open and saved at once from different threads
+ *
+ * @version 1.0
+ * @see SalesManager#openCheckout(String, StockReservations)
+ */
+public final class Checkout {
+    private final SalesManager manager;
+    private final SalesList<ProductTotals> totalsList;
+    private final SalesRecord record;
+    private final StockReservations.Basket basket;
+
+    Checkout(SalesManager manager,
+             SalesList<ProductTotals> totalsList,
+             String id,
+             StockReservations reservations) {
+        this.manager = manager;
+        this.totalsList = totalsList;
+        this.record = new SalesRecord(id, new RecordList<>());
+        this.basket = reservations.openBasket();
+    }
+
+    /** @return the id of the sales record */
+    public String getId() {return record.getId();}
+
+    /** @return the sales record being filled, with every item added so far */
+    public SalesRecord getRecord() {return record;}
+
+    /** @return true if no item was added yet */
+    public boolean isEmpty() {return record.isEmpty();}
+
+    /**
+     * Adds the product to the sale, holding its stock
+     * @param productId id of the product sold
+     * @param quantity the number of items sold
+     * @return true if the item was added, false if there was not enough stock
+     * @throws IllegalArgumentException when the product does not exist or the quantity is below 1
+     * @throws IllegalStateException when the sale was already saved or cancelled
+     */
+    public boolean addItem(String productId, int quantity) {
+        if (quantity < 1) throw new IllegalArgumentException("Quantity must at least be 1");
+        if (!totalsList.contains(productId))
+            throw new IllegalArgumentException("No product found with ID: " + productId);
+        ProductTotals product = totalsList.get(productId);
+        if (!basket.hold(product, quantity)) return false;
+
+        // The price the hold will charge, so the record and the totals agree
+        double price = basket.getPrice(basket.size() - 1);
+        record.recordSale(new SalesItem(product.getId(), product.getName(), price, quantity, price * quantity));
+        return true;
+    }
+
+    /**
+     * Saves the sale, turning its holds into purchases. Returns once the
+     * journal has committed it
+     * @return true if the sale was saved, false if a hold expired and its
+     *         stock was sold in the meantime, or one of its products was
+     *         removed, which cancels the sale
+     * @throws IllegalStateException when the sale is empty, or was already saved or cancelled
+     */
+    public boolean commit() {
+        if (record.isEmpty()) throw new IllegalStateException("The record must have at least one item");
+        return manager.addSalesRecord(record, basket);
+    }
+
+    /**
+     * Cancels the sale, letting go of the stock held for it
+     */
+    public void cancel() {
+        basket.cancel();
+    }
+}
@@ -1,14 +1,20 @@
 package core.domain.sales.manager;
 
 import common.util.*;
+import config.*;
 import core.api.dto.*;
 import core.domain.api.datastructures.*;
 import core.domain.sales.datastructures.*;
 import core.domain.sales.model.*;
 import core.shared.events.*;
+import core.shared.export.*;
+import core.shared.journal.*;
 import core.shared.requests.*;
 
 import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.locks.*;
 
 /**
  * The {@code SalesManager} serves as the central coordinator for the Sales domain.
@@ -27,6 +33,11 @@ import java.io.*;
 public final class SalesManager {
     private final SalesList<ProductTotals> totalsList;
     private final RecordList<SalesRecord> recordsList;
+    private final PendingStockChanges pendingStockChanges = new PendingStockChanges();
+    private final Journal journal;
+    // Saving a sale is done one at a time, while waiting for the journal is not
+    private final ReentrantLock saveLock = new ReentrantLock();
+    private String lastSalesRecordId;
 
     /**
      * Constructs a new {@link SalesManager} instance.
@@ -34,25 +45,39 @@ public final class SalesManager {
      * During initialization:
      * <ul>
      *     <li>Automatically subscribes to product lifecycle events.</li>
-     *     <li>Registers request suppliers for total sales and top-selling products.</li>
+     *     <li>Registers request suppliers for total sales and top-selling products,
+     *     caching the top-selling products until sales are saved or products change.</li>
      * </ul>
      *
      * @param totalsList      The list containing cumulative product totals.
      * @param salesRecordList The list containing all recorded sales transactions.
+     * @param journal         The journal that keeps every saved sales record.
      */
     public SalesManager(SalesList<ProductTotals> totalsList,
-                        RecordList<SalesRecord> salesRecordList) {
+                        RecordList<SalesRecord> salesRecordList,
+                        Journal journal) {
         // Subscribe to domain events
-        Events.ProductRemoved.addListener(this::handleProductRemoved);
-        Events.ProductAdded.addListener(this::handleProductAdded);
-        Events.ProductUpdated.addListener(this::handleProductUpdated);
+        Events.ProductRemoved.addListener("SalesManager.handleProductRemoved", this::handleProductRemoved);
+        Events.ProductAdded.addListener("SalesManager.handleProductAdded", this::handleProductAdded);
+        Events.ProductsAdded.addListener("SalesManager.handleProductsAdded", this::handleProductsAdded);
+        Events.ProductUpdated.addListener("SalesManager.handleProductUpdated", this::handleProductUpdated);
+        Events.ProductsUpdated.addListener("SalesManager.handleProductsUpdated", this::handleProductsUpdated);
+        Events.addFlushTask(this::flushStockReductions);
 
         // Register suppliers for external requests
         Requests.TotalSales.setSupplier(this::exportTotalSales);
-        Requests.TopSellingProduct.setSupplier(this::exportTopSellingProductDTO);
+
+        // Best sellers only change when sales are saved or products change,
+        // and are cached in between
+        Event<?>[] salesChanges = {
+                Events.StockReductionBatch, Events.ProductAdded,
+                Events.ProductsAdded, Events.ProductUpdated, Events.ProductsUpdated, Events.ProductRemoved};
+        Requests.TopSellingProduct.setCachedSupplier("SalesManager", this::exportTopSellingProductDTO, salesChanges);
+        Requests.TopSellingProducts.setCachedSupplier("SalesManager", this::exportTopSellingProductsDTO, salesChanges);
 
         this.totalsList = totalsList;
         this.recordsList = salesRecordList;
+        this.journal = journal;
     }
 
     /* =============================================
@@ -62,14 +87,13 @@ public final class SalesManager {
     /**
      * Handles product removal events.
      * <p>
-     * When a product is removed, its remaining stock is set to zero
-     * to prevent further sales from being recorded.
+     * When a product is removed, its remaining stock is set to zero and
+     * it can no longer be held, so open sales holding it cannot be saved.
      *
-     * @param o The event payload (expected to be a {@link ProductDTO}).
+     * @param productDTO The product the event is about.
      */
-    private void handleProductRemoved(Object o) {
-        if (!(o instanceof ProductDTO productDTO)) return;
-        totalsList.get(productDTO.getId()).setStock(0);
+    private void handleProductRemoved(ProductDTO productDTO) {
+        totalsList.get(productDTO.getId()).markRemoved();
     }
 
     /**
@@ -77,24 +101,53 @@ public final class SalesManager {
      * <p>
      * Creates a new {@link ProductTotals} entry from the provided product DTO.
      *
-     * @param o The event payload (expected to be a {@link ProductDTO}).
+     * @param productDTO The product the event is about.
+     */
+    private void handleProductAdded(ProductDTO productDTO) {
+        totalsList.add(
+                productDTO.getId(),
+                productDTO.getName(),
+                productDTO.getPrice(),
+                productDTO.getStock());
+    }
+
+    /**
+     * Handles bulk product addition events (e.g. catalogue imports).
+     *
+     * @param batch Every value of every product added.
      */
-    private void handleProductAdded(Object o) {
-        if (!(o instanceof ProductDTO productDTO)) return;
-        totalsList.add(SalesConverter.convertDTOToProduct(productDTO));
+    private void handleProductsAdded(ProductChangeBatchDTO batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            ProductChangeDTO product = batch.get(i);
+            totalsList.add(
+                    product.getId(),
+                    product.getName(),
+                    product.getPrice(),
+                    product.getStock());
+        }
     }
 
     /**
      * Handles product update events.
      * <p>
      * Updates the corresponding product record in the totals list
-     * to reflect the most recent product data.
+     * with the changed values it keeps track of.
+     *
+     * @param change The changes made to the product.
+     */
+    private void handleProductUpdated(ProductChangeDTO change) {
+        updateProductDetails(change);
+    }
+
+    /**
+     * Handles bulk product update events (e.g. mass price updates).
      *
-     * @param o The event payload (expected to be a {@link ProductDTO}).
+     * @param batch The changes made to every product updated.
      */
-    private void handleProductUpdated(Object o) {
-        if (!(o instanceof ProductDTO productDTO)) return;
-        updateProductDetails(productDTO);
+    private void handleProductsUpdated(ProductChangeBatchDTO batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            updateProductDetails(batch.get(i));
+        }
     }
 
     /**
@@ -118,16 +171,68 @@ public final class SalesManager {
     }
 
     /**
-     * Fires a stock reduction event.
+     * Converts the best sellers by total sales into transferable DTOs.
+     * <p>
+     * Used as a supplier for TopSellingProductsRequest
+     *
+     * @return at most {@link AppConfig#TOP_SELLERS_LIMIT} products as {@link ProductDTO}s, best first.
+     */
+    private RecordList<ProductDTO> exportTopSellingProductsDTO() {
+        RecordList<ProductDTO> list = new RecordList<>();
+        RecordList<ProductTotals> top = getTopSellersBySales(AppConfig.TOP_SELLERS_LIMIT);
+        if (top == null) return list;
+
+        for (ProductTotals productTotals : top) {
+            list.add(SalesConverter.convertProductToDTO(productTotals));
+        }
+        return list;
+    }
+
+    /**
+     * Queues a stock reduction to be fired with the next stock reduction batch.
+     * <p>
+     * Reductions of the same product are coalesced, so the batch carries the
+     * total quantity sold of each product. When
+     * {@link AppConfig#STOCK_BATCH_WINDOW_MILLIS} is set and the pending batch
+     * is older than it, the pending batch is fired first.
+     *
+     * @param productTotals The product whose stock has changed.
+     * @param quantity      The number of items sold.
+     */
+    public void queueStockReduction(ProductTotals productTotals, int quantity) {
+        long window = AppConfig.STOCK_BATCH_WINDOW_MILLIS;
+        if (window > 0 && pendingStockChanges.getAgeMillis() >= window) {
+            fireStockReductionBatch("WINDOW");
+        }
+        pendingStockChanges.add(productTotals.getId(), quantity);
+    }
+
+    /**
+     * Fires the stock reductions still pending, e.g. those kept back by
+     * {@link AppConfig#STOCK_BATCH_WINDOW_MILLIS} when no sale came after them.
+     * Runs whenever {@link Events#flush()} is called.
+     */
+    public void flushStockReductions() {
+        saveLock.lock();
+        try {
+            fireStockReductionBatch("FLUSH");
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    /**
+     * Fires a stock reduction batch event with the quantity sold of every
+     * product reduced since the last batch, if any.
      * <p>
-     * Used when product stock is reduced due to a sale.
      * The event is consumed by subscribed listeners such as
      * product or analytics modules.
      *
-     * @param productTotals The product whose stock has changed.
+     * @param batchId What the batch was made for (e.g. a sales record's id).
      */
-    public void fireStockReductionEvent(ProductTotals productTotals) {
-        Events.StockReduction.fire(SalesConverter.convertProductToDTO(productTotals));
+    public void fireStockReductionBatch(String batchId) {
+        if (pendingStockChanges.isEmpty()) return;
+        Events.StockReductionBatch.fire(pendingStockChanges.drain(batchId));
     }
     /*============================================
      * SALES MANAGER PUBLIC APIs
@@ -142,12 +247,71 @@ public final class SalesManager {
     }
 
     /**
-     * Records a new sale in the system.
+     * Records a new sale in the system, journals it, and fires the
+     * stock reductions of its items as one batch.
+     * <p>
+     * Returns once the journal has committed the sale. Sales saved at the
+     * same time from other threads are committed together.
      *
      * @param salesRecord The sales record to add.
      */
     public void addSalesRecord(SalesRecord salesRecord) {
+        long position;
+        saveLock.lock();
+        try {
+            position = saveSalesRecord(salesRecord);
+        } finally {
+            saveLock.unlock();
+        }
+        journal.awaitCommitted(position);
+    }
+
+    /**
+     * Opens a sale that is filled and saved without any prompts, whose
+     * items hold their stock until it is saved or cancelled. Any number
+     * of checkouts can be open and saved at once from different threads.
+     *
+     * @param id           The id of the sales record.
+     * @param reservations Holds the stock of the sale's items.
+     * @return The checkout of the new sale.
+     */
+    public Checkout openCheckout(String id, StockReservations reservations) {
+        return new Checkout(this, totalsList, id, reservations);
+    }
+
+    /**
+     * Saves a sales record whose items hold stock in the basket. The holds
+     * are turned into purchases first, and the record is only saved when
+     * every item could be sold.
+     *
+     * @param salesRecord The sales record to add.
+     * @param basket      The basket holding the stock of the record's items.
+     * @return true if the record was saved, false if a hold expired and its
+     *         stock was sold in the meantime, or one of its products was
+     *         removed, which cancels the basket.
+     */
+    boolean addSalesRecord(SalesRecord salesRecord, StockReservations.Basket basket) {
+        long position;
+        saveLock.lock();
+        try {
+            // Sold under the lock, as the sales totals are only changed by one thread at a time
+            if (!basket.sell()) return false;
+            for (int i = 0; i < basket.size(); i++) queueStockReduction(basket.getProduct(i), basket.getQuantity(i));
+            position = saveSalesRecord(salesRecord);
+        } finally {
+            saveLock.unlock();
+        }
+        journal.awaitCommitted(position);
+        return true;
+    }
+
+    private long saveSalesRecord(SalesRecord salesRecord) {
         recordsList.add(salesRecord);
+        lastSalesRecordId = salesRecord.getId();
+        long position = journal.logSale(SalesConverter.convertRecordToDTO(salesRecord));
+        // With a window, reductions are kept back to be batched with later sales
+        if (AppConfig.STOCK_BATCH_WINDOW_MILLIS <= 0) fireStockReductionBatch(salesRecord.getId());
+        return position;
     }
 
     /**
@@ -208,21 +372,309 @@ public final class SalesManager {
     public ProductTotals getProductWithMostStockSold() {
         return SafeSupplier.supply(totalsList::getProductWithMostStockSold);
     }
+
+    /**
+     * Retrieves the best sellers ranked by total sales value.
+     *
+     * @param limit The maximum number of products to retrieve.
+     * @return The products that have been sold, best first.
+     */
+    public RecordList<ProductTotals> getTopSellersBySales(int limit) {
+        return SafeSupplier.supply(() -> totalsList.getTopBySales(limit));
+    }
+
+    /**
+     * Retrieves the best sellers ranked by total stock sold.
+     *
+     * @param limit The maximum number of products to retrieve.
+     * @return The products that have been sold, best first.
+     */
+    public RecordList<ProductTotals> getTopSellersByStockSold(int limit) {
+        return SafeSupplier.supply(() -> totalsList.getTopByStockSold(limit));
+    }
+    /**
+     * @return The id of the sales record saved last, or {@code null}.
+     */
+    public String getLastSalesRecordId() {
+        return lastSalesRecordId;
+    }
+
+    /* ======================================================
+     *  EXPORTS
+     * =====================================================*/
+
+    /**
+     * Exports every item of every saved sales record, one line per item,
+     * as CSV or JSON Lines depending on the file's extension.
+     * <p>
+     * Lines are streamed to the file as the records are walked, so the
+     * export takes the same memory however many sales there are. Events
+     * still queued are handled first, so nothing changes while exporting.
+     *
+     * @param path The file to export to, replaced if it exists.
+     * @return The number of lines exported, or {@code null} if the export failed.
+     */
+    public Long exportSalesRecords(Path path) {
+        return SafeSupplier.supply(() -> {
+            Events.flush();
+            try (ExportWriter writer = ExportWriter.open(path, ExportWriter.Format.of(path),
+                    "sale_id", "product_id", "name", "price", "quantity", "total_price")) {
+                for (SalesRecord salesRecord : recordsList) {
+                    for (SalesItem item : salesRecord.getProductList()) {
+                        writer.text(salesRecord.getId())
+                                .text(item.getId())
+                                .text(item.getName())
+                                .money(item.getPrice())
+                                .number(item.getQuantity())
+                                .money(item.getTotalPrice())
+                                .endRow();
+                    }
+                }
+                logExport(path, writer.getRowCount());
+                return writer.getRowCount();
+            }
+        });
+    }
+
+    /**
+     * Exports the totals of every product, one line per product,
+     * as CSV or JSON Lines depending on the file's extension.
+     *
+     * @param path The file to export to, replaced if it exists.
+     * @return The number of lines exported, or {@code null} if the export failed.
+     * @see #exportSalesRecords(Path)
+     */
+    public Long exportProductTotals(Path path) {
+        return SafeSupplier.supply(() -> {
+            Events.flush();
+            try (ExportWriter writer = ExportWriter.open(path, ExportWriter.Format.of(path),
+                    "product_id", "name", "price", "stock", "total_sales", "total_stock_sold")) {
+                for (ProductTotals totals : totalsList) {
+                    writer.text(totals.getId())
+                            .text(totals.getName())
+                            .money(totals.getPrice())
+                            .number(totals.getStock())
+                            .money(totals.getTotalSales())
+                            .number(totals.getTotalStockSold())
+                            .endRow();
+                }
+                logExport(path, writer.getRowCount());
+                return writer.getRowCount();
+            }
+        });
+    }
+
+    private static void logExport(Path path, long lines) {
+        Logger.log("Export Finished",
+                String.format("Exported %,d lines to %s", lines, path),
+                Logger.Level.NOTICE);
+    }
+
+    /* ======================================================
+     *  SNAPSHOT / JOURNAL REPLAY
+     * =====================================================*/
+
+    /**
+     * Gets the sales module's share of a snapshot: the totals of every
+     * product and every saved sales record.
+     * <p>
+     * Product ids and names repeat across millions of sales items, so each
+     * text is written once and referred to by number afterwards. Records kept
+     * in a {@link MappedSalesLedger} are not copied, only how many of them the
+     * snapshot covers, after the ledger's files are synced.
+     *
+     * @return The sales module's snapshot part.
+     */
+    public Snapshotter.Part getSnapshotPart() {
+        return new Snapshotter.Part() {
+            @Override
+            public String getName() {
+                return "sales";
+            }
+
+            @Override
+            public Snapshotter.Writer capture() {
+                return captureSales();
+            }
+
+            @Override
+            public void restore(DataInput in) throws IOException {
+                restoreSales(in);
+            }
+
+            @Override
+            public void restoreEmpty() throws IOException {
+                if (recordsList instanceof MappedSalesLedger ledger) ledger.truncate(0);
+            }
+        };
+    }
+
+    /**
+     * Gets the handler that re-applies journaled sales when the program
+     * starts. Each sale is recorded and its stock reductions fired like
+     * the original sale was, without being journaled again.
+     * <p>
+     * Product changes are not handled here, as the inventory module fires
+     * them again while replaying.
+     *
+     * @return The sales module's journal handler.
+     */
+    public JournalReader.Handler getReplayHandler() {
+        return new JournalReader.Handler() {
+            @Override
+            public void sale(SaleDTO sale) {
+                SalesRecord salesRecord = new SalesRecord(sale.getId(), new RecordList<>(), sale.getTimestamp());
+                for (int i = 0; i < sale.size(); i++) {
+                    ProductTotals totals = findProductByID(sale.getProductId(i));
+                    if (totals == null) continue;
+                    double price = sale.getPrice(i);
+                    int quantity = sale.getQuantity(i);
+                    salesRecord.recordSale(new SalesItem(totals.getId(), totals.getName(), price, quantity, price * quantity));
+                    totals.recordPurchase(quantity, price);
+                    queueStockReduction(totals, quantity);
+                }
+                recordsList.add(salesRecord);
+                lastSalesRecordId = salesRecord.getId();
+                fireStockReductionBatch(salesRecord.getId());
+            }
+        };
+    }
+
+    /**
+     * Copies the values of every product totals into columns. Saved sales
+     * records no longer change, so only references to them are copied.
+     */
+    private Snapshotter.Writer captureSales() {
+        int size = totalsList.size();
+        String[] ids = new String[size];
+        String[] names = new String[size];
+        double[] prices = new double[size];
+        int[] stocks = new int[size];
+        double[] totalSales = new double[size];
+        int[] totalStockSold = new int[size];
+        int i = 0;
+        for (ProductTotals totals : totalsList) {
+            ids[i] = totals.getId();
+            names[i] = totals.getName();
+            prices[i] = totals.getPrice();
+            // Open sales do not outlive the program, so their held stock is kept as unsold
+            stocks[i] = totals.getUnsoldStock();
+            totalSales[i] = totals.getTotalSales();
+            totalStockSold[i] = totals.getTotalStockSold();
+            i++;
+        }
+        MappedSalesLedger ledger = recordsList instanceof MappedSalesLedger mapped ? mapped : null;
+        int recordCount = recordsList.size();
+        SalesRecord[] records = new SalesRecord[ledger == null ? recordCount : 0];
+        i = 0;
+        if (ledger == null) for (SalesRecord salesRecord : recordsList) records[i++] = salesRecord;
+        String lastId = lastSalesRecordId;
+
+        return out -> {
+            Map<String, Integer> texts = new HashMap<>();
+            out.writeUTF(lastId == null ? "" : lastId);
+            out.writeInt(size);
+            for (int j = 0; j < size; j++) {
+                writeText(out, texts, ids[j]);
+                writeText(out, texts, names[j]);
+                out.writeDouble(prices[j]);
+                out.writeInt(stocks[j]);
+                out.writeDouble(totalSales[j]);
+                out.writeInt(totalStockSold[j]);
+            }
+            out.writeBoolean(ledger != null);
+            if (ledger != null) {
+                ledger.force(recordCount);
+                out.writeInt(recordCount);
+                return;
+            }
+            out.writeInt(records.length);
+            for (SalesRecord salesRecord : records) {
+                RecordList<SalesItem> items = salesRecord.getProductList();
+                out.writeUTF(salesRecord.getId());
+                out.writeLong(salesRecord.getTimestamp());
+                out.writeInt(items.size());
+                for (SalesItem item : items) {
+                    writeText(out, texts, item.getId());
+                    writeText(out, texts, item.getName());
+                    out.writeDouble(item.getPrice());
+                    out.writeInt(item.getQuantity());
+                }
+            }
+        };
+    }
+
+    private void restoreSales(DataInput in) throws IOException {
+        List<String> texts = new ArrayList<>();
+        String lastId = in.readUTF();
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            ProductTotals totals = totalsList.add(readText(in, texts), readText(in, texts), in.readDouble(), in.readInt());
+            totals.restorePurchases(in.readDouble(), in.readInt());
+        }
+        boolean isLedger = in.readBoolean();
+        int records = in.readInt();
+        if (recordsList instanceof MappedSalesLedger ledger) {
+            ledger.truncate(isLedger ? records : 0);
+            if (isLedger) records = 0;
+        } else if (isLedger) {
+            throw new IOException("The snapshot's sales records are kept in the sales ledger, which is turned off");
+        }
+        for (int i = 0; i < records; i++) {
+            SalesRecord salesRecord = new SalesRecord(in.readUTF(), new RecordList<>(), in.readLong());
+            int items = in.readInt();
+            for (int j = 0; j < items; j++) {
+                String id = readText(in, texts);
+                String name = readText(in, texts);
+                double price = in.readDouble();
+                int quantity = in.readInt();
+                salesRecord.recordSale(new SalesItem(id, name, price, quantity, price * quantity));
+            }
+            recordsList.add(salesRecord);
+        }
+        lastSalesRecordId = lastId.isEmpty() ? null : lastId;
+    }
+
+    /**
+     * Writes the text the first time it is seen, and its number afterwards
+     */
+    private static void writeText(DataOutput out, Map<String, Integer> texts, String text) throws IOException {
+        Integer number = texts.get(text);
+        if (number != null) {
+            out.writeInt(number);
+            return;
+        }
+        texts.put(text, texts.size());
+        out.writeInt(-1);
+        out.writeUTF(text);
+    }
+
+    private static String readText(DataInput in, List<String> texts) throws IOException {
+        int number = in.readInt();
+        if (number >= 0) return texts.get(number);
+        String text = in.readUTF();
+        texts.add(text);
+        return text;
+    }
+
     /* ======================================================
      *  OTHER UTILITIES
      * =====================================================*/
     /**
      * Updates an existing product entry with new details.
      * <p>
-     * Retains cumulative totals but synchronizes name, price, and stock.
+     * Retains cumulative totals but synchronizes name, price, and stock,
+     * only when they changed. Changes to other fields are skipped.
      *
-     * @param product The updated product data from the product module.
+     * @param change The changes made to the product in the product module.
      */
-    private void updateProductDetails(ProductDTO product) {
-        ProductTotals totals = totalsList.get(product.getId());
-        totals.setName(product.getName());
-        totals.setPrice(product.getPrice());
-        totals.setStock(product.getStock());
+    private void updateProductDetails(ProductChangeDTO change) {
+        if (!change.hasChanged(ProductChangeDTO.NAME | ProductChangeDTO.PRICE | ProductChangeDTO.STOCK)) return;
+
+        ProductTotals totals = totalsList.get(change.getId());
+        if (change.hasChanged(ProductChangeDTO.NAME)) totals.setName(change.getName());
+        if (change.hasChanged(ProductChangeDTO.PRICE)) totals.setPrice(change.getPrice());
+        if (change.hasChanged(ProductChangeDTO.STOCK)) totals.setStock(change.getStock());
     }
 }
 
@@ -231,8 +683,8 @@ public final class SalesManager {
  * =====================================================*/
 
 /**
- * Utility class responsible for converting between
- * {@link ProductTotals} and {@link ProductDTO}.
+ * Utility class responsible for converting
+ * {@link ProductTotals} into {@link ProductDTO}.
  * <p>
  * Ensures that all conversions are safely executed using
  * {@link SafeSupplier} to handle internal exceptions gracefully.
@@ -241,6 +693,10 @@ final class SalesConverter {
 
     /**
      * Converts a {@link ProductTotals} entity into a {@link ProductDTO}.
+     * <p>
+     * The stock is the unsold stock, held stock included, like the
+     * inventory counts it. Holding and releasing stock leave it unchanged,
+     * so the DTO stays valid while it is cached.
      *
      * @param productTotals The product totals entity.
      * @return The converted DTO.
@@ -250,23 +706,29 @@ final class SalesConverter {
                 productTotals.getId(),
                 productTotals.getName(),
                 productTotals.getPrice(),
-                productTotals.getStock()
+                productTotals.getUnsoldStock()
         ));
     }
 
     /**
-     * Converts a {@link ProductDTO} into a {@link ProductTotals} entity.
+     * Converts a {@link SalesRecord} into a {@link SaleDTO} to be journaled.
      *
-     * @param product The product DTO.
-     * @return The converted totals entity.
-     */
-    static ProductTotals convertDTOToProduct(ProductDTO product) {
-        return SafeSupplier.supply(() -> new ProductTotals(
-                product.getId(),
-                product.getName(),
-                product.getPrice(),
-                product.getStock()
-        ));
+     * @param salesRecord The sales record.
+     * @return The converted DTO.
+     */
+    static SaleDTO convertRecordToDTO(SalesRecord salesRecord) {
+        RecordList<SalesItem> items = salesRecord.getProductList();
+        String[] productIds = new String[items.size()];
+        double[] prices = new double[productIds.length];
+        int[] quantities = new int[productIds.length];
+        int i = 0;
+        for (SalesItem item : items) {
+            productIds[i] = item.getId();
+            prices[i] = item.getPrice();
+            quantities[i] = item.getQuantity();
+            i++;
+        }
+        return new SaleDTO(salesRecord.getId(), salesRecord.getTimestamp(), productIds, prices, quantities);
     }
 }
 
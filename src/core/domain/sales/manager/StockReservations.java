@@ -0,0 +1,208 @@
+package core.domain.sales.manager;
+
+import core.domain.sales.datastructures.*;
+import core.domain.sales.model.*;
+
+import java.io.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Holds stock for sales that are still open, so an item added to a sale is
+ * taken off the shelf for other terminals without being sold yet. Each sale
+ * gets a {@link Basket} whose items hold stock for a limited time. Saving
+ * the sale turns its holds into purchases, and cancelling it lets the stock
+ * go. A basket left open past the time limit loses its holds, so abandoned
+ * sales cannot keep stock from being sold
+ *
+ * Holds are given to a {@link TimingWheel} when made, and a background
+ * reaper advances the wheel every tick, letting go of the holds that expired.
+ * Holds sold or cancelled before their time stay in the wheel and are
+ * skipped when they come due, so the reaper never scans open baskets
+ *
+ * Baskets can be used from any thread, one thread per basket
+ *
+ * @version 1.0
+ * @see ProductTotals#tryHoldStock(int)
+ */
+public final class StockReservations implements Closeable {
+    private static final int ACTIVE = 0;
+    private static final int SOLD = 1;
+    private static final int RELEASED = 2;
+    private static final int EXPIRED = 3;
+
+    private final long timeToLiveNanos;
+    private final long tickNanos;
+    private final TimingWheel<Hold> wheel;
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final Thread reaper;
+
+    /**
+     * Stock of one product held for one item of an open sale, and
+     * the price it will be sold at
+     */
+    private static final class Hold {
+        private final ProductTotals product;
+        private final int quantity;
+        private final double price;
+        private final AtomicInteger state = new AtomicInteger(ACTIVE);
+
+        private Hold(ProductTotals product, int quantity, double price) {
+            this.product = product;
+            this.quantity = quantity;
+            this.price = price;
+        }
+    }
+
+    /**
+     * Starts the reaper of expired holds
+     *
+     * @param timeToLiveMillis how long a hold lasts before its stock is let go
+     * @param tickMillis how often expired holds are looked for
+     * @param wheelSlots number of ticks in one turn of the timing wheel
+     */
+    public StockReservations(long timeToLiveMillis, long tickMillis, int wheelSlots) {
+        if (timeToLiveMillis < 1 || tickMillis < 1)
+            throw new IllegalArgumentException("Holds and ticks must at least last 1 millisecond");
+        this.timeToLiveNanos = Duration.ofMillis(timeToLiveMillis).toNanos();
+        this.tickNanos = Duration.ofMillis(tickMillis).toNanos();
+        this.wheel = new TimingWheel<>(tickNanos, wheelSlots, System.nanoTime());
+        this.reaper = Thread.ofVirtual().name("stock-hold-reaper").start(this::reap);
+    }
+
+    /**
+     * @return a new basket for a sale that was just opened
+     */
+    public Basket openBasket() {
+        return new Basket();
+    }
+
+    /** @return number of holds that expired before their sale was saved or cancelled */
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    /** @return number of holds waiting in the timing wheel, including sold or cancelled ones */
+    public int getPendingCount() {
+        return wheel.size();
+    }
+
+    /**
+     * Stops the reaper. Holds still open keep their stock
+     */
+    @Override
+    public void close() {
+        reaper.interrupt();
+        try {
+            reaper.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void reap() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Thread.sleep(Duration.ofNanos(tickNanos));
+            } catch (InterruptedException e) {
+                return;
+            }
+            wheel.advance(System.nanoTime(), this::expire);
+        }
+    }
+
+    private void expire(Hold hold) {
+        if (!hold.state.compareAndSet(ACTIVE, EXPIRED)) return;
+        hold.product.releaseHeldStock(hold.quantity);
+        expiredCount.incrementAndGet();
+    }
+
+    /**
+     * The holds of one open sale. Used by one thread at a time
+     */
+    public final class Basket {
+        private Hold[] holds = new Hold[4];
+        private int size;
+        private boolean isClosed;
+
+        private Basket() {}
+
+        /**
+         * Holds stock of the product for the sale, if that much is available.
+         * The item is sold at the product's price when it was held
+         * @param product the product added to the sale
+         * @param quantity the number of items added
+         * @return true if the stock is now held, false if there was not enough
+         * @throws IllegalStateException when the basket was already saved or cancelled
+         */
+        public boolean hold(ProductTotals product, int quantity) {
+            if (isClosed) throw new IllegalStateException("The basket is already closed");
+            if (!product.tryHoldStock(quantity)) return false;
+            Hold hold = new Hold(product, quantity, product.getPrice());
+            if (size == holds.length) holds = Arrays.copyOf(holds, size << 1);
+            holds[size++] = hold;
+            wheel.schedule(hold, System.nanoTime() + timeToLiveNanos);
+            return true;
+        }
+
+        /**
+         * Turns every hold into a purchase, all or nothing. A hold that
+         * expired is taken again if the stock is still available. When it
+         * is not, or a product of the basket was removed, every hold of the
+         * basket is let go and nothing is sold
+         * @return true if every item was sold, false if the basket was cancelled instead
+         */
+        public boolean sell() {
+            if (isClosed) throw new IllegalStateException("The basket is already closed");
+            isClosed = true;
+            for (int i = 0; i < size; i++) {
+                Hold hold = holds[i];
+                if (!hold.product.isRemoved()) {
+                    if (hold.state.compareAndSet(ACTIVE, SOLD)) continue;
+                    // Expired, so the reaper already let go of its stock
+                    if (hold.product.tryHoldStock(hold.quantity)) {
+                        hold.state.set(SOLD);
+                        continue;
+                    }
+                }
+                for (int j = 0; j < i; j++) {
+                    holds[j].state.set(RELEASED);
+                    holds[j].product.releaseHeldStock(holds[j].quantity);
+                }
+                releaseFrom(i);
+                return false;
+            }
+            for (int i = 0; i < size; i++) holds[i].product.recordHeldPurchase(holds[i].quantity, holds[i].price);
+            return true;
+        }
+
+        /**
+         * Lets go of every hold, for a sale that was cancelled
+         */
+        public void cancel() {
+            if (isClosed) return;
+            isClosed = true;
+            releaseFrom(0);
+        }
+
+        /** @return number of items held */
+        public int size() {return size;}
+
+        /** @return the product of the item at the position, the first being 0 */
+        public ProductTotals getProduct(int i) {return holds[i].product;}
+
+        /** @return the quantity held of the item at the position, the first being 0 */
+        public int getQuantity(int i) {return holds[i].quantity;}
+
+        /** @return the price the item at the position is sold at, the first being 0 */
+        public double getPrice(int i) {return holds[i].price;}
+
+        private void releaseFrom(int start) {
+            for (int i = start; i < size; i++) {
+                Hold hold = holds[i];
+                if (hold.state.compareAndSet(ACTIVE, RELEASED)) hold.product.releaseHeldStock(hold.quantity);
+            }
+        }
+    }
+}
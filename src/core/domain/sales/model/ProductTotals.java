@@ -3,6 +3,8 @@ package core.domain.sales.model;
 import common.util.*;
 import core.domain.api.model.Record;
 
+import java.util.concurrent.atomic.*;
+
 /**
  * Represents the accumulated sales data for a specific product.
  *
@@ -13,58 +15,292 @@ import core.domain.api.model.Record;
  *
  * This class is part of the domain layer and acts as a summary record
  * that updates whenever a sale is recorded.
+ *
+ * Where the values are stored is left to subclasses. Totals made through
+ * {@link #create(String, String, double, int)} keep them in their own fields,
+ * while a columnar sales list keeps them in primitive arrays and hands out
+ * lightweight views over them
+ *
+ * Stock is either available, or held by sales that are still open (see
+ * {@link #tryHoldStock(int)}). Both are kept in one counter that several
+ * threads can change at once (e.g. many checkout terminals selling the same
+ * product), updated with a compare-and-set instead of a lock. Holding stock
+ * checks and moves it in one step, so the available stock never goes below
+ * zero, and the unsold stock (available plus held) is always exact
+ *
+ * A product removed from the inventory keeps its totals, but its stock can
+ * no longer be held, and stock still held for it is dropped once let go
  */
-public class ProductTotals implements Record {
-    private final String id;
-    private String name;
-    private double price;
-    private int stock;
-    private double totalSales;
-    private int totalStockSold;
-
-    public ProductTotals(String id,
-                         String name,
-                         double price,
-                         int stock) {
-        this.id = id;
-        this.name = name;
-        this.price = price;
-        this.stock = stock;
-        totalSales = 0;
-        totalStockSold = 0;
+public abstract class ProductTotals implements Record {
+    private PurchaseListener purchaseListener;
+    private volatile boolean isRemoved;
+
+    /**
+     * Functional interface for whoever keeps aggregates over product totals
+     * (e.g. the sales list), notified with the amounts added by each purchase
+     */
+    @FunctionalInterface
+    public interface PurchaseListener {
+        void handle(ProductTotals productTotals, double sales, int stockSold);
+    }
+
+    /**
+     * Creates product totals that store their values in their own fields,
+     * with nothing sold yet
+     *
+     * @param id the product's id
+     * @param name the product's name
+     * @param price the product's price
+     * @param stock the product's available stock
+     * @return the new product totals
+     */
+    public static ProductTotals create(String id,
+                                       String name,
+                                       double price,
+                                       int stock) {
+        return new Standalone(id, name, price, stock);
     }
 
     // GETTERS
-    public String getId() {return id;}
-    public String getName() {return name;}
-    public double getPrice() {return price;}
-    public int getStock() {return stock;}
-    public double getTotalSales() {return totalSales;}
-    public int getTotalStockSold() {return totalStockSold;}
+    public abstract String getName();
+    public abstract double getPrice();
+    public abstract double getTotalSales();
+    public abstract int getTotalStockSold();
+
+    /** @return the stock available to sell, not counting held stock */
+    public int getStock() {return stockOf(getStockState());}
+
+    /** @return the stock held by sales that are still open */
+    public int getHeldStock() {return heldOf(getStockState());}
+
+    /** @return true if the product was removed from the inventory */
+    public boolean isRemoved() {return isRemoved;}
+
+    /** @return the stock not sold yet, both available and held */
+    public int getUnsoldStock() {
+        long state = getStockState();
+        return stockOf(state) + heldOf(state);
+    }
 
     // SETTERS
-    public void setName(String name){this.name=name;}
-    public void setPrice(double price){this.price=price;}
-    public void setStock(int stock){this.stock=stock;}
+    public abstract void setName(String name);
+    public abstract void setPrice(double price);
+    public void setPurchaseListener(PurchaseListener purchaseListener){this.purchaseListener=purchaseListener;}
+
+    /**
+     * Sets the unsold stock (e.g. after a restock), keeping what is
+     * held, so the available stock becomes the rest
+     * @param stock the product's unsold stock
+     */
+    public void setStock(int stock){
+        while(true){
+            long state = getStockState();
+            if(compareAndSetStockState(state, stateOf(stock - heldOf(state), heldOf(state)))) return;
+        }
+    }
 
     // MUTATORS
+    /**
+     * Marks the product as removed from the inventory. Its available stock
+     * becomes zero, while stock held by open sales stays held until those
+     * sales are saved or let it go
+     */
+    public void markRemoved(){
+        isRemoved = true;
+        while(true){
+            long state = getStockState();
+            if(compareAndSetStockState(state, stateOf(0, heldOf(state)))) return;
+        }
+    }
+
+    /**
+     * Records a purchase whose stock was not held beforehand at the current
+     * price, taking the sold stock out even if that leaves less than zero
+     * @param stockSold the number of items purchased
+     */
     public void recordPurchase(int stockSold){
+        recordPurchase(stockSold, getPrice());
+    }
+
+    /**
+     * Records a purchase whose stock was not held beforehand (e.g. a sale
+     * replayed from the journal), taking the sold stock out even if that
+     * leaves less than zero
+     * @param stockSold the number of items purchased
+     * @param price the price each item was sold at
+     */
+    public void recordPurchase(int stockSold, double price){
         if(stockSold<1) throw new IllegalArgumentException("Stock sold must at least be 1");
-        totalSales += price * stockSold;
-        totalStockSold += stockSold;
-        stock-=stockSold;
+        changeStock(-stockSold, 0);
+        addPurchase(stockSold, price);
     }
 
+    /**
+     * Records a purchase of stock held by {@link #tryHoldStock(int)} at
+     * the current price, which stops being held
+     * @param stockSold the number of items purchased
+     */
+    public void recordHeldPurchase(int stockSold){
+        recordHeldPurchase(stockSold, getPrice());
+    }
+
+    /**
+     * Records a purchase of stock held by {@link #tryHoldStock(int)},
+     * which stops being held
+     * @param stockSold the number of items purchased
+     * @param price the price each item was sold at, which may not be the
+     *              current one when the price changed while the stock was held
+     */
+    public void recordHeldPurchase(int stockSold, double price){
+        if(stockSold<1) throw new IllegalArgumentException("Stock sold must at least be 1");
+        changeStock(0, -stockSold);
+        addPurchase(stockSold, price);
+    }
+
+    /**
+     * Holds the quantity for a sale that is still open, if that much stock
+     * is available. Safe to call from any thread, and never waits for a
+     * lock: when another thread changes the stock in between, the check
+     * is simply retried
+     * @param quantity the number of items to hold
+     * @return true if the stock is now held, false if there was not enough
+     *         or the product was removed
+     */
+    public boolean tryHoldStock(int quantity){
+        if(quantity<1) throw new IllegalArgumentException("Quantity must at least be 1");
+        if(isRemoved) return false;
+        while(true){
+            long state = getStockState();
+            int stock = stockOf(state);
+            if(stock < quantity) return false;
+            if(compareAndSetStockState(state, stateOf(stock - quantity, heldOf(state) + quantity))) return true;
+        }
+    }
+
+    /**
+     * Makes held stock that was not sold available again, or drops it
+     * when the product was removed in the meantime
+     * @param quantity the number of items to let go of
+     */
+    public void releaseHeldStock(int quantity){
+        if(quantity<1) throw new IllegalArgumentException("Quantity must at least be 1");
+        changeStock(isRemoved ? 0 : quantity, -quantity);
+    }
+
+    /**
+     * Adds sales made before these totals were created (e.g. when loaded
+     * from a snapshot), leaving the stock as it is
+     * @param sales the value of the earlier sales
+     * @param stockSold the number of items sold earlier
+     */
+    public void restorePurchases(double sales, int stockSold){
+        if(stockSold == 0) return;
+        addSales(sales, stockSold);
+        if(purchaseListener != null) purchaseListener.handle(this, sales, stockSold);
+    }
+
+    private void addPurchase(int stockSold, double price){
+        double sales = price * stockSold;
+        addSales(sales, stockSold);
+        if(purchaseListener != null) purchaseListener.handle(this, sales, stockSold);
+    }
+
+    private void changeStock(int stockDelta, int heldDelta){
+        while(true){
+            long state = getStockState();
+            long changed = stateOf(stockOf(state) + stockDelta, heldOf(state) + heldDelta);
+            if(compareAndSetStockState(state, changed)) return;
+        }
+    }
+
+    /**
+     * Packs the available stock in the high half and the held stock in the low half
+     */
+    protected static long stateOf(int stock, int held){
+        return ((long) stock << 32) | (held & 0xFFFFFFFFL);
+    }
+
+    private static int stockOf(long state) {return (int) (state >> 32);}
+    private static int heldOf(long state) {return (int) state;}
+
+    /**
+     * Adds the purchase to the stored totals, leaving the stock as it is
+     * @param sales the value of the purchase
+     * @param stockSold the number of items purchased
+     */
+    protected abstract void addSales(double sales, int stockSold);
+
+    /**
+     * @return the available and held stock, packed by {@link #stateOf(int, int)}
+     */
+    protected abstract long getStockState();
+
+    /**
+     * Sets the stock state only if it still holds the expected one,
+     * as a single atomic step
+     * @return true if the state was set, otherwise false
+     */
+    protected abstract boolean compareAndSetStockState(long expected, long state);
+
     @Override
     public String toString() {
         return String.format("%n%s %-9s %s| %-20s | %-10.2f | %-5d | %-11.2f | %-5d%n",
                 Ansi.Color.DIM_WHITE.code() + Ansi.Format.REVERSE.code(),
-                id,
+                getId(),
                 Ansi.Format.RESET.code(),
-                name,
-                price,
-                stock,
-                totalSales,
-                totalStockSold);
+                getName(),
+                getPrice(),
+                getStock(),
+                getTotalSales(),
+                getTotalStockSold());
+    }
+
+    /**
+     * Product totals that keep every value in their own fields
+     */
+    private static final class Standalone extends ProductTotals {
+        private final String id;
+        private String name;
+        private double price;
+        private final AtomicLong stockState;
+        private double totalSales;
+        private int totalStockSold;
+
+        private Standalone(String id,
+                           String name,
+                           double price,
+                           int stock) {
+            this.id = id;
+            this.name = name;
+            this.price = price;
+            this.stockState = new AtomicLong(stateOf(stock, 0));
+        }
+
+        // GETTERS
+        public String getId() {return id;}
+        public String getName() {return name;}
+        public double getPrice() {return price;}
+        public double getTotalSales() {return totalSales;}
+        public int getTotalStockSold() {return totalStockSold;}
+
+        // SETTERS
+        public void setName(String name){this.name=name;}
+        public void setPrice(double price){this.price=price;}
+
+        @Override
+        protected void addSales(double sales, int stockSold){
+            totalSales += sales;
+            totalStockSold += stockSold;
+        }
+
+        @Override
+        protected long getStockState(){
+            return stockState.get();
+        }
+
+        @Override
+        protected boolean compareAndSetStockState(long expected, long state){
+            return stockState.compareAndSet(expected, state);
+        }
     }
 }
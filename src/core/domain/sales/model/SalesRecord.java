@@ -16,20 +16,35 @@ import core.domain.api.model.Record;
  */
 public class SalesRecord implements Record {
     private final String id;
+    private final long timestamp;
     private final RecordList<SalesItem> productList;
     private double totalSales;
     private int totalStockSold;
 
     /**
-     * Constructs a new {@code SalesRecord}.
+     * Constructs a new {@code SalesRecord}, made now.
      *
      * @param id           the unique identifier of this sales record
      * @param productList  the list that stores all {@link SalesItem}s under this record
      */
     public SalesRecord(String id,
                        RecordList<SalesItem> productList) {
+        this(id, productList, System.currentTimeMillis());
+    }
+
+    /**
+     * Constructs a {@code SalesRecord} made at the given time (e.g. one read back from disk).
+     *
+     * @param id           the unique identifier of this sales record
+     * @param productList  the list that stores all {@link SalesItem}s under this record
+     * @param timestamp    when the sale was made, in epoch milliseconds, or 0 if unknown
+     */
+    public SalesRecord(String id,
+                       RecordList<SalesItem> productList,
+                       long timestamp) {
         this.id = id;
         this.productList = productList;
+        this.timestamp = timestamp;
     }
 
     /**
@@ -47,6 +62,12 @@ public class SalesRecord implements Record {
     /** @return the unique sale ID */
     public String getId() { return id; }
 
+    /** @return when the sale was made, in epoch milliseconds, or 0 if unknown */
+    public long getTimestamp() { return timestamp; }
+
+    /** @return the items sold */
+    public RecordList<SalesItem> getProductList() { return productList; }
+
     /** @return {@code true} if no items have been recorded, otherwise {@code false} */
     public boolean isEmpty(){ return productList.isEmpty(); }
 
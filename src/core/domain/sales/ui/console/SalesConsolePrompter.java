@@ -59,6 +59,14 @@ public class SalesConsolePrompter extends ConsolePrompter {
         return idGenerator.generateID();
     }
 
+    /**
+     * Makes sure an id given before is never generated again
+     * @param id a sales record id generated before, or null
+     */
+    public void reserveID(String id){
+        idGenerator.reserveID(id);
+    }
+
     /**
      * Creates and returns a new, empty {@link SalesRecord} instance
      * with an auto-generated ID and an empty {@link RecordList} of {@link SalesItem}s.
@@ -43,7 +43,10 @@ public class SalesConsoleView extends ConsoleRenderer {
     public void showSalesRecords(RecordList<SalesRecord> recordList){
         if (recordList == null) return;
         showRecordsHeader();
-        System.out.print("\n" + recordList + "\n");
+        // Printed one at a time, as a ledger reads each record as it is reached
+        System.out.print("\n");
+        for (SalesRecord salesRecord : recordList) System.out.print(salesRecord);
+        System.out.print("\n");
     }
 
     /**
@@ -90,6 +93,29 @@ public class SalesConsoleView extends ConsoleRenderer {
         );
     }
 
+    /**
+     * Displays the best sellers ranked by total sales value
+     * and by total stock sold, best first.
+     *
+     * @param bySales the products ranked by total sales value
+     * @param byStockSold the products ranked by units sold
+     */
+    public void showTopSellers(RecordList<ProductTotals> bySales,
+                               RecordList<ProductTotals> byStockSold){
+        if (bySales == null || byStockSold == null) return;
+        if (bySales.isEmpty()) {
+            Logger.log("No Top Sellers", "Nothing is sold yet. Unable to rank products", Logger.Level.NOTICE);
+            return;
+        }
+        System.out.println("\nTOP SELLERS BY TOTAL SALES");
+        showTotalsHeader();
+        System.out.print(bySales + "\n");
+
+        System.out.println("\nTOP SELLERS BY STOCK SOLD");
+        showTotalsHeader();
+        System.out.print(byStockSold + "\n");
+    }
+
     /** Prints the header for the product totals table. */
     private void showTotalsHeader() {
         System.out.print("""
@@ -0,0 +1,376 @@
+package core.shared.csv;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+/**
+ * Reads CSV files (RFC 4180: comma separated, fields optionally quoted,
+ * quotes escaped by doubling them) straight from memory mapped chunks
+ * of the file, so a big file is never loaded whole
+ *
+ * The file is split into chunks of a fixed size, each moved forward to
+ * the start of its first row, and the chunks are parsed in parallel. A
+ * row is only a set of field offsets into the mapped chunk, so numbers
+ * are parsed without creating strings and only text fields allocate
+ *
+ * Since chunks are split on line breaks, a quoted field cannot hold one;
+ * such rows are reported as malformed. Blank lines are skipped, and
+ * unquoted fields are trimmed of spaces
+ *
+ * @version 1.0
+ */
+public final class CsvReader {
+    /** Longest row a chunk reads past its end to finish */
+    public static final int MAX_ROW_LENGTH = 1 << 16;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private CsvReader() {} // prevent instantiation
+
+    /**
+     * Receives the rows of one chunk, in the order they appear.
+     * A handler is only ever called by one thread
+     */
+    public interface RowHandler {
+        /**
+         * @param row the row, only valid until the method returns
+         */
+        void handle(Row row);
+
+        /**
+         * @param line the line of the row within its chunk, starting at 1
+         * @param reason why the row could not be split into fields
+         */
+        void malformed(long line, String reason);
+    }
+
+    /**
+     * A parsed chunk, with the handler that received its rows
+     * @param <H> type of the handler
+     */
+    public static final class Chunk<H> {
+        private final H handler;
+        private final long lineCount;
+        private long firstLine;
+
+        private Chunk(H handler, long lineCount) {
+            this.handler = handler;
+            this.lineCount = lineCount;
+        }
+
+        /**
+         * @param line a line within the chunk, starting at 1
+         * @return the line within the whole file, starting at 1
+         */
+        public long toFileLine(long line) {return firstLine + line - 1;}
+
+        // GETTERS
+        public H getHandler() {return handler;}
+        public long getLineCount() {return lineCount;}
+    }
+
+    /**
+     * Parses the file chunk by chunk, in parallel
+     *
+     * @param path the CSV file
+     * @param chunkBytes the size of every chunk but the last
+     * @param handlers creates the handler of the chunk with the given index, the first chunk being 0
+     * @return every chunk, in the order they appear in the file
+     * @throws IOException when the file cannot be read
+     */
+    @SuppressWarnings("unchecked")
+    public static <H extends RowHandler> Chunk<H>[] read(Path path, int chunkBytes, IntFunction<H> handlers)
+            throws IOException {
+        if (chunkBytes < 1) throw new IllegalArgumentException("Chunks must at least be 1 byte");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int count = (int) Math.max(1, (size + chunkBytes - 1) / chunkBytes);
+            Chunk<H>[] chunks = (Chunk<H>[]) new Chunk<?>[count];
+            try {
+                IntStream.range(0, count).parallel().forEach(i -> {
+                    H handler = handlers.apply(i);
+                    chunks[i] = new Chunk<>(handler, parseChunk(channel, size, (long) i * chunkBytes, chunkBytes, handler));
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            long line = 1;
+            for (Chunk<H> chunk : chunks) {
+                chunk.firstLine = line;
+                line += chunk.lineCount;
+            }
+            return chunks;
+        }
+    }
+
+    /**
+     * Parses the rows starting within the chunk. Those are the rows after the
+     * first line break found at or after the byte before the chunk, up to the
+     * first row starting after the chunk, which the next chunk parses instead
+     *
+     * @return the number of lines of the chunk
+     */
+    private static long parseChunk(FileChannel channel, long size, long start, int chunkBytes, RowHandler handler) {
+        long limit = Math.min(size, start + chunkBytes);
+        long regionStart = start == 0 ? 0 : start - 1;
+        long regionEnd = Math.min(size, limit + MAX_ROW_LENGTH);
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, regionEnd - regionStart);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        int end = (int) (regionEnd - regionStart);
+        int rowLimit = (int) (limit - regionStart);
+        int position = 0;
+        if (start == 0) {
+            if (end >= 3 && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB && buffer.get(2) == (byte) 0xBF)
+                position = 3;
+        } else {
+            while (position < end && buffer.get(position) != '\n') position++;
+            position++;
+        }
+
+        Row row = new Row(buffer, end, regionEnd == size);
+        long lines = 0;
+        // The first row of the file belongs to the first chunk even when its byte order mark fills the chunk
+        while (position < rowLimit || (start == 0 && lines == 0 && position < end)) {
+            lines++;
+            position = row.parse(position, lines);
+            if (row.malformation != null) {
+                handler.malformed(lines, row.malformation);
+            } else if (!row.isBlank()) {
+                handler.handle(row);
+            }
+            if (position < 0) break; // The row runs past the region, so no later row starts within the chunk
+        }
+        return lines;
+    }
+
+    /**
+     * A row of a chunk, reused for every row of the chunk.
+     * Fields are kept as offsets into the mapped chunk
+     */
+    public static final class Row {
+        private final ByteBuffer buffer;
+        private final int end;
+        private final boolean isFileEnd;
+        private int[] starts = new int[8];
+        private int[] ends = new int[8];
+        private boolean[] hasEscapes = new boolean[8];
+        private boolean[] isQuoted = new boolean[8];
+        private byte[] scratch = new byte[256];
+        private int fieldCount;
+        private long line;
+        private String malformation;
+
+        private Row(ByteBuffer buffer, int end, boolean isFileEnd) {
+            this.buffer = buffer;
+            this.end = end;
+            this.isFileEnd = isFileEnd;
+        }
+
+        /**
+         * Splits the row starting at the position into fields
+         * @return the position after the row's line break, or -1 when
+         * the row runs past the end of the mapped region
+         */
+        private int parse(int position, long line) {
+            this.line = line;
+            fieldCount = 0;
+            malformation = null;
+            int p = position;
+            while (true) {
+                if (fieldCount == starts.length) growFields();
+                int fieldStart;
+                int fieldEnd;
+                boolean escaped = false;
+                boolean quoted = false;
+                while (p < end && (buffer.get(p) == ' ' || buffer.get(p) == '\t')) p++;
+                if (p < end && buffer.get(p) == '"') {
+                    quoted = true;
+                    fieldStart = ++p;
+                    while (true) {
+                        if (p >= end) return runOff("A quoted field is never closed");
+                        byte b = buffer.get(p);
+                        if (b == '"') {
+                            if (p + 1 < end && buffer.get(p + 1) == '"') {
+                                escaped = true;
+                                p += 2;
+                                continue;
+                            }
+                            fieldEnd = p++;
+                            break;
+                        }
+                        if (b == '\n') return malformed(p + 1, "A quoted field holds a line break");
+                        p++;
+                    }
+                    while (p < end && (buffer.get(p) == ' ' || buffer.get(p) == '\t' || buffer.get(p) == '\r')) p++;
+                    if (p < end && buffer.get(p) != ',' && buffer.get(p) != '\n')
+                        return malformed(skipLine(p), "Unexpected text after a quoted field");
+                } else {
+                    fieldStart = p;
+                    while (p < end && buffer.get(p) != ',' && buffer.get(p) != '\n') {
+                        if (buffer.get(p) == '"') return malformed(skipLine(p), "A quote inside an unquoted field");
+                        p++;
+                    }
+                    fieldEnd = p;
+                    while (fieldEnd > fieldStart && isTrimmed(buffer.get(fieldEnd - 1))) fieldEnd--;
+                }
+                starts[fieldCount] = fieldStart;
+                ends[fieldCount] = fieldEnd;
+                hasEscapes[fieldCount] = escaped;
+                isQuoted[fieldCount] = quoted;
+                fieldCount++;
+
+                if (p >= end) return isFileEnd ? end : runOff("The row is longer than " + MAX_ROW_LENGTH + " bytes");
+                if (buffer.get(p++) == '\n') return p;
+            }
+        }
+
+        private int runOff(String reason) {
+            if (isFileEnd) return malformed(end, reason);
+            malformation = "The row is longer than " + MAX_ROW_LENGTH + " bytes";
+            return -1;
+        }
+
+        private int malformed(int next, String reason) {
+            malformation = reason;
+            return next;
+        }
+
+        private int skipLine(int p) {
+            while (p < end && buffer.get(p) != '\n') p++;
+            return p < end ? p + 1 : (isFileEnd ? end : -1);
+        }
+
+        private void growFields() {
+            int length = starts.length << 1;
+            starts = Arrays.copyOf(starts, length);
+            ends = Arrays.copyOf(ends, length);
+            hasEscapes = Arrays.copyOf(hasEscapes, length);
+            isQuoted = Arrays.copyOf(isQuoted, length);
+        }
+
+        private static boolean isTrimmed(byte b) {
+            return b == ' ' || b == '\t' || b == '\r';
+        }
+
+        private boolean isBlank() {
+            return fieldCount == 1 && !isQuoted[0] && starts[0] == ends[0];
+        }
+
+        /** @return the line of the row within its chunk, starting at 1 */
+        public long getLine() {return line;}
+
+        /** @return number of fields in the row */
+        public int getFieldCount() {return fieldCount;}
+
+        /**
+         * @param field the field's position, starting at 0
+         * @return true if the field has no characters, otherwise false
+         */
+        public boolean isEmpty(int field) {
+            return starts[field] == ends[field];
+        }
+
+        /**
+         * @param field the field's position, starting at 0
+         * @return the field's text, with escaped quotes turned back into one
+         */
+        public String getString(int field) {
+            int start = starts[field];
+            int length = ends[field] - start;
+            if (scratch.length < length) scratch = new byte[Math.max(length, scratch.length << 1)];
+            buffer.get(start, scratch, 0, length);
+            if (hasEscapes[field]) {
+                int kept = 0;
+                for (int i = 0; i < length; i++) {
+                    scratch[kept++] = scratch[i];
+                    if (scratch[i] == '"') i++;
+                }
+                length = kept;
+            }
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Parses a whole number straight from the chunk
+         * @param field the field's position, starting at 0
+         * @return the field's value
+         * @throws NumberFormatException when the field is not a whole number that fits an int
+         */
+        public int getInt(int field) {
+            int p = starts[field];
+            int e = ends[field];
+            boolean isNegative = p < e && buffer.get(p) == '-';
+            if (p < e && (isNegative || buffer.get(p) == '+')) p++;
+            if (p == e || e - p > 10) throw notANumber(field);
+            long value = 0;
+            for (; p < e; p++) {
+                int digit = buffer.get(p) - '0';
+                if (digit < 0 || digit > 9) throw notANumber(field);
+                value = value * 10 + digit;
+            }
+            if (isNegative) value = -value;
+            if (value != (int) value) throw notANumber(field);
+            return (int) value;
+        }
+
+        /**
+         * Parses a decimal number. Plain decimals of up to 15 digits
+         * (e.g. 1299.95) are parsed straight from the chunk, and are
+         * exact since both their digits and the power of ten they are
+         * divided by fit a double. Anything else goes through
+         * {@link Double#parseDouble(String)}
+         *
+         * @param field the field's position, starting at 0
+         * @return the field's value
+         * @throws NumberFormatException when the field is not a number
+         */
+        public double getDouble(int field) {
+            int p = starts[field];
+            int e = ends[field];
+            boolean isNegative = p < e && buffer.get(p) == '-';
+            if (p < e && (isNegative || buffer.get(p) == '+')) p++;
+            long digits = 0;
+            int digitCount = 0;
+            int scale = 0;
+            boolean hasPoint = false;
+            boolean isPlain = p < e && e - p <= 16;
+            for (; isPlain && p < e; p++) {
+                byte b = buffer.get(p);
+                if (b >= '0' && b <= '9') {
+                    digits = digits * 10 + (b - '0');
+                    digitCount++;
+                    if (hasPoint) scale++;
+                } else if (b == '.' && !hasPoint) {
+                    hasPoint = true;
+                } else {
+                    isPlain = false;
+                }
+            }
+            if (isPlain && digitCount > 0 && digitCount <= 15) {
+                double value = digits / POWERS_OF_TEN[scale];
+                return isNegative ? -value : value;
+            }
+            try {
+                return Double.parseDouble(getString(field));
+            } catch (NumberFormatException ex) {
+                throw notANumber(field);
+            }
+        }
+
+        private NumberFormatException notANumber(int field) {
+            return new NumberFormatException("\"" + getString(field) + "\" is not a number");
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package core.shared.events;
+
+import common.util.*;
+
+import java.util.concurrent.locks.*;
+
+/**
+ * Dispatches fired events on worker threads instead of the firing thread.
+ *
+ * Listeners are spread over a fixed number of lanes by their module (e.g.
+ * every SalesManager listener shares a lane), each lane being a bounded ring
+ * buffer drained by its own virtual thread. A fired event is queued on every
+ * lane that has one of its listeners, and each lane only calls the listeners
+ * of its own modules. A module is therefore only ever called by one thread,
+ * and sees every event in the order it was fired, while different modules
+ * handle events side by side
+ *
+ * @version 1.0
+ * @see Events
+ */
+final class AsyncDispatcher {
+    private final Lane[] lanes;
+    private final Events.Backpressure backpressure;
+
+    /**
+     * Starts a worker for every lane
+     * @param laneCount the number of lanes, each with its own worker, from 1 to 64
+     * @param capacity the number of events each lane can queue
+     * @param backpressure what firing does when a lane is full
+     */
+    AsyncDispatcher(int laneCount, int capacity, Events.Backpressure backpressure) {
+        if (laneCount < 1 || laneCount > 64) throw new IllegalArgumentException("There must be from 1 to 64 lanes");
+        if (capacity < 1) throw new IllegalArgumentException("Lane capacity must at least be 1");
+        this.backpressure = backpressure;
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(i, laneCount, capacity, "event-lane-" + i);
+        }
+    }
+
+    /**
+     * Queues the event on every lane with one of its listeners
+     * @param event the event fired
+     * @param data the data to be handled by the event's listeners
+     */
+    <T> void enqueue(Event<T> event, T data) {
+        long targets = event.lanesOf(lanes.length);
+        while (targets != 0) {
+            int lane = Long.numberOfTrailingZeros(targets);
+            lanes[lane].offer(event, data, backpressure);
+            targets &= targets - 1;
+        }
+    }
+
+    /**
+     * Waits until every event queued so far has been handled
+     * @throws IllegalStateException when called by a listener on a lane's worker
+     */
+    void flush() {
+        for (Lane lane : lanes) lane.awaitIdle();
+    }
+
+    /**
+     * Handles every queued event, then stops the workers
+     */
+    void stop() {
+        for (Lane lane : lanes) lane.stop();
+    }
+
+    /** @return number of events queued but not yet handled */
+    int getQueueDepth() {
+        int depth = 0;
+        for (Lane lane : lanes) depth += lane.getDepth();
+        return depth;
+    }
+
+    /** @return number of events dropped because their lane was full */
+    long getDroppedCount() {
+        long dropped = 0;
+        for (Lane lane : lanes) dropped += lane.getDroppedCount();
+        return dropped;
+    }
+
+    /**
+     * Bounded ring buffer of events with the worker that drains it.
+     * Events and their data are kept in two parallel arrays, so
+     * queueing an event allocates nothing
+     */
+    private static final class Lane {
+        private final int index;
+        private final int laneCount;
+        private final Event<Object>[] events;
+        private final Object[] payloads;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private final Condition notFull = lock.newCondition();
+        private final Condition idle = lock.newCondition();
+        private final Thread worker;
+        private int head;
+        private int count;
+        private boolean isHandling;
+        private boolean isRunning = true;
+        private long droppedCount;
+
+        @SuppressWarnings("unchecked")
+        private Lane(int index, int laneCount, int capacity, String name) {
+            this.index = index;
+            this.laneCount = laneCount;
+            this.events = (Event<Object>[]) new Event<?>[capacity];
+            this.payloads = new Object[capacity];
+            this.worker = Thread.ofVirtual().name(name).start(this::drain);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void offer(Event<?> event, Object data, Events.Backpressure backpressure) {
+            lock.lock();
+            try {
+                while (count == events.length) {
+                    switch (backpressure) {
+                        case BLOCK -> notFull.awaitUninterruptibly();
+                        case DROP_NEWEST -> {
+                            droppedCount++;
+                            return;
+                        }
+                        case DROP_OLDEST -> {
+                            events[head] = null;
+                            payloads[head] = null;
+                            head = (head + 1) % events.length;
+                            count--;
+                            droppedCount++;
+                        }
+                    }
+                }
+                int tail = (head + count) % events.length;
+                events[tail] = (Event<Object>) event;
+                payloads[tail] = data;
+                count++;
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Event<Object> event;
+                Object data;
+                lock.lock();
+                try {
+                    while (count == 0 && isRunning) notEmpty.awaitUninterruptibly();
+                    if (count == 0) return;
+
+                    event = events[head];
+                    data = payloads[head];
+                    events[head] = null;
+                    payloads[head] = null;
+                    head = (head + 1) % events.length;
+                    count--;
+                    isHandling = true;
+                    notFull.signal();
+                } finally {
+                    lock.unlock();
+                }
+
+                try {
+                    event.dispatch(data, index, laneCount);
+                } catch (RuntimeException e) {
+                    Logger.log(e, Logger.Severity.ERROR);
+                }
+
+                lock.lock();
+                try {
+                    isHandling = false;
+                    if (count == 0) idle.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        private void awaitIdle() {
+            if (Thread.currentThread() == worker)
+                throw new IllegalStateException("Unable to flush events from an event listener");
+            lock.lock();
+            try {
+                while (count > 0 || isHandling) idle.awaitUninterruptibly();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void stop() {
+            lock.lock();
+            try {
+                isRunning = false;
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private int getDepth() {
+            lock.lock();
+            try {
+                return count;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private long getDroppedCount() {
+            lock.lock();
+            try {
+                return droppedCount;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package core.shared.events;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * A lightweight event dispatcher similar to Roblox's BindableEvent.
+ * Listeners can connect to events and react when fired.
+ * It is similar to how consumers work in {@link java.util.function.Consumer}
+ *
+ * Connected listeners are kept in an array that is never changed in place.
+ * Connecting or disconnecting a listener swaps in a new copy of the array,
+ * so firing only reads the array it started with: firing from many threads
+ * while listeners come and go is safe, and calling N listeners allocates
+ * nothing
+ *
+ * Every connection is a {@link Subscription}, which disconnects the
+ * listener and counts how often and how long the listener was called
+ *
+ * Listener names start with the module the listener belongs to, up to the
+ * first dot (e.g. SalesManager.handleProductAdded). When events are handled
+ * asynchronously, every listener of a module is called by the same worker,
+ * so a module never handles two events at once
+ *
+ * @param <T> the type of data passed to listeners
+ * @see Events
+ */
+public final class Event<T> {
+    private static final Subscription<?>[] NO_SUBSCRIPTIONS = new Subscription<?>[0];
+
+    private final String name;
+    private volatile Subscription<T>[] subscriptions;
+
+    /**
+     * Functional Interface that ensures data is handled by any listener subscribed to the event.
+     * @param <T> the type of data to be handled
+     */
+    @FunctionalInterface
+    public interface Listener<T> {
+        void handle(T data);
+    }
+
+    /**
+     * Starts with an empty listener array.
+     * This ensures that when the fire method is fired, nothing will be iterated
+     * @param name the event's name, used when reporting on its listeners
+     */
+    @SuppressWarnings("unchecked")
+    Event(String name) {
+        this.name = name;
+        this.subscriptions = (Subscription<T>[]) NO_SUBSCRIPTIONS;
+    }
+
+    public String getName() {return name;}
+
+    /**
+     * Connects a listener, named after its class
+     * @param listener the listener to add
+     * @return the subscription that disconnects the listener
+     */
+    public Subscription<T> addListener(Listener<T> listener) {
+        return addListener(listener.getClass().getSimpleName(), listener);
+    }
+
+    /**
+     * Connects a listener by replacing the listener array with a copy
+     * that has the listener at its end. Since only a few listeners are
+     * connected to an event, copying costs about as much as growing
+     * an arraylist would
+     *
+     * @param listenerName the name the listener is reported by (e.g. SalesManager.handleProductAdded)
+     * @param listener the listener to add
+     * @return the subscription that disconnects the listener
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized Subscription<T> addListener(String listenerName, Listener<T> listener) {
+        Subscription<T> subscription = new Subscription<>(this, listenerName, listener);
+        Subscription<T>[] old = subscriptions;
+        Subscription<T>[] copy = (Subscription<T>[]) new Subscription<?>[old.length + 1];
+        System.arraycopy(old, 0, copy, 0, old.length);
+        copy[old.length] = subscription;
+        subscriptions = copy;
+        return subscription;
+    }
+
+    /**
+     * Disconnects a listener by replacing the listener
+     * array with a copy that leaves it out
+     * @param subscription the listener's subscription
+     * @return true if the listener was connected, otherwise false
+     */
+    @SuppressWarnings("unchecked")
+    synchronized boolean removeListener(Subscription<T> subscription) {
+        Subscription<T>[] old = subscriptions;
+        for (int i = 0; i < old.length; i++) {
+            if (old[i] != subscription) continue;
+
+            Subscription<T>[] copy = (Subscription<T>[]) new Subscription<?>[old.length - 1];
+            System.arraycopy(old, 0, copy, 0, i);
+            System.arraycopy(old, i + 1, copy, i, old.length - i - 1);
+            subscriptions = copy;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return a copy of the connected listeners' subscriptions,
+     *         in the order they are called
+     */
+    public Subscription<T>[] getSubscriptions() {
+        return subscriptions.clone();
+    }
+
+    /**
+     * Fires the event, invoking all connected listeners, or queueing
+     * the event for a worker when events are dispatched asynchronously.
+     *
+     * @param data the data to be handled by all listeners
+     */
+    public void fire(T data) {
+        AsyncDispatcher current = Events.dispatcher;
+        if (current != null) {
+            current.enqueue(this, data);
+            return;
+        }
+        dispatch(data);
+    }
+
+    /**
+     * Invokes all connected listeners on the calling thread.
+     *
+     * @param data the data to be handled by all listeners
+     */
+    void dispatch(T data) {
+        dispatch(data, -1, 1);
+    }
+
+    /**
+     * Invokes the connected listeners whose module goes to the lane,
+     * on the calling thread
+     *
+     * @param data the data to be handled by the listeners
+     * @param lane the lane being drained, or -1 for every listener
+     * @param laneCount the number of lanes modules are spread over
+     */
+    void dispatch(T data, int lane, int laneCount) {
+        Subscription<T>[] snapshot = subscriptions;
+        if (!Events.isListenerTimingEnabled) {
+            for (Subscription<T> subscription : snapshot) {
+                if (lane < 0 || subscription.laneOf(laneCount) == lane) subscription.listener.handle(data);
+            }
+            return;
+        }
+        // Each listener's end time is the next listener's start time
+        long start = System.nanoTime();
+        for (Subscription<T> subscription : snapshot) {
+            if (lane >= 0 && subscription.laneOf(laneCount) != lane) continue;
+            try {
+                subscription.listener.handle(data);
+            } finally {
+                long end = System.nanoTime();
+                subscription.record(end - start);
+                start = end;
+            }
+        }
+    }
+
+    /**
+     * @param laneCount the number of lanes modules are spread over, at most 64
+     * @return a bit for every lane that has at least one listener of the event
+     */
+    long lanesOf(int laneCount) {
+        long lanes = 0;
+        for (Subscription<T> subscription : subscriptions) lanes |= 1L << subscription.laneOf(laneCount);
+        return lanes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%d listeners)", name, subscriptions.length);
+    }
+
+    /**
+     * Connection of a listener to an event. Disconnects the listener,
+     * and keeps counters of its calls to find slow listeners
+     *
+     * @param <T> the type of data passed to the listener
+     */
+    public static final class Subscription<T> {
+        private final Event<T> event;
+        private final String name;
+        private final Listener<T> listener;
+        private final int moduleHash;
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private Subscription(Event<T> event, String name, Listener<T> listener) {
+            this.event = event;
+            this.name = name;
+            this.listener = listener;
+            // Listeners of the same module share a lane
+            int dot = name.indexOf('.');
+            int hash = (dot < 0 ? name : name.substring(0, dot)).hashCode() * 0x9E3779B9;
+            this.moduleHash = (hash ^ (hash >>> 16)) & 0x7FFFFFFF;
+        }
+
+        /**
+         * Disconnects the listener from its event. Calls already
+         * being made still finish
+         * @return true if the listener was connected, otherwise false
+         */
+        public boolean unsubscribe() {
+            return event.removeListener(this);
+        }
+
+        // GETTERS
+        public String getName() {return name;}
+        public Event<T> getEvent() {return event;}
+        public long getCallCount() {return calls.get();}
+        public long getTotalNanos() {return totalNanos.get();}
+        public long getMaxNanos() {return maxNanos.get();}
+
+        /** @return average nanoseconds per call, or 0 when never called */
+        public double getAverageNanos() {
+            long count = calls.get();
+            return count == 0 ? 0 : (double) totalNanos.get() / count;
+        }
+
+        private int laneOf(int laneCount) {
+            return moduleHash % laneCount;
+        }
+
+        private void record(long nanos) {
+            calls.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-20s | %-45s | %-8d | %-12.1f | %-12d",
+                    event.getName(),
+                    name,
+                    getCallCount(),
+                    getAverageNanos() / 1000.0,
+                    getMaxNanos() / 1000);
+        }
+    }
+}
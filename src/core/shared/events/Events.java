@@ -2,88 +2,117 @@ package core.shared.events;
 
 import core.api.dto.*;
 
+import java.util.*;
+import java.util.concurrent.*;
+
 /**
  * Public class that houses singleton instances of events.
  * Although, an unclean design pattern when it comes to wiring
  * listeners, does its job and is simple enough to implement
  *
+ * Events are handled on the firing thread by default. Once
+ * {@link #useAsyncDispatch(int, int, Backpressure)} is called, firing only
+ * queues the event and returns, and the listeners are called on worker
+ * threads, one worker per module, in the order the events were fired
+ *
  * @version 1.0
+ * @see AsyncDispatcher
  */
 public class Events {
     private Events(){}
-    public static Event.StockReductionEvent StockReduction = new Event.StockReductionEvent();
-    public static Event.ProductAddedEvent ProductAdded = new Event.ProductAddedEvent();
-    public static Event.ProductUpdatedEvent ProductUpdated = new Event.ProductUpdatedEvent();
-    public static Event.ProductRemovedEvent ProductRemoved = new Event.ProductRemovedEvent();
-}
+    public static final Event<StockBatchDTO> StockReductionBatch = new Event<>("StockReductionBatch");
+    public static final Event<ProductDTO> ProductAdded = new Event<>("ProductAdded");
+    public static final Event<ProductChangeBatchDTO> ProductsAdded = new Event<>("ProductsAdded");
+    public static final Event<ProductChangeDTO> ProductUpdated = new Event<>("ProductUpdated");
+    public static final Event<ProductChangeBatchDTO> ProductsUpdated = new Event<>("ProductsUpdated");
+    public static final Event<ProductDTO> ProductRemoved = new Event<>("ProductRemoved");
 
+    // Null while events are handled on the firing thread
+    static volatile AsyncDispatcher dispatcher;
+    private static final List<Runnable> flushTasks = new CopyOnWriteArrayList<>();
+    static volatile boolean isListenerTimingEnabled = true;
 
-/**
- * A lightweight event dispatcher similar to Roblox's BindableEvent.
- * Listeners can connect to events and react when fired.
- * It is similar to how consumers work in {@link java.util.function.Consumer}
- *
- * @param <T> the type of data passed to listeners
- */
-class Event<T> {
-    private Listener<T>[] listeners;
-    public static class StockReductionEvent<T extends ProductDTO> extends Event<ProductDTO> {}
-    public static class ProductAddedEvent<T extends ProductDTO> extends Event<ProductDTO> {}
-    public static class ProductUpdatedEvent<T extends ProductDTO> extends Event<ProductDTO> {}
-    public static class ProductRemovedEvent<T extends ProductDTO> extends Event<ProductDTO> {}
+    /**
+     * What firing an event does when the queue it goes to is full
+     */
+    public enum Backpressure {
+        /** The firing thread waits until there is room */
+        BLOCK,
+        /** The fired event is dropped */
+        DROP_NEWEST,
+        /** The oldest queued event is dropped to make room */
+        DROP_OLDEST
+    }
 
     /**
-     * Functional Interface that ensures data is handled by any listener subscribed to the event.
-     * @param <T> the type of data to be handled
+     * Makes events be handled on worker threads. Events already
+     * queued are handled before the new workers take over
+     *
+     * @param lanes the number of queues, each drained by its own worker, from 1 to 64.
+     *              The modules listening to events are spread over them
+     * @param capacity the number of events each queue can hold
+     * @param backpressure what firing does when a queue is full
      */
-    @FunctionalInterface
-    public interface Listener<T> {
-        void handle(T data);
+    public static synchronized void useAsyncDispatch(int lanes, int capacity, Backpressure backpressure){
+        AsyncDispatcher old = dispatcher;
+        dispatcher = new AsyncDispatcher(lanes, capacity, backpressure);
+        if(old != null) old.stop();
     }
 
     /**
-     * Default constructor — starts with an empty listener array.
-     * This ensures that when the fire method is fired, nothing will be iterated
+     * Makes events be handled on the firing thread again,
+     * after every queued event has been handled
      */
-    public Event() {
-        this.listeners = (Listener<T>[]) new Listener[0];
+    public static synchronized void useSyncDispatch(){
+        AsyncDispatcher old = dispatcher;
+        dispatcher = null;
+        if(old != null) old.stop();
     }
 
     /**
-     * Adds a new listener by replacing the listener array with a new one.
-     *
-     * Unlike an arraylist implementation, this is unclean for it
-     * creates, transfers and changes references to another container
-     * whenever a listener is added.
-     *
-     * However, since we're merely adding a
-     * few amount of listeners to an event. It's not much different from
-     * the performance cost of the dynamic memory allocation in
-     * a normal arraylist.
-     *
-     * A linked list is a good candidate for a more dynamic approach in this
-     * scenario, but to avoid longer code, the base implementation of the linked
-     * list requires the type parameter to extend the {@link core.domain.api.model.Record}
-     * which is the basis for all models inside the domain
-     *
-     * @param listener the listener to add
+     * Runs every flush task, then waits until every event fired so far
+     * has been handled. Nothing is waited for when events are handled
+     * on the firing thread
      */
-    public void addListener(Listener<T> listener) {
-        int oldLength = listeners.length;
-        Listener<T>[] newListeners = (Listener<T>[]) new Listener[oldLength + 1];
-        System.arraycopy(listeners, 0, newListeners, 0, oldLength);
-        newListeners[oldLength] = listener;
-        listeners = newListeners;
+    public static void flush(){
+        for(Runnable task : flushTasks) task.run();
+        AsyncDispatcher current = dispatcher;
+        if(current != null) current.flush();
     }
 
     /**
-     * Fires the event, invoking all connected listeners.
-     *
-     * @param data the data to be handled by all listeners
+     * Adds a task run at the start of every flush, for events kept back
+     * to be fired together (e.g. pending stock reductions)
+     * @param task fires the events kept back, if any
      */
-    public void fire(T data) {
-        for (Listener<T> listener : listeners) {
-            listener.handle(data);
-        }
+    public static void addFlushTask(Runnable task){
+        flushTasks.add(task);
+    }
+
+    /**
+     * Turns the per-listener timing counters on or off. Timing costs a
+     * clock read and a few atomic updates per listener call
+     * @param isEnabled whether listener calls are timed
+     */
+    public static void setListenerTimingEnabled(boolean isEnabled){
+        isListenerTimingEnabled = isEnabled;
+    }
+
+    /** @return every event, for reporting on their listeners */
+    public static Event<?>[] getAll(){
+        return new Event<?>[]{StockReductionBatch, ProductAdded, ProductsAdded, ProductUpdated, ProductsUpdated, ProductRemoved};
+    }
+
+    /** @return number of events fired but not yet handled */
+    public static int getQueueDepth(){
+        AsyncDispatcher current = dispatcher;
+        return current == null ? 0 : current.getQueueDepth();
+    }
+
+    /** @return number of events dropped by the current dispatcher because a queue was full */
+    public static long getDroppedCount(){
+        AsyncDispatcher current = dispatcher;
+        return current == null ? 0 : current.getDroppedCount();
     }
 }
+
@@ -0,0 +1,304 @@
+package core.shared.export;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+
+/**
+ * Streams rows to a CSV or JSON Lines file through a fixed buffer, so
+ * exports of any length take the same memory. Values are encoded straight
+ * into the buffer, which is written to the file's channel whenever it fills
+ *
+ * CSV files start with a header of the column names, and fields are only
+ * quoted when needed. JSON Lines files hold one object per row, keyed by
+ * the column names. Amounts of money are written rounded to the cent
+ *
+ * e.g. writer.text("SAL-A0001").number(2).money(99.5).endRow();
+ *
+ * @version 1.0
+ */
+public final class ExportWriter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    // Most bytes a single char can take, as UTF-8 or a JSON escape
+    private static final int MAX_CHAR_BYTES = 6;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final FileChannel channel;
+    private final Format format;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int length;
+    private final byte[][] keys;
+    private int column;
+    private long rowCount;
+
+    /**
+     * Formats an export can be written in
+     */
+    public enum Format {
+        CSV,
+        JSON_LINES;
+
+        /**
+         * @param path the file to export to
+         * @return JSON Lines for files ending in .jsonl or .json, otherwise CSV
+         */
+        public static Format of(Path path) {
+            String name = path.getFileName().toString().toLowerCase();
+            return name.endsWith(".jsonl") || name.endsWith(".json") ? JSON_LINES : CSV;
+        }
+    }
+
+    private ExportWriter(FileChannel channel, Format format, String[] columns) {
+        this.channel = channel;
+        this.format = format;
+        this.keys = new byte[columns.length][];
+        for (int i = 0; i < columns.length; i++) {
+            // Every key of a JSON object is written with the separator before it
+            keys[i] = ((i == 0 ? "{\"" : ",\"") + columns[i] + "\":").getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Creates the file, replacing any file already there, and writes
+     * the header when the format has one
+     *
+     * @param path the file to export to
+     * @param format the format of the file
+     * @param columns the names of the columns, in the order values are written
+     * @return the writer of the file's rows
+     * @throws IOException when the file cannot be created
+     */
+    public static ExportWriter open(Path path, Format format, String... columns) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        ExportWriter writer = new ExportWriter(channel, format, columns);
+        if (format == Format.CSV) {
+            for (String name : columns) writer.text(name);
+            writer.endHeader();
+        }
+        return writer;
+    }
+
+    /**
+     * Writes the next value of the row as text, quoted or escaped as needed
+     * @param value the text, or null for an empty value
+     * @return this writer
+     */
+    public ExportWriter text(String value) throws IOException {
+        beginValue();
+        if (value == null) {
+            if (format == Format.JSON_LINES) putAscii("null");
+            return this;
+        }
+        if (format == Format.JSON_LINES) {
+            putJsonString(value);
+        } else if (needsQuotes(value)) {
+            put((byte) '"');
+            putText(value, true);
+            put((byte) '"');
+        } else {
+            putText(value, false);
+        }
+        return this;
+    }
+
+    /**
+     * Writes the next value of the row as a whole number
+     * @param value the number
+     * @return this writer
+     */
+    public ExportWriter number(long value) throws IOException {
+        beginValue();
+        putLong(value);
+        return this;
+    }
+
+    /**
+     * Writes the next value of the row as an amount rounded to the cent
+     * (e.g. 1299.5 becomes 1299.50). Amounts too large for a long of cents,
+     * or not finite, are written as java writes doubles
+     * @param value the amount
+     * @return this writer
+     */
+    public ExportWriter money(double value) throws IOException {
+        beginValue();
+        if (!(Math.abs(value) < 9e15)) {
+            putAscii(Double.isFinite(value) || format == Format.CSV ? Double.toString(value) : "null");
+            return this;
+        }
+        long cents = Math.round(value * 100);
+        if (cents < 0) {
+            put((byte) '-');
+            cents = -cents;
+        }
+        putLong(cents / 100);
+        put((byte) '.');
+        put((byte) ('0' + cents % 100 / 10));
+        put((byte) ('0' + cents % 10));
+        return this;
+    }
+
+    /**
+     * Ends the row, after a value was written for every column
+     * @throws IllegalStateException when the row has too few or too many values
+     */
+    public void endRow() throws IOException {
+        if (column != keys.length)
+            throw new IllegalStateException("Expected " + keys.length + " values but found " + column);
+        if (format == Format.JSON_LINES) put((byte) '}');
+        put((byte) '\n');
+        column = 0;
+        rowCount++;
+    }
+
+    /** @return number of rows written, not counting the header */
+    public long getRowCount() {return rowCount;}
+
+    /**
+     * Writes what is left in the buffer, then closes the file
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void endHeader() throws IOException {
+        put((byte) '\n');
+        column = 0;
+    }
+
+    private void beginValue() throws IOException {
+        if (column == keys.length)
+            throw new IllegalStateException("The row already has " + keys.length + " values");
+        if (format == Format.JSON_LINES) put(keys[column]);
+        else if (column > 0) put((byte) ',');
+        column++;
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') return true;
+        }
+        return false;
+    }
+
+    /**
+     * Encodes the text as UTF-8, doubling quotes when asked to
+     */
+    private void putText(String value, boolean doublesQuotes) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (BUFFER_SIZE - length < MAX_CHAR_BYTES) drain();
+            if (c < 0x80) {
+                if (c == '"' && doublesQuotes) buffer[length++] = (byte) '"';
+                buffer[length++] = (byte) c;
+            } else {
+                i = putUtf8(value, i);
+            }
+        }
+    }
+
+    private void putJsonString(String value) throws IOException {
+        put((byte) '"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (BUFFER_SIZE - length < MAX_CHAR_BYTES) drain();
+            if (c == '"' || c == '\\') {
+                buffer[length++] = '\\';
+                buffer[length++] = (byte) c;
+            } else if (c < 0x20) {
+                buffer[length++] = '\\';
+                buffer[length++] = 'u';
+                buffer[length++] = '0';
+                buffer[length++] = '0';
+                buffer[length++] = HEX[c >> 4];
+                buffer[length++] = HEX[c & 0xF];
+            } else if (c < 0x80) {
+                buffer[length++] = (byte) c;
+            } else {
+                i = putUtf8(value, i);
+            }
+        }
+        put((byte) '"');
+    }
+
+    /**
+     * Encodes the char at the position, along with the next one when
+     * they form a surrogate pair. Lone surrogates become a question mark
+     * @return the position of the last char encoded
+     */
+    private int putUtf8(String value, int i) {
+        char c = value.charAt(i);
+        if (c < 0x800) {
+            buffer[length++] = (byte) (0xC0 | c >> 6);
+            buffer[length++] = (byte) (0x80 | c & 0x3F);
+        } else if (!Character.isSurrogate(c)) {
+            buffer[length++] = (byte) (0xE0 | c >> 12);
+            buffer[length++] = (byte) (0x80 | c >> 6 & 0x3F);
+            buffer[length++] = (byte) (0x80 | c & 0x3F);
+        } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+            int code = Character.toCodePoint(c, value.charAt(++i));
+            buffer[length++] = (byte) (0xF0 | code >> 18);
+            buffer[length++] = (byte) (0x80 | code >> 12 & 0x3F);
+            buffer[length++] = (byte) (0x80 | code >> 6 & 0x3F);
+            buffer[length++] = (byte) (0x80 | code & 0x3F);
+        } else {
+            buffer[length++] = '?';
+        }
+        return i;
+    }
+
+    /**
+     * Writes the digits of the number without creating a string
+     */
+    private void putLong(long value) throws IOException {
+        if (BUFFER_SIZE - length < 20) drain();
+        if (value == Long.MIN_VALUE) {
+            putAscii(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            buffer[length++] = '-';
+            value = -value;
+        }
+        int start = length;
+        do {
+            buffer[length++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        // The digits were put last first, so they are reversed in place
+        for (int i = start, j = length - 1; i < j; i++, j--) {
+            byte digit = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = digit;
+        }
+    }
+
+    private void putAscii(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) put((byte) value.charAt(i));
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        if (BUFFER_SIZE - length < bytes.length) drain();
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void put(byte b) throws IOException {
+        if (length == BUFFER_SIZE) drain();
+        buffer[length++] = b;
+    }
+
+    private void drain() throws IOException {
+        ByteBuffer pending = ByteBuffer.wrap(buffer, 0, length);
+        while (pending.hasRemaining()) channel.write(pending);
+        length = 0;
+    }
+}
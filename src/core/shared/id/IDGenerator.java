@@ -19,6 +19,28 @@ public abstract class IDGenerator {
         return String.format("%s-%s%04d", getPrefix(), getAlphaCode(), getNumberCode());
     }
 
+    /**
+     * Makes sure the id is never generated again, by moving the counters
+     * past it (e.g. for ids loaded from the journal). Ids with another
+     * prefix, or already passed, are ignored
+     * @param id an id generated before (e.g. PRD-A0692)
+     */
+    public void reserveID(String id) {
+        String prefix = getPrefix() + "-";
+        if (id == null || !id.startsWith(prefix) || id.length() != prefix.length() + 5) return;
+        int alpha = id.charAt(prefix.length()) - 'A';
+        int number;
+        try {
+            number = Integer.parseInt(id.substring(prefix.length() + 1));
+        } catch (NumberFormatException e) {
+            return;
+        }
+        if (alpha > alphaCounter || (alpha == alphaCounter && number >= counter)) {
+            alphaCounter = alpha;
+            counter = number + 1;
+        }
+    }
+
     /**
      * Must be extended by subclasses.
      * This will determine the prefix of the id generated
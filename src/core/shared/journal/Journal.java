@@ -0,0 +1,652 @@
+package core.shared.journal;
+
+import common.util.*;
+import core.api.dto.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.security.*;
+import java.util.concurrent.locks.*;
+import java.util.zip.*;
+
+/**
+ * Append-only journal of every change made to products and sales, kept on
+ * disk so that the changes outlive the program. Managers journal a change
+ * as soon as it is applied in memory, and before it is announced to other
+ * modules or confirmed to the user
+ *
+ * Journaling a change only copies it into an in-memory buffer and returns
+ * its position. A single committer thread writes whatever has piled up in
+ * the buffer and syncs it to disk in one go, so many sales saved at once
+ * share a single fsync (group commit). {@link #awaitCommitted(long)} waits
+ * until a change is as durable as the {@link FsyncPolicy} promises
+ *
+ * The file starts with a header (magic number, version, random id), followed by
+ * entries framed as [length][type][payload][CRC32C of type and payload].
+ * A torn entry at the end of the file, left by a crash, is cut off when
+ * the journal is opened. Journals of version 1 have no random id, and are
+ * rewritten with one when opened
+ *
+ * @version 1.0
+ */
+public final class Journal implements Closeable {
+    /** Journal that keeps nothing, for when journaling is turned off */
+    public static final Journal DISABLED = new Journal();
+
+    static final int MAGIC = 0x554D4A4C; // "UMJL"
+    static final int VERSION = 2;
+    static final int HEADER_LENGTH = 16;
+    // Version 1 headers end after the version
+    static final int V1_HEADER_LENGTH = 8;
+    static final int MAX_ENTRY_LENGTH = 1 << 24;
+    /** Most UTF-8 bytes a text (e.g. a product's name) can take in an entry */
+    public static final int MAX_TEXT_BYTES = 0xFFFF;
+
+    // Entry types
+    static final byte PRODUCT_ADDED = 1;
+    static final byte PRODUCT_UPDATED = 2;
+    static final byte PRODUCT_REMOVED = 3;
+    static final byte SALE = 4;
+
+    /**
+     * When journaled changes are synced to disk
+     */
+    public enum FsyncPolicy {
+        /** Every commit waits until its changes are synced. Nothing is lost on a power failure */
+        EVERY_RECORD,
+        /** Changes are synced every few milliseconds. At most that window is lost on a power failure */
+        INTERVAL,
+        /** The operating system decides when to sync. Only a program crash is survived */
+        OS
+    }
+
+    private final FileChannel channel;
+    private final long id;
+    private final FsyncPolicy policy;
+    private final long intervalNanos;
+    private final Thread committer;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasPending = lock.newCondition();
+    private final Condition committed = lock.newCondition();
+    private final CRC32C checksum = new CRC32C();
+    private ByteBuffer pending;
+    private ByteBuffer spare;
+    private long appendedPosition;
+    private long writtenPosition;
+    private long syncedPosition;
+    private long entryCount;
+    private long syncCount;
+    private boolean isRunning;
+    private IOException failure;
+    // Where the buffer stood before the change being journaled, guarded by the lock
+    private int markedBufferPosition;
+    private long markedPosition;
+    private long markedEntryCount;
+
+    private Journal() {
+        this.channel = null;
+        this.id = 0;
+        this.policy = FsyncPolicy.OS;
+        this.intervalNanos = 0;
+        this.committer = null;
+    }
+
+    private Journal(FileChannel channel, long id, long length, FsyncPolicy policy, long intervalMillis) {
+        this.channel = channel;
+        this.id = id;
+        this.policy = policy;
+        this.intervalNanos = Math.max(1, intervalMillis) * 1_000_000L;
+        this.pending = ByteBuffer.allocate(1 << 16);
+        this.spare = ByteBuffer.allocate(1 << 16);
+        this.appendedPosition = length;
+        this.writtenPosition = length;
+        this.syncedPosition = length;
+        this.isRunning = true;
+        this.committer = Thread.ofPlatform().daemon().name("journal-committer").start(this::commitLoop);
+    }
+
+    /**
+     * Opens the journal at the path, creating it when missing. Entries
+     * journaled from now on are appended after the entries already kept
+     *
+     * @param path the journal file
+     * @param policy when journaled changes are synced to disk
+     * @param intervalMillis milliseconds between syncs, used by {@link FsyncPolicy#INTERVAL}
+     * @return the opened journal
+     * @throws IOException when the file cannot be read or is not a journal
+     */
+    public static Journal open(Path path, FsyncPolicy policy, long intervalMillis) throws IOException {
+        upgradeVersion1(path);
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long length = findValidLength(channel);
+            if (length < channel.size()) channel.truncate(length);
+            if (length == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH)
+                        .putInt(MAGIC)
+                        .putInt(VERSION)
+                        .putLong(new SecureRandom().nextLong())
+                        .flip();
+                while (header.hasRemaining()) channel.write(header, header.position());
+                channel.force(true);
+                length = HEADER_LENGTH;
+            }
+            channel.position(length);
+            return new Journal(channel, readId(channel), length, policy, intervalMillis);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Rewrites a version 1 journal with a version 2 header, keeping its
+     * entries as they are. The new file is written next to the old one,
+     * synced, and then moved over it, so a crash leaves one or the other
+     */
+    private static void upgradeVersion1(Path path) throws IOException {
+        if (!Files.exists(path)) return;
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < V1_HEADER_LENGTH) return;
+            ByteBuffer header = ByteBuffer.allocate(V1_HEADER_LENGTH);
+            while (header.hasRemaining() && channel.read(header, header.position()) != -1);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != 1) return;
+
+            try (FileChannel upgraded = FileChannel.open(temporary,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer newHeader = ByteBuffer.allocate(HEADER_LENGTH)
+                        .putInt(MAGIC)
+                        .putInt(VERSION)
+                        .putLong(new SecureRandom().nextLong())
+                        .flip();
+                while (newHeader.hasRemaining()) upgraded.write(newHeader);
+                long position = V1_HEADER_LENGTH;
+                long size = channel.size();
+                while (position < size) {
+                    position += channel.transferTo(position, size - position, upgraded);
+                }
+                upgraded.force(true);
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Logger.log("Journal Upgraded",
+                "The journal was rewritten from version 1 to version " + VERSION,
+                Logger.Level.NOTICE);
+    }
+
+    /**
+     * Checks the file's header and reads its entries up to the first torn or corrupt one
+     * @return length of the file up to its last valid entry, or 0 when it has no header
+     */
+    private static long findValidLength(FileChannel channel) throws IOException {
+        if (channel.size() < HEADER_LENGTH) return 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        while (header.hasRemaining() && channel.read(header, header.position()) != -1);
+        header.flip();
+        if (header.getInt() != MAGIC) throw new IOException("Not a journal file");
+        if (header.getInt() != VERSION) throw new IOException("Unsupported journal version");
+        return JournalReader.read(channel, HEADER_LENGTH);
+    }
+
+    private static long readId(FileChannel channel) throws IOException {
+        ByteBuffer id = ByteBuffer.allocate(8);
+        while (id.hasRemaining() && channel.read(id, 8 + id.position()) != -1);
+        return id.flip().getLong();
+    }
+
+    /**
+     * Reads every entry journaled from the position onwards, and hands them
+     * to the handlers. Meant to rebuild the program's state when it starts,
+     * before anything new is journaled
+     *
+     * @param position where to start reading, e.g. the position a snapshot was taken at
+     * @param handlers the handlers of the entries, called in order
+     * @return the position after the last entry read
+     * @throws IOException when the file cannot be read
+     */
+    public long replay(long position, JournalReader.Handler... handlers) throws IOException {
+        if (channel == null) return 0;
+        return JournalReader.read(channel, Math.max(position, HEADER_LENGTH), handlers);
+    }
+
+    /* =============================================
+     *  JOURNALING
+     * ============================================*/
+
+    /**
+     * Journals a product added to the inventory
+     * @param product every value of the product, with all fields flagged as changed
+     * @return the position to wait for with {@link #awaitCommitted(long)}
+     */
+    public long logProductAdded(ProductChangeDTO product) {
+        if (channel == null) return 0;
+        lock.lock();
+        mark();
+        try {
+            int start = beginEntry(PRODUCT_ADDED);
+            putChange(product);
+            return endEntry(start);
+        } catch (RuntimeException e) {
+            rollBack();
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Journals many products added at once (e.g. an import), as one entry
+     * per product, without letting other changes in between
+     * @param batch every value of every product, with all fields flagged as changed
+     * @return the position to wait for with {@link #awaitCommitted(long)}
+     */
+    public long logProductsAdded(ProductChangeBatchDTO batch) {
+        if (channel == null) return 0;
+        lock.lock();
+        mark();
+        try {
+            long position = appendedPosition;
+            for (int i = 0; i < batch.size(); i++) {
+                int start = beginEntry(PRODUCT_ADDED);
+                putChange(batch.get(i));
+                position = endEntry(start);
+            }
+            return position;
+        } catch (RuntimeException e) {
+            rollBack();
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Journals the changes made to a product
+     * @param change the values that changed
+     * @return the position to wait for with {@link #awaitCommitted(long)}
+     */
+    public long logProductUpdated(ProductChangeDTO change) {
+        if (channel == null) return 0;
+        lock.lock();
+        mark();
+        try {
+            int start = beginEntry(PRODUCT_UPDATED);
+            putChange(change);
+            return endEntry(start);
+        } catch (RuntimeException e) {
+            rollBack();
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Journals the changes made to many products at once, as one entry per
+     * product, without letting other changes in between
+     * @param batch the values that changed of every product
+     * @return the position to wait for with {@link #awaitCommitted(long)}
+     */
+    public long logProductsUpdated(ProductChangeBatchDTO batch) {
+        if (channel == null) return 0;
+        lock.lock();
+        mark();
+        try {
+            long position = appendedPosition;
+            for (int i = 0; i < batch.size(); i++) {
+                int start = beginEntry(PRODUCT_UPDATED);
+                putChange(batch.get(i));
+                position = endEntry(start);
+            }
+            return position;
+        } catch (RuntimeException e) {
+            rollBack();
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Journals a product removed from the inventory
+     * @param id the id of the product removed
+     * @return the position to wait for with {@link #awaitCommitted(long)}
+     */
+    public long logProductRemoved(String id) {
+        if (channel == null) return 0;
+        lock.lock();
+        mark();
+        try {
+            int start = beginEntry(PRODUCT_REMOVED);
+            putString(id);
+            return endEntry(start);
+        } catch (RuntimeException e) {
+            rollBack();
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Journals a saved sales record. The stock it took is not journaled
+     * separately, as it follows from the quantities sold
+     * @param sale the items of the sales record
+     * @return the position to wait for with {@link #awaitCommitted(long)}
+     */
+    public long logSale(SaleDTO sale) {
+        if (channel == null) return 0;
+        lock.lock();
+        mark();
+        try {
+            int start = beginEntry(SALE);
+            putString(sale.getId());
+            putInt(sale.size());
+            for (int i = 0; i < sale.size(); i++) {
+                putString(sale.getProductId(i));
+                putDouble(sale.getPrice(i));
+                putInt(sale.getQuantity(i));
+            }
+            putLong(sale.getTimestamp());
+            return endEntry(start);
+        } catch (RuntimeException e) {
+            rollBack();
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every change journaled up to the position is committed:
+     * synced to disk under {@link FsyncPolicy#EVERY_RECORD}, otherwise
+     * written to the file
+     *
+     * @param position the position returned when the change was journaled
+     * @throws UncheckedIOException when the journal could not be written
+     */
+    public void awaitCommitted(long position) {
+        if (channel == null) return;
+        lock.lock();
+        try {
+            while ((policy == FsyncPolicy.EVERY_RECORD ? syncedPosition : writtenPosition) < position) {
+                if (failure != null) throw new UncheckedIOException("Unable to write the journal", failure);
+                committed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Commits every change journaled so far, then closes the file
+     * @throws IOException when the journal could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel == null) return;
+        lock.lock();
+        try {
+            if (!isRunning) return;
+            isRunning = false;
+            hasPending.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null) throw failure;
+    }
+
+    // GETTERS
+    public FsyncPolicy getPolicy() {return policy;}
+
+    /** @return random id given to the file when it was created, telling journals apart */
+    public long getId() {return id;}
+
+    /** @return the position after the last entry journaled */
+    public long getAppendedPosition() {
+        if (channel == null) return 0;
+        lock.lock();
+        try {
+            return appendedPosition;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return true if nothing has ever been journaled, otherwise false */
+    public boolean isEmpty() {
+        if (channel == null) return true;
+        lock.lock();
+        try {
+            return appendedPosition <= HEADER_LENGTH;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return number of entries journaled since the journal was opened */
+    public long getEntryCount() {
+        lock.lock();
+        try {
+            return entryCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return number of times the file was synced to disk since the journal was opened */
+    public long getSyncCount() {
+        lock.lock();
+        try {
+            return syncCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /* =============================================
+     *  COMMITTER
+     * ============================================*/
+
+    /**
+     * Writes the pending buffer while the other buffer fills up, and syncs
+     * the file whenever the policy asks for it, until the journal is closed
+     */
+    private void commitLoop() {
+        long lastSync = System.nanoTime();
+        while (true) {
+            ByteBuffer batch;
+            long batchEnd;
+            long synced;
+            boolean isClosing;
+            lock.lock();
+            try {
+                while (pending.position() == 0 && isRunning) {
+                    if (policy != FsyncPolicy.INTERVAL || syncedPosition == writtenPosition) {
+                        hasPending.awaitUninterruptibly();
+                        continue;
+                    }
+                    long wait = intervalNanos - (System.nanoTime() - lastSync);
+                    if (wait <= 0) break;
+                    try {
+                        hasPending.awaitNanos(wait);
+                    } catch (InterruptedException ignored) {
+                        // Keeps committing until the journal is closed
+                    }
+                }
+                batch = pending;
+                pending = spare;
+                spare = batch;
+                batchEnd = appendedPosition;
+                synced = syncedPosition;
+                isClosing = !isRunning;
+            } finally {
+                lock.unlock();
+            }
+
+            boolean isSynced;
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) channel.write(batch);
+                batch.clear();
+
+                long now = System.nanoTime();
+                boolean isSyncDue = switch (policy) {
+                    case EVERY_RECORD -> true;
+                    case INTERVAL -> isClosing || now - lastSync >= intervalNanos;
+                    case OS -> isClosing;
+                };
+                isSynced = isSyncDue && batchEnd > synced;
+                if (isSynced) {
+                    channel.force(false);
+                    lastSync = now;
+                }
+            } catch (IOException e) {
+                lock.lock();
+                try {
+                    failure = e;
+                    isRunning = false;
+                    committed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+
+            lock.lock();
+            try {
+                writtenPosition = batchEnd;
+                if (isSynced) {
+                    syncedPosition = batchEnd;
+                    syncCount++;
+                }
+                committed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (isClosing) return;
+        }
+    }
+
+    /**
+     * Checks that a text fits in an entry, so callers can refuse it
+     * before changing anything in memory
+     * @param text the text to be journaled
+     * @return true if the text can be journaled
+     */
+    public static boolean canJournal(String text) {
+        // Most characters take one byte, so only long texts are encoded
+        return text.length() <= MAX_TEXT_BYTES / 3
+                || text.getBytes(StandardCharsets.UTF_8).length <= MAX_TEXT_BYTES;
+    }
+
+    /* =============================================
+     *  ENCODING
+     * ============================================*/
+
+    /**
+     * Remembers where the buffer stands before a change is encoded
+     */
+    private void mark() {
+        markedBufferPosition = pending.position();
+        markedPosition = appendedPosition;
+        markedEntryCount = entryCount;
+    }
+
+    /**
+     * Drops every entry encoded since {@link #mark()}, when encoding one of
+     * them failed, so no half-written entry is ever committed and a batch
+     * is journaled whole or not at all
+     */
+    private void rollBack() {
+        pending.position(markedBufferPosition);
+        appendedPosition = markedPosition;
+        entryCount = markedEntryCount;
+    }
+
+    private int beginEntry(byte type) {
+        if (!isRunning) {
+            if (failure != null) throw new UncheckedIOException("Unable to write the journal", failure);
+            throw new IllegalStateException("The journal is closed");
+        }
+        ensureCapacity(5);
+        int start = pending.position();
+        pending.putInt(0);
+        pending.put(type);
+        return start;
+    }
+
+    private long endEntry(int start) {
+        int length = pending.position() - start - 4;
+        // The reader takes longer entries for corrupt ones
+        if (length > MAX_ENTRY_LENGTH) throw new IllegalArgumentException("Entry is too long to be journaled");
+        pending.putInt(start, length);
+        checksum.reset();
+        checksum.update(pending.array(), start + 4, length);
+        ensureCapacity(4);
+        pending.putInt((int) checksum.getValue());
+
+        appendedPosition += length + 8;
+        entryCount++;
+        hasPending.signal();
+        return appendedPosition;
+    }
+
+    /**
+     * Writes the product's id and the bitmask of changed fields,
+     * followed by the values of the changed fields only
+     */
+    private void putChange(ProductChangeDTO change) {
+        putString(change.getId());
+        ensureCapacity(1);
+        pending.put((byte) change.getChangedFields());
+        if (change.hasChanged(ProductChangeDTO.NAME)) putString(change.getName());
+        if (change.hasChanged(ProductChangeDTO.MANUFACTURER)) putString(change.getManufacturer());
+        if (change.hasChanged(ProductChangeDTO.PRICE)) putDouble(change.getPrice());
+        if (change.hasChanged(ProductChangeDTO.STOCK)) putInt(change.getStock());
+        if (change.hasChanged(ProductChangeDTO.REORDER_POINT)) putInt(change.getReorderPoint());
+    }
+
+    private void putString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_TEXT_BYTES) throw new IllegalArgumentException("Text is too long to be journaled");
+        ensureCapacity(2 + bytes.length);
+        pending.putShort((short) bytes.length);
+        pending.put(bytes);
+    }
+
+    private void putInt(int value) {
+        ensureCapacity(4);
+        pending.putInt(value);
+    }
+
+    private void putLong(long value) {
+        ensureCapacity(8);
+        pending.putLong(value);
+    }
+
+    private void putDouble(double value) {
+        ensureCapacity(8);
+        pending.putDouble(value);
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (pending.remaining() >= bytes) return;
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+        pending.flip();
+        larger.put(pending);
+        pending = larger;
+    }
+}
@@ -0,0 +1,147 @@
+package core.shared.journal;
+
+import core.api.dto.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.util.zip.*;
+
+/**
+ * Reads the entries of a journal file back, in the order they were
+ * journaled, and hands them to handlers. Reading stops at the first torn
+ * or corrupt entry, as everything after it was never committed
+ *
+ * @version 1.0
+ * @see Journal
+ */
+public final class JournalReader {
+    private JournalReader() {} // prevent instantiation
+
+    /**
+     * Receives the entries read from a journal. Every method does nothing
+     * by default, so handlers only override the entries they care about
+     */
+    public interface Handler {
+        default void productAdded(ProductChangeDTO product) {}
+        default void productUpdated(ProductChangeDTO change) {}
+        default void productRemoved(String id) {}
+        default void sale(SaleDTO sale) {}
+    }
+
+    /**
+     * Reads the entries starting at the position, up to the end of the file
+     * or its first invalid entry, and hands each of them to every handler
+     *
+     * @param channel the journal file, read from the position without moving its own position
+     * @param position where the first entry to read starts
+     * @param handlers the handlers of the entries, called in order
+     * @return the position after the last valid entry
+     * @throws IOException when the file cannot be read
+     */
+    static long read(FileChannel channel, long position, Handler... handlers) throws IOException {
+        long size = channel.size();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new ChannelInput(channel, position), 1 << 16));
+        CRC32C crc = new CRC32C();
+        byte[] body = new byte[256];
+        while (position + 4 <= size) {
+            int length = in.readInt();
+            if (length < 1 || length > Journal.MAX_ENTRY_LENGTH || position + 8 + length > size) break;
+            if (body.length < length) body = new byte[Math.max(length, body.length * 2)];
+            in.readFully(body, 0, length);
+            int expected = in.readInt();
+            crc.reset();
+            crc.update(body, 0, length);
+            if ((int) crc.getValue() != expected) break;
+
+            if (handlers.length > 0) dispatch(ByteBuffer.wrap(body, 0, length), handlers);
+            position += 8 + length;
+        }
+        return position;
+    }
+
+    /**
+     * Decodes an entry's type and payload, and hands it to every handler
+     */
+    private static void dispatch(ByteBuffer entry, Handler[] handlers) throws IOException {
+        byte type = entry.get();
+        switch (type) {
+            case Journal.PRODUCT_ADDED -> {
+                ProductChangeDTO product = getChange(entry);
+                for (Handler handler : handlers) handler.productAdded(product);
+            }
+            case Journal.PRODUCT_UPDATED -> {
+                ProductChangeDTO change = getChange(entry);
+                for (Handler handler : handlers) handler.productUpdated(change);
+            }
+            case Journal.PRODUCT_REMOVED -> {
+                String id = getString(entry);
+                for (Handler handler : handlers) handler.productRemoved(id);
+            }
+            case Journal.SALE -> {
+                String id = getString(entry);
+                int size = entry.getInt();
+                String[] productIds = new String[size];
+                double[] prices = new double[size];
+                int[] quantities = new int[size];
+                for (int i = 0; i < size; i++) {
+                    productIds[i] = getString(entry);
+                    prices[i] = entry.getDouble();
+                    quantities[i] = entry.getInt();
+                }
+                // Sales journaled before their time was kept end with their items
+                long timestamp = entry.remaining() >= 8 ? entry.getLong() : 0;
+                SaleDTO sale = new SaleDTO(id, timestamp, productIds, prices, quantities);
+                for (Handler handler : handlers) handler.sale(sale);
+            }
+            default -> throw new IOException("Unknown journal entry type " + type);
+        }
+    }
+
+    private static ProductChangeDTO getChange(ByteBuffer entry) {
+        String id = getString(entry);
+        int changedFields = entry.get() & 0xFF;
+        String name = (changedFields & ProductChangeDTO.NAME) != 0 ? getString(entry) : null;
+        String manufacturer = (changedFields & ProductChangeDTO.MANUFACTURER) != 0 ? getString(entry) : null;
+        double price = (changedFields & ProductChangeDTO.PRICE) != 0 ? entry.getDouble() : 0;
+        int stock = (changedFields & ProductChangeDTO.STOCK) != 0 ? entry.getInt() : 0;
+        int reorderPoint = (changedFields & ProductChangeDTO.REORDER_POINT) != 0 ? entry.getInt() : 0;
+        return new ProductChangeDTO(id, changedFields, name, manufacturer, price, stock, reorderPoint);
+    }
+
+    private static String getString(ByteBuffer entry) {
+        int length = entry.getShort() & 0xFFFF;
+        String value = new String(entry.array(), entry.arrayOffset() + entry.position(), length, StandardCharsets.UTF_8);
+        entry.position(entry.position() + length);
+        return value;
+    }
+
+    /**
+     * Stream over a file channel that reads with positional reads,
+     * leaving the channel's own position untouched
+     */
+    private static final class ChannelInput extends InputStream {
+        private final FileChannel channel;
+        private long position;
+
+        private ChannelInput(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = channel.read(ByteBuffer.wrap(bytes, offset, length), position);
+            if (read > 0) position += read;
+            return read;
+        }
+    }
+}
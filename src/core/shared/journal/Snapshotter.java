@@ -0,0 +1,239 @@
+package core.shared.journal;
+
+import common.util.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.zip.*;
+
+/**
+ * Takes snapshots of the program's state, so that starting the program
+ * loads the latest snapshot and only replays what was journaled after it,
+ * however long the journal has grown
+ *
+ * Every module hands over a {@link Part} of the snapshot. Taking a snapshot
+ * first captures a copy of every part on the calling thread, which must be
+ * the only one changing the state at that moment (e.g. the menus, right
+ * after pending events are handled). The copies are then written on a
+ * background thread, so the menus do not wait for the file
+ *
+ * The file is written next to the previous one, synced, and then moved
+ * over it, so a crash while writing leaves the previous snapshot intact.
+ * It starts with a header (magic number, version, the journal's id and
+ * the journal position it covers), followed by the parts, and ends with a
+ * CRC32C of everything before it
+ *
+ * @version 1.0
+ * @see Journal
+ */
+public final class Snapshotter implements Closeable {
+    private static final int MAGIC = 0x554D534E; // "UMSN"
+    private static final int VERSION = 2;
+
+    private final Path path;
+    private final Journal journal;
+    private final long intervalNanos;
+    private final Part[] parts;
+    private long lastPosition;
+    private long lastStart = System.nanoTime();
+    private Thread writer;
+
+    /**
+     * A module's share of the snapshot
+     */
+    public interface Part {
+        /** @return the part's name, written before its data to catch mismatched files */
+        String getName();
+
+        /**
+         * Copies the module's state, called while nothing else changes it
+         * @return writer of the copy, called later on a background thread
+         */
+        Writer capture();
+
+        /**
+         * Rebuilds the module's state from what its writer wrote.
+         * Called once, when the program starts, before anything is journaled
+         * @param in the snapshot, positioned at the part's data
+         */
+        void restore(DataInput in) throws IOException;
+
+        /**
+         * Clears what the module keeps outside the snapshot (e.g. its own files),
+         * called instead of {@link #restore} when the whole journal is replayed
+         */
+        default void restoreEmpty() throws IOException {}
+    }
+
+    /**
+     * Writes a captured copy of a module's state
+     */
+    @FunctionalInterface
+    public interface Writer {
+        void write(DataOutput out) throws IOException;
+    }
+
+    /**
+     * @param path the snapshot file
+     * @param journal the journal whose entries the snapshots cover
+     * @param intervalMillis milliseconds between snapshots taken by {@link #snapshotIfDue()}
+     * @param parts every module's share of the snapshot, in the order they are written
+     */
+    public Snapshotter(Path path, Journal journal, long intervalMillis, Part... parts) {
+        this.path = path;
+        this.journal = journal;
+        this.intervalNanos = intervalMillis * 1_000_000L;
+        this.parts = parts;
+    }
+
+    /**
+     * Rebuilds the state from the latest snapshot, then replays whatever
+     * was journaled after it. A snapshot that is corrupt or belongs to
+     * another journal is skipped, and the whole journal is replayed instead
+     *
+     * @param handlers the handlers of the journal's entries
+     * @return true if any state was rebuilt, otherwise false
+     * @throws IOException when the files cannot be read
+     */
+    public boolean recover(JournalReader.Handler... handlers) throws IOException {
+        long position = 0;
+        if (Files.exists(path)) {
+            if (isValid()) {
+                position = restore();
+            } else {
+                Logger.log("Snapshot Skipped",
+                        "The snapshot is corrupt or belongs to another journal. Replaying the whole journal instead",
+                        Logger.Level.NOTICE);
+            }
+        }
+        if (position == 0) {
+            for (Part part : parts) part.restoreEmpty();
+        }
+        lastPosition = position;
+        long end = journal.replay(position, handlers);
+        return position > 0 || end > Journal.HEADER_LENGTH;
+    }
+
+    /**
+     * Takes a snapshot if the interval has passed since the last one
+     * and something was journaled since
+     */
+    public void snapshotIfDue() {
+        if (System.nanoTime() - lastStart < intervalNanos) return;
+        snapshot();
+    }
+
+    /**
+     * Captures every part and writes them on a background thread. Does
+     * nothing while the previous snapshot is still being written, or
+     * when nothing was journaled since the last snapshot
+     */
+    public void snapshot() {
+        if (writer != null && writer.isAlive()) return;
+        long position = journal.getAppendedPosition();
+        if (position == lastPosition) return;
+
+        Writer[] captured = capture();
+        lastPosition = position;
+        lastStart = System.nanoTime();
+        writer = Thread.ofVirtual().name("snapshot-writer").start(() -> {
+            try {
+                write(position, captured);
+            } catch (IOException | RuntimeException e) {
+                Logger.log(e, Logger.Severity.ERROR);
+            }
+        });
+    }
+
+    /**
+     * Waits for the snapshot being written, then takes a last snapshot
+     * on the calling thread so that the next start replays nothing
+     * @throws IOException when the snapshot cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        awaitWriter();
+        long position = journal.getAppendedPosition();
+        if (position == lastPosition) return;
+        write(position, capture());
+        lastPosition = position;
+    }
+
+    private Writer[] capture() {
+        Writer[] captured = new Writer[parts.length];
+        for (int i = 0; i < parts.length; i++) captured[i] = parts[i].capture();
+        return captured;
+    }
+
+    private void awaitWriter() {
+        if (writer == null) return;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(long position, Writer[] captured) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile())) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(file, 1 << 16), new CRC32C());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(journal.getId());
+            out.writeLong(position);
+            for (int i = 0; i < parts.length; i++) {
+                out.writeUTF(parts[i].getName());
+                captured[i].write(out);
+            }
+            out.writeInt((int) checked.getChecksum().getValue());
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the whole snapshot once, without restoring anything, so that
+     * a corrupt snapshot is found before any part is restored
+     */
+    private boolean isValid() throws IOException {
+        long size = Files.size(path);
+        if (size < 28) return false;
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(path), 1 << 16)) {
+            CheckedInputStream checked = new CheckedInputStream(file, new CRC32C());
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return false;
+            if (in.readLong() != journal.getId()) return false;
+            if (in.readLong() > journal.getAppendedPosition()) return false;
+
+            byte[] buffer = new byte[1 << 16];
+            for (long remaining = size - 28; remaining > 0; ) {
+                int length = (int) Math.min(buffer.length, remaining);
+                in.readFully(buffer, 0, length);
+                remaining -= length;
+            }
+            int actual = (int) checked.getChecksum().getValue();
+            return in.readInt() == actual;
+        }
+    }
+
+    private long restore() throws IOException {
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(path), 1 << 16)) {
+            DataInputStream in = new DataInputStream(file);
+            in.readInt();
+            in.readInt();
+            in.readLong();
+            long position = in.readLong();
+            for (Part part : parts) {
+                String name = in.readUTF();
+                if (!name.equals(part.getName()))
+                    throw new IOException("Expected snapshot part " + part.getName() + " but found " + name);
+                part.restore(in);
+            }
+            return position;
+        }
+    }
+}
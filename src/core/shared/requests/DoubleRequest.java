@@ -0,0 +1,73 @@
+package core.shared.requests;
+
+import java.util.concurrent.*;
+
+/**
+ * Request whose response is a double. The handler returns a primitive,
+ * so requesting on the calling thread never boxes the response
+ *
+ * @see Request
+ * @see Requests
+ */
+public final class DoubleRequest {
+    private final String name;
+    private volatile Supplier supplier;
+
+    /**
+     * Functional Interface that defines how a query handles a request.
+     */
+    @FunctionalInterface
+    public interface Supplier {
+        double getAsDouble();
+    }
+
+    /**
+     * Creates a query with no handler set.
+     * @param name the request's name
+     */
+    DoubleRequest(String name) {
+        this.name = name;
+    }
+
+    public String getName() {return name;}
+
+    /**
+     * Sets or replaces the current query handler.
+     *
+     * @param supplier the handler function to handle requests
+     */
+    public void setSupplier(Supplier supplier) {
+        this.supplier = supplier;
+    }
+
+    /**
+     * Executes the query and returns the result from the handler.
+     *
+     * @return the handler's response
+     * @throws IllegalStateException if no handler has been assigned
+     */
+    public double requestDouble() {
+        return RequestSupport.requireHandler(supplier).getAsDouble();
+    }
+
+    /**
+     * Executes the query on the requests' executor, timing out
+     * after {@link Requests#getTimeoutMillis()}. The response is
+     * boxed once, to complete the future
+     *
+     * @return future completed with the handler's response
+     */
+    public CompletableFuture<Double> requestAsync() {
+        return requestAsync(Requests.getTimeoutMillis());
+    }
+
+    /**
+     * Executes the query on the requests' executor
+     *
+     * @param timeoutMillis milliseconds before the future fails with a {@link TimeoutException}
+     * @return future completed with the handler's response
+     */
+    public CompletableFuture<Double> requestAsync(long timeoutMillis) {
+        return RequestSupport.supplyAsync(this::requestDouble, timeoutMillis);
+    }
+}
@@ -0,0 +1,152 @@
+package core.shared.requests;
+
+import core.shared.events.*;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Request class that defines a Request's functions.
+ *
+ * A request can cache the result of its supplier. A cached result is
+ * handed out again until one of the events that can change it is fired,
+ * so asking again while nothing changed costs nothing
+ *
+ * @param <T> the type of the response
+ * @see Requests
+ */
+public final class Request<T> {
+    private final String name;
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private volatile Supplier<T> supplier;
+    private volatile boolean isCached;
+    private volatile CachedResult<T> cachedResult;
+
+    /**
+     * Functional Interface that defines how a query handles a request.
+     *
+     * @param <T> the input type
+     */
+    @FunctionalInterface
+    public interface Supplier<T> {
+        T get();
+    }
+
+    /**
+     * A supplier's result and the version of the request it was made at
+     */
+    private record CachedResult<T>(long version, T value) {}
+
+    /**
+     * Creates a query with no handler set.
+     * @param name the request's name, used when reporting on its cache
+     */
+    Request(String name) {
+        this.name = name;
+    }
+
+    public String getName() {return name;}
+
+    /**
+     * Sets or replaces the current query handler.
+     *
+     * @param supplier the handler function to handle requests
+     */
+    public void setSupplier(Supplier<T> supplier) {
+        this.supplier = supplier;
+        invalidate();
+    }
+
+    /**
+     * Sets or replaces the current query handler, and caches its result
+     * until any of the given events is fired. The events must cover every
+     * change to the data the result is made of.
+     * <p>
+     * The cache is cleared by a listener on each event, so the owner of the
+     * data should connect its own listeners first, letting the data change
+     * before the cache is cleared. The listener belongs to the owner's
+     * module, so it is called after the owner's own listeners even when
+     * events are handled asynchronously. Cached results are shared by every
+     * requester and must not be changed.
+     *
+     * @param owner the module whose listeners change the data (e.g. SalesManager)
+     * @param supplier the handler function to handle requests
+     * @param invalidatedBy the events that can change the result
+     */
+    public void setCachedSupplier(String owner, Supplier<T> supplier, Event<?>... invalidatedBy) {
+        for (Event<?> event : invalidatedBy) {
+            event.addListener(owner + ".invalidate" + name, data -> invalidate());
+        }
+        this.isCached = true;
+        setSupplier(supplier);
+    }
+
+    /**
+     * Executes the query and returns the result from the handler,
+     * or the cached result while it is still valid.
+     *
+     * @return the handler's response
+     * @throws IllegalStateException if no handler has been assigned
+     */
+    public T request() {
+        Supplier<T> current = RequestSupport.requireHandler(supplier);
+        if (!isCached) return current.get();
+
+        // Read the version first, so that a result made while the cache
+        // is cleared is stored under the old version and never handed out
+        long currentVersion = version.get();
+        CachedResult<T> cached = cachedResult;
+        if (cached != null && cached.version() == currentVersion) {
+            hitCount.incrementAndGet();
+            return cached.value();
+        }
+        missCount.incrementAndGet();
+        T value = current.get();
+        // Null means the handler failed, so the handler is asked again next time
+        if (value != null) cachedResult = new CachedResult<>(currentVersion, value);
+        return value;
+    }
+
+    /**
+     * Executes the query on the requests' executor, timing out
+     * after {@link Requests#getTimeoutMillis()}
+     *
+     * @return future completed with the handler's response
+     */
+    public CompletableFuture<T> requestAsync() {
+        return requestAsync(Requests.getTimeoutMillis());
+    }
+
+    /**
+     * Executes the query on the requests' executor
+     *
+     * @param timeoutMillis milliseconds before the future fails with a {@link TimeoutException}
+     * @return future completed with the handler's response
+     */
+    public CompletableFuture<T> requestAsync(long timeoutMillis) {
+        return RequestSupport.supplyAsync(this::request, timeoutMillis);
+    }
+
+    /**
+     * Clears the cached result, so the next request asks the handler
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+    }
+
+    // GETTERS
+    public boolean isCached() {return isCached;}
+    public long getHitCount() {return hitCount.get();}
+    public long getMissCount() {return missCount.get();}
+
+    @Override
+    public String toString() {
+        return String.format("%-20s | %-6s | %-8d | %-8d",
+                name,
+                isCached ? "yes" : "no",
+                getHitCount(),
+                getMissCount());
+    }
+}
@@ -0,0 +1,43 @@
+package core.shared.requests;
+
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Plumbing shared by every kind of request: asking the handler that is
+ * currently set, and running a request on the requests' executor
+ *
+ * @see Request
+ * @see IntRequest
+ * @see DoubleRequest
+ */
+final class RequestSupport {
+    private RequestSupport() {} // prevent instantiation
+
+    /**
+     * Checks that a handler is set, before it is asked
+     *
+     * @param supplier the request's current handler
+     * @return the same handler
+     * @throws IllegalStateException if no handler has been assigned
+     */
+    static <S> S requireHandler(S supplier) {
+        if (supplier == null) {
+            throw new IllegalStateException("No handler assigned for this query.");
+        }
+        return supplier;
+    }
+
+    /**
+     * Runs the request on the requests' executor
+     *
+     * @param request the request, made on the executor's thread
+     * @param timeoutMillis milliseconds before the future fails with a {@link TimeoutException}
+     * @return future completed with the request's response
+     */
+    static <T> CompletableFuture<T> supplyAsync(Supplier<T> request, long timeoutMillis) {
+        return CompletableFuture
+                .supplyAsync(request, Requests.getExecutor())
+                .orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+}
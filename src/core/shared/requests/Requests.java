@@ -3,72 +3,63 @@ package core.shared.requests;
 import core.api.dto.*;
 import core.domain.api.datastructures.*;
 
+import java.util.concurrent.*;
+
 /**
  * A lightweight request service similar to Roblox's BindableFunction.
  * Allows registering a Supplier that processes requests and returns responses.
  * Acts like {@link java.util.function.Supplier} to foster modularized approach
  *
+ * Requests whose results only change with events are cached until
+ * one of those events is fired, see {@link Request#setCachedSupplier}
+ *
+ * Every request can also be made asynchronously, returning a
+ * {@link CompletableFuture} run on a configurable executor, so many
+ * requests can be answered side by side. Numeric responses have their own
+ * {@link DoubleRequest} and {@link IntRequest} channels that avoid boxing
+ *
  * @version 1.0
  * @see Request
  */
 public final class Requests {
     // List of all requests available in the system
-    public static final Request.TotalProductsRequest TotalProducts = new Request.TotalProductsRequest();
-    public static final Request.TotalSalesRequest TotalSales = new Request.TotalSalesRequest();
-    public static final Request.TopSellingProductRequest TopSellingProduct = new Request.TopSellingProductRequest();
-    public static final Request.OutOfStockRequest OutOfStock = new Request.OutOfStockRequest();
-
-    private Requests() {} // prevent instantiation
-}
+    public static final IntRequest TotalProducts = new IntRequest("TotalProducts");
+    public static final DoubleRequest TotalSales = new DoubleRequest("TotalSales");
+    public static final DoubleRequest InventoryValue = new DoubleRequest("InventoryValue");
+    public static final Request<ProductDTO> TopSellingProduct = new Request<>("TopSellingProduct");
+    public static final Request<RecordList<ProductDTO>> OutOfStock = new Request<>("OutOfStock");
+    public static final Request<RecordList<ProductDTO>> LowOnStock = new Request<>("LowOnStock");
+    public static final Request<RecordList<ProductDTO>> TopSellingProducts = new Request<>("TopSellingProducts");
 
-/**
- * Request class that defines a Request's functions
- * @param <T>
- */
-class Request<T> {
-    public static class OutOfStockRequest<T extends RecordList<ProductDTO>> extends Request<RecordList<ProductDTO>> {}
-    public static class TopSellingProductRequest<T extends String> extends Request<String> {}
-    public static class TotalProductsRequest<T extends Integer> extends Request<Integer> {}
-    public static class TotalSalesRequest<T extends Number> extends Request<Number> {}
+    private static volatile Executor executor = Executors.newVirtualThreadPerTaskExecutor();
+    private static volatile long timeoutMillis = 2000;
 
-    private Supplier<T> supplier;
+    private Requests() {} // prevent instantiation
 
-    /**
-     * Functional Interface that defines how a query handles a request.
-     *
-     * @param <T> the input type
-     */
-    @FunctionalInterface
-    public interface Supplier<T> {
-        T get();
+    /** @return every request that can be cached, for reporting on their caches */
+    public static Request<?>[] getAll() {
+        return new Request<?>[]{TopSellingProduct, OutOfStock, LowOnStock, TopSellingProducts};
     }
 
     /**
-     * Default constructor — creates a query with no handler set.
+     * Sets the executor that runs asynchronous requests.
+     * Defaults to a new virtual thread for every request
+     * @param executor the executor to run requests on
      */
-    public Request() {
-        this.supplier = null;
+    public static void setExecutor(Executor executor) {
+        Requests.executor = executor;
     }
 
     /**
-     * Sets or replaces the current query handler.
-     *
-     * @param supplier the handler function to handle requests
+     * Sets how long asynchronous requests may take before they time out,
+     * when no timeout is given to the request
+     * @param timeoutMillis the default timeout in milliseconds
      */
-    public void setSupplier(Supplier<T> supplier) {
-        this.supplier = supplier;
+    public static void setTimeoutMillis(long timeoutMillis) {
+        Requests.timeoutMillis = timeoutMillis;
     }
 
-    /**
-     * Executes the query and returns the result from the handler.
-     *
-     * @return the handler's response
-     * @throws IllegalStateException if no handler has been assigned
-     */
-    public T request() {
-        if (supplier == null) {
-            throw new IllegalStateException("No handler assigned for this query.");
-        }
-        return supplier.get();
-    }
+    public static Executor getExecutor() {return executor;}
+    public static long getTimeoutMillis() {return timeoutMillis;}
 }
+
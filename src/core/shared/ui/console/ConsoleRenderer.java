@@ -1,6 +1,8 @@
 package core.shared.ui.console;
 
 import common.util.*;
+import core.shared.events.*;
+import core.shared.requests.*;
 
 /**
  * Base renderer class for console-based UIs.
@@ -66,6 +68,42 @@ public class ConsoleRenderer {
     public void showHero(String heroBanner) {
         System.out.println(heroBanner);
     }
+
+    /**
+     * Displays how often and how long every listener
+     * of the given events has been called.
+     *
+     * @param events the events whose listeners are shown
+     */
+    public void showListenerTimings(Event<?>[] events) {
+        System.out.print("""
+                ________________________________________________________________________________________________________
+                EVENT                | LISTENER                                      | CALLS    | AVG (µs)     | MAX (µs)
+                --------------------------------------------------------------------------------------------------------
+                """);
+        for (Event<?> event : events) {
+            for (Event.Subscription<?> subscription : event.getSubscriptions()) {
+                System.out.println(subscription);
+            }
+        }
+    }
+
+    /**
+     * Displays whether every request is cached, and how often
+     * its cache was used or missed.
+     *
+     * @param requests the requests to be shown
+     */
+    public void showRequestCaches(Request<?>[] requests) {
+        System.out.print("""
+                ______________________________________________________
+                REQUEST              | CACHED | HITS     | MISSES
+                ------------------------------------------------------
+                """);
+        for (Request<?> request : requests) {
+            System.out.println(request);
+        }
+    }
 }
 
 /**